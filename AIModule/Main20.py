@@ -15,16 +15,24 @@ request_queue = queue.Queue()
 conn_lock = threading.Lock()
 stop_event = threading.Event()
 
+def decode_body(frame):
+    # the backend sends CBOR to subscriptions made with accept: application/cbor, JSON otherwise
+    content_type = frame.headers.get('content-type', '')
+    if content_type.startswith('application/cbor') or 'codec=cbor' in content_type:
+        import cbor2
+        return cbor2.loads(frame.body)
+    return json.loads(frame.body)
+
 class SpringStompListener(stomp.ConnectionListener):
     def __init__(self, conn):
         self.conn = conn
 
     def on_message(self, frame):
         try:
-            cerere = json.loads(frame.body)
+            cerere = decode_body(frame)
             request_queue.put(cerere)
         except Exception as e:
-            print(f"JSON parsing error: {e}")
+            print(f"Message parsing error: {e}")
 
     def on_error(self, frame):
         print(f"STOMP Error: {frame.body}")
@@ -230,12 +238,14 @@ def process_requests_worker(conn):
 
 def main():
     
-    conn = stomp.WSConnection(host_and_ports=[("localhost", 8080)], ws_path="/ws-endpoint")
+    conn = stomp.WSConnection(host_and_ports=[("localhost", 8080)], ws_path="/ws-endpoint", auto_decode=False,
+                             heartbeats=(10000, 10000))
     conn.set_listener('spring_listener', SpringStompListener(conn))
     
     try:
         conn.connect(wait=True)
-        conn.subscribe(destination='/topic/python-requests', id="sub-python", ack='auto')
+        conn.subscribe(destination='/topic/python-requests', id="sub-python", ack='auto',
+                       headers={'accept': 'application/cbor'})
         print("Running and waiting for requests...")
 
         num_threads = 5
@@ -4,6 +4,7 @@ plugins {
     java
     id("org.springframework.boot") version "4.0.0"
     id("io.spring.dependency-management") version "1.1.7"
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "ZeroWaste"
@@ -20,6 +21,14 @@ repositories {
     mavenCentral()
 }
 
+val loadTest: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.test.get().output
+    runtimeClasspath += sourceSets.main.get().output + sourceSets.test.get().output
+}
+
+configurations[loadTest.implementationConfigurationName].extendsFrom(configurations.testImplementation.get())
+configurations[loadTest.runtimeOnlyConfigurationName].extendsFrom(configurations.testRuntimeOnly.get())
+
 dependencies {
     implementation("org.springframework.boot:spring-boot-starter-data-jpa")
     implementation("org.springframework.boot:spring-boot-starter-webmvc")
@@ -38,8 +47,27 @@ dependencies {
     implementation("org.springframework.boot:spring-boot-starter-websocket")
     implementation("org.springframework.boot:spring-boot-starter-cache")
     implementation("com.github.ben-manes.caffeine:caffeine")
+    implementation("tools.jackson.dataformat:jackson-dataformat-cbor")
 }
 
 tasks.withType<Test> {
     useJUnitPlatform()
 }
+
+tasks.register<Test>("loadTest") {
+    description = "Runs the offline load-test harnesses in src/loadTest."
+    group = "verification"
+    testClassesDirs = loadTest.output.classesDirs
+    classpath = loadTest.runtimeClasspath
+    testLogging.showStandardStreams = true
+    System.getProperties().stringPropertyNames()
+        .filter { it.startsWith("loadtest.") }
+        .forEach { systemProperty(it, System.getProperty(it)) }
+}
+
+jmh {
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    resultFormat = "JSON"
+}
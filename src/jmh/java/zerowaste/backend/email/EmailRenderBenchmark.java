@@ -0,0 +1,67 @@
+package zerowaste.backend.email;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+import zerowaste.backend.product.models.Product;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Cost of one expiring products digest: the template engine on every email vs the split layout.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EmailRenderBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int products;
+
+    private EmailTemplateService service;
+    private List<Product> digest;
+    private Map<String, Object> variables;
+
+    @Setup
+    public void setUp() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(true);
+
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        service = new EmailTemplateService(engine);
+
+        digest = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            Product product = new Product();
+            product.setName("Product " + i);
+            product.setBestBefore(LocalDate.of(2026, 1, 1).plusDays(i));
+            digest.add(product);
+        }
+        variables = Map.of("products", digest, "days", 2, "frontendUrl", "http://localhost:8100/");
+    }
+
+    @Benchmark
+    public String engine() {
+        return service.render(EmailTemplateService.EXPIRING_PRODUCTS, variables);
+    }
+
+    @Benchmark
+    public String splitLayout() {
+        return service.renderExpiringProducts(digest, 2, "http://localhost:8100/");
+    }
+}
@@ -0,0 +1,96 @@
+package zerowaste.backend.recipe.matching;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import zerowaste.backend.recipe.traits.RecipeTraitsImporter;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Scores every recipe of the sheet against one user's expiring products:
+// naive = the Main20.py loop (two contains() per product), automaton = one pass per recipe.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IngredientMatcherBenchmark {
+
+    private static final String[] VOCABULARY = {
+            "milk", "eggs", "butter", "cheddar", "mozzarella", "tomato", "onion", "garlic", "chicken breast",
+            "minced beef", "salmon", "spinach", "mushrooms", "cream", "yogurt", "bacon", "carrot", "potato",
+            "lemon", "basil", "parsley", "rice", "pasta", "bread", "ham", "peppers", "courgette", "feta",
+            "parmesan", "avocado", "apple", "banana", "strawberries", "chorizo", "prawns", "tofu", "lettuce"
+    };
+
+    @Param({"3", "10", "30"})
+    public int expiring;
+
+    @Param({"recipesAllergensPreferences"})
+    public String sheet;
+
+    private List<String> ingredients;
+    private List<String> products;
+
+    @Setup
+    public void setUp() throws Exception {
+        Path file = Path.of("AIModule/Files/" + sheet + ".xlsx");
+        ingredients = Files.exists(file)
+                ? List.copyOf(RecipeTraitsImporter.importFrom(file, "AI").ingredients().values())
+                : synthetic(870);
+
+        products = new ArrayList<>();
+        for (int i = 0; i < expiring; i++) {
+            products.add(VOCABULARY[i % VOCABULARY.length]);
+        }
+    }
+
+    @Benchmark
+    public void naive(Blackhole bh) {
+        List<String> names = products.stream().map(IngredientMatcher::normalize).toList();
+        for (String text : ingredients) {
+            int count = 0;
+            int priority = names.size();
+            for (int i = 0; i < names.size(); i++) {
+                String name = names.get(i);
+                if (text.contains(name) && !text.contains("mini " + name)) {
+                    count++;
+                    priority = Math.min(priority, i);
+                }
+            }
+            bh.consume(count);
+            bh.consume(priority);
+        }
+    }
+
+    @Benchmark
+    public void automaton(Blackhole bh) {
+        IngredientMatcher matcher = IngredientMatcher.of(products);
+        for (String text : ingredients) {
+            bh.consume(matcher.match(text));
+        }
+    }
+
+    private static List<String> synthetic(int recipes) {
+        Random random = new Random(42);
+        List<String> texts = new ArrayList<>(recipes);
+        for (int r = 0; r < recipes; r++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < 12; i++) {
+                text.append(random.nextInt(500)).append("g ")
+                        .append(VOCABULARY[random.nextInt(VOCABULARY.length)]).append(", ");
+            }
+            texts.add(text.toString());
+        }
+        return texts;
+    }
+}
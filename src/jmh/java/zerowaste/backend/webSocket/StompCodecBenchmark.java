@@ -0,0 +1,101 @@
+package zerowaste.backend.webSocket;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import zerowaste.backend.product.models.ProductDto;
+import zerowaste.backend.recipe.RecipeService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// JSON vs CBOR for the two heaviest frames: a coalesced product batch and a recipe list from the AI module.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StompCodecBenchmark {
+
+    private final JsonMapper json = JsonMapper.builder().build();
+    private final CBORMapper cbor = new CBORMapper();
+
+    private WsEnvelope batch;
+    private RecipeService.PythonMessage recipes;
+    private byte[] batchJson;
+    private byte[] batchCbor;
+    private byte[] recipesJson;
+    private byte[] recipesCbor;
+
+    @Setup
+    public void setUp() {
+        List<WsEnvelope> events = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ProductDto product = new ProductDto(i, "product " + i, LocalDate.of(2026, 1, 1).plusDays(i),
+                    i % 3 == 0 ? LocalDate.of(2025, 12, 20) : null, i % 3 == 0 ? 4 : null, i % 5 == 0);
+            events.add(new WsEnvelope("product_updated", product));
+        }
+        batch = new WsEnvelope("batch", events, 42L);
+
+        List<Long> ids = new ArrayList<>();
+        for (long i = 1; i <= 870; i++) {
+            ids.add(i * 7);
+        }
+        recipes = new RecipeService.PythonMessage("recipes",
+                new RecipeService.PythonPayload(ids, "user@example.com"));
+
+        batchJson = json.writeValueAsBytes(batch);
+        batchCbor = cbor.writeValueAsBytes(batch);
+        recipesJson = json.writeValueAsBytes(recipes);
+        recipesCbor = cbor.writeValueAsBytes(recipes);
+        System.out.printf("%nbatch: json=%d B cbor=%d B, recipes: json=%d B cbor=%d B%n",
+                batchJson.length, batchCbor.length, recipesJson.length, recipesCbor.length);
+    }
+
+    @Benchmark
+    public byte[] encodeBatchJson() {
+        return json.writeValueAsBytes(batch);
+    }
+
+    @Benchmark
+    public byte[] encodeBatchCbor() {
+        return cbor.writeValueAsBytes(batch);
+    }
+
+    @Benchmark
+    public JsonNode decodeBatchJson() {
+        return json.readTree(batchJson);
+    }
+
+    @Benchmark
+    public JsonNode decodeBatchCbor() {
+        return cbor.readTree(batchCbor);
+    }
+
+    @Benchmark
+    public byte[] encodeRecipesJson() {
+        return json.writeValueAsBytes(recipes);
+    }
+
+    @Benchmark
+    public byte[] encodeRecipesCbor() {
+        return cbor.writeValueAsBytes(recipes);
+    }
+
+    @Benchmark
+    public RecipeService.PythonMessage decodeRecipesJson() {
+        return json.readValue(recipesJson, RecipeService.PythonMessage.class);
+    }
+
+    @Benchmark
+    public RecipeService.PythonMessage decodeRecipesCbor() {
+        return cbor.readValue(recipesCbor, RecipeService.PythonMessage.class);
+    }
+}
@@ -0,0 +1,84 @@
+package zerowaste.backend.email;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import zerowaste.backend.loadtest.SmtpStandIn;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Drains one large notification bucket through MailDispatcher into a local SMTP stand-in.
+// ./gradlew loadTest --tests '*MailDispatchHarness' -Dloadtest.emails=20000 -Dloadtest.mail-workers=8 -Dloadtest.smtp-latency-ms=2
+@SpringBootTest(properties = {
+        "mail.dispatcher.workers=${loadtest.mail-workers:4}",
+        "mail.dispatcher.batch-size=${loadtest.mail-batch-size:50}",
+        "mail.dispatcher.queue-capacity=${loadtest.mail-queue-capacity:10000}",
+        "mail.dispatcher.per-domain-per-second=${loadtest.mail-per-domain-per-second:0}",
+        "spring.mail.properties.mail.smtp.auth=false",
+        "spring.mail.properties.mail.smtp.starttls.enable=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@ActiveProfiles("test")
+class MailDispatchHarness {
+
+    private static final int EMAILS = Integer.getInteger("loadtest.emails", 5000);
+    private static final int DOMAINS = Integer.getInteger("loadtest.domains", 20);
+    private static final SmtpStandIn SMTP = startStandIn();
+
+    @Autowired
+    private MailService mailService;
+
+    @Autowired
+    private MailDispatcher dispatcher;
+
+    @DynamicPropertySource
+    static void smtp(DynamicPropertyRegistry registry) {
+        registry.add("spring.mail.host", () -> "localhost");
+        registry.add("spring.mail.port", SMTP::port);
+    }
+
+    @AfterAll
+    static void stopStandIn() throws IOException {
+        SMTP.close();
+    }
+
+    @Test
+    void drainNotificationBucket() throws Exception {
+        String html = "<html><body><p>Milk expires in 2 days</p></body></html>";
+
+        long start = System.nanoTime();
+        for (int i = 0; i < EMAILS; i++) {
+            mailService.queueHtmlEmail("user" + i + "@domain" + (i % DOMAINS) + ".test", "Expiring Products Alert", html,
+                    (sent, error) -> { });
+        }
+        double submitSeconds = (System.nanoTime() - start) / 1e9;
+
+        boolean complete = SMTP.awaitMessages(EMAILS, 300_000);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        MailDispatcher.Stats stats = dispatcher.stats();
+        System.out.printf("%n=== mail dispatch: %d emails to %d domains ===%n", EMAILS, DOMAINS);
+        System.out.printf("submitted in %.2fs, delivered %d in %.2fs  %.0f emails/s%n",
+                submitSeconds, SMTP.messages(), seconds, SMTP.messages() / seconds);
+        System.out.printf("smtp connections=%d  emails per connection=%.1f  batches=%d%n",
+                SMTP.connections(), (double) SMTP.messages() / Math.max(1, SMTP.connections()), stats.batches());
+        System.out.printf("failed=%d rejected=%d throttled=%d%n", stats.failed(), stats.rejected(), stats.throttled());
+
+        assertTrue(complete, "not every email reached the SMTP stand-in");
+    }
+
+    private static SmtpStandIn startStandIn() {
+        try {
+            return new SmtpStandIn(Long.getLong("loadtest.smtp-latency-ms", 0));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package zerowaste.backend.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LatencyStats {
+
+    private final long[] samples;
+    private final AtomicInteger count = new AtomicInteger();
+
+    public LatencyStats(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public void record(long nanos) {
+        int i = count.getAndIncrement();
+        if (i < samples.length) {
+            samples[i] = nanos;
+        }
+    }
+
+    public int count() {
+        return Math.min(count.get(), samples.length);
+    }
+
+    public double percentileMillis(double p) {
+        int n = count();
+        if (n == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, n);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(p / 100.0 * n) - 1;
+        return sorted[Math.max(0, Math.min(index, n - 1))] / 1_000_000.0;
+    }
+
+    public String summary() {
+        return String.format("n=%d p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms",
+                count(), percentileMillis(50), percentileMillis(95), percentileMillis(99), percentileMillis(100));
+    }
+}
@@ -0,0 +1,125 @@
+package zerowaste.backend.loadtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Minimal SMTP server that accepts everything: enough of RFC 5321 for JavaMail without AUTH or STARTTLS.
+// Counts connections and messages per recipient domain; messageLatencyMs emulates a remote server.
+public class SmtpStandIn implements AutoCloseable {
+
+    private final ServerSocket server;
+    private final long messageLatencyMs;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicLong messages = new AtomicLong();
+    private final Map<String, AtomicLong> perDomain = new ConcurrentHashMap<>();
+
+    public SmtpStandIn(long messageLatencyMs) throws IOException {
+        this.server = new ServerSocket(0);
+        this.messageLatencyMs = messageLatencyMs;
+        Thread.ofPlatform().daemon().name("smtp-stand-in").start(this::accept);
+    }
+
+    public int port() {
+        return server.getLocalPort();
+    }
+
+    public int connections() {
+        return connections.get();
+    }
+
+    public long messages() {
+        return messages.get();
+    }
+
+    public Map<String, AtomicLong> perDomain() {
+        return perDomain;
+    }
+
+    public boolean awaitMessages(long count, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (messages.get() < count) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                connections.incrementAndGet();
+                Thread.ofVirtual().start(() -> serve(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.ISO_8859_1)) {
+            reply(out, "220 stand-in ESMTP");
+
+            String recipientDomain = null;
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() < 4 ? line.toUpperCase(Locale.ROOT) : line.substring(0, 4).toUpperCase(Locale.ROOT);
+                switch (command) {
+                    case "EHLO" -> reply(out, "250-stand-in\r\n250-8BITMIME\r\n250 PIPELINING");
+                    case "HELO", "MAIL", "RSET", "NOOP" -> reply(out, "250 OK");
+                    case "RCPT" -> {
+                        int at = line.lastIndexOf('@');
+                        recipientDomain = at < 0 ? "" : line.substring(at + 1).replace(">", "").trim().toLowerCase(Locale.ROOT);
+                        reply(out, "250 OK");
+                    }
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // message body is discarded
+                        }
+                        if (messageLatencyMs > 0) {
+                            Thread.sleep(messageLatencyMs);
+                        }
+                        messages.incrementAndGet();
+                        perDomain.computeIfAbsent(recipientDomain == null ? "" : recipientDomain, d -> new AtomicLong())
+                                .incrementAndGet();
+                        reply(out, "250 OK queued");
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "502 Command not implemented");
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            // client went away
+        }
+    }
+
+    private static void reply(Writer out, String text) throws IOException {
+        out.write(text);
+        out.write("\r\n");
+        out.flush();
+    }
+}
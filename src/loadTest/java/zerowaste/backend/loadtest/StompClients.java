@@ -0,0 +1,66 @@
+package zerowaste.backend.loadtest;
+
+import org.springframework.messaging.converter.JacksonJsonMessageConverter;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// Opens many STOMP sessions against /ws-endpoint of a locally started backend.
+public class StompClients implements AutoCloseable {
+
+    private final WebSocketStompClient client;
+    private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    private final List<StompSession> sessions = new ArrayList<>();
+
+    public StompClients() {
+        client = new WebSocketStompClient(new StandardWebSocketClient());
+        client.setMessageConverter(new JacksonJsonMessageConverter());
+        client.setInboundMessageSizeLimit(1024 * 1024);
+        scheduler.setPoolSize(2);
+        scheduler.setThreadNamePrefix("stomp-load-");
+        scheduler.initialize();
+        client.setTaskScheduler(scheduler);
+    }
+
+    public WebSocketStompClient client() {
+        return client;
+    }
+
+    // connectHeaders gets the session index, e.g. to hand out a different bearer token per session
+    public List<StompSession> connect(String url, int count, Function<Integer, StompHeaders> connectHeaders)
+            throws Exception {
+        List<CompletableFuture<StompSession>> pending = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            pending.add(client.connectAsync(url, new WebSocketHttpHeaders(), connectHeaders.apply(i),
+                    new StompSessionHandlerAdapter() {}));
+        }
+
+        List<StompSession> connected = new ArrayList<>(count);
+        for (CompletableFuture<StompSession> future : pending) {
+            connected.add(future.get(30, TimeUnit.SECONDS));
+        }
+        sessions.addAll(connected);
+        return connected;
+    }
+
+    @Override
+    public void close() {
+        for (StompSession session : sessions) {
+            if (session.isConnected()) {
+                session.disconnect();
+            }
+        }
+        client.stop();
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,170 @@
+package zerowaste.backend.notification;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import zerowaste.backend.product.models.Product;
+import zerowaste.backend.product.models.UserProductList;
+import zerowaste.backend.product.repos.UserProductListRepository;
+import zerowaste.backend.user.User;
+import zerowaste.backend.user.UserRepository;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Seeds a synthetic population into H2 and runs the notification pipeline against it in dry-run mode: the wheel
+// rebuild, then one busy minute through selection, the expiring query and rendering into a discarding sink.
+// Stage times are summed over the worker threads, allocation is counted over the whole JVM.
+// ./gradlew loadTest --tests '*NotificationPipelineHarness' -Dloadtest.users=50000 -Dloadtest.busy-share=0.3
+@SpringBootTest(properties = {
+        "notifications.dry-run=true",
+        "notifications.tick-cron=-",
+        "notifications.query-chunk-size=${loadtest.chunk-size:500}",
+        "notifications.bootstrap-page-size=${loadtest.page-size:5000}",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@ActiveProfiles("test")
+class NotificationPipelineHarness {
+
+    private static final int USERS = Integer.getInteger("loadtest.users", 10000);
+    private static final int MIN_PRODUCTS = Integer.getInteger("loadtest.min-products", 3);
+    private static final int MAX_PRODUCTS = Integer.getInteger("loadtest.max-products", 25);
+    private static final double BUSY_SHARE = Double.parseDouble(System.getProperty("loadtest.busy-share", "0.2"));
+    private static final LocalTime BUSY_MINUTE = LocalTime.of(8, 0);
+    private static final int SEED_BATCH = 1000;
+    private static final String[] NAMES = {"Milk", "Eggs", "Bread", "Yoghurt", "Cheddar", "Chicken breast", "Spinach",
+            "Tomatoes", "Apples", "Bananas", "Ham", "Butter", "Cream", "Mozzarella", "Salmon", "Carrots", "Orange juice",
+            "Lettuce", "Mushrooms", "Tofu"};
+
+    @Autowired
+    private DailyPlanifierService planifier;
+
+    @Autowired
+    private DiscardingAlertSink sink;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserProductListRepository listRepository;
+
+    @Test
+    void rebuildAndBusyMinute() throws Exception {
+        Random random = new Random(42);
+        long seedStart = System.nanoTime();
+        long products = seed(random);
+        double seedSeconds = (System.nanoTime() - seedStart) / 1e9;
+
+        System.gc();
+        long heapBefore = usedHeap();
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        planifier.loadWheel();
+        double rebuildMs = (System.nanoTime() - start) / 1e6;
+        long rebuildAllocated = allocatedBytes() - allocated;
+        System.gc();
+        long wheelHeap = usedHeap() - heapBefore;
+
+        DailyPlanifierService.Timings before = planifier.timings();
+        DiscardingAlertSink.Stats sinkBefore = sink.stats();
+        allocated = allocatedBytes();
+        start = System.nanoTime();
+        planifier.tick(BUSY_MINUTE);
+        DailyPlanifierService.Timings after = awaitChunks();
+        double busyMs = (System.nanoTime() - start) / 1e6;
+        long busyAllocated = allocatedBytes() - allocated;
+        DiscardingAlertSink.Stats sinkAfter = sink.stats();
+
+        long users = after.users() - before.users();
+        long alerts = after.alerts() - before.alerts();
+        System.out.printf("%n=== notification pipeline (dry run): %d users, %d products ===%n", USERS, products);
+        System.out.printf("seed      %.2fs%n", seedSeconds);
+        System.out.printf("rebuild   %.1f ms  allocated %.1f MB  wheel heap ~%.1f MB%n",
+                rebuildMs, rebuildAllocated / 1e6, wheelHeap / 1e6);
+        System.out.printf("busy      %s: %d users in %d chunks, %d alerts, %.1f ms wall%n",
+                BUSY_MINUTE, users, after.chunks() - before.chunks(), alerts, busyMs);
+        System.out.printf("stages    select %.1f ms  query %.1f ms  render %.1f ms  sink %.1f ms (summed over threads)%n",
+                (after.selectNanos() - before.selectNanos()) / 1e6, (after.queryNanos() - before.queryNanos()) / 1e6,
+                (after.renderNanos() - before.renderNanos()) / 1e6, (after.sinkNanos() - before.sinkNanos()) / 1e6);
+        System.out.printf("alloc     %.1f MB  %.1f KB per user  html %.1f MB%n", busyAllocated / 1e6,
+                busyAllocated / 1e3 / Math.max(1, users), (sinkAfter.bodyChars() - sinkBefore.bodyChars()) / 1e6);
+
+        assertEquals(after.chunks(), after.chunksDone());
+        assertTrue(users > 0, "nobody was due at " + BUSY_MINUTE);
+        assertEquals(alerts, sinkAfter.alerts() - sinkBefore.alerts());
+    }
+
+    private DailyPlanifierService.Timings awaitChunks() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 600_000;
+        DailyPlanifierService.Timings timings = planifier.timings();
+        while (timings.chunksDone() < timings.chunks() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+            timings = planifier.timings();
+        }
+        return timings;
+    }
+
+    // every user has a list of their own; best before dates spread over two weeks, so some expire on any given day
+    private long seed(Random random) {
+        LocalDate today = LocalDate.now();
+        long products = 0;
+        for (int from = 0; from < USERS; from += SEED_BATCH) {
+            int to = Math.min(from + SEED_BATCH, USERS);
+            List<UserProductList> lists = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                UserProductList list = new UserProductList();
+                list.setShare_code(shareCode(i));
+                int count = MIN_PRODUCTS + random.nextInt(MAX_PRODUCTS - MIN_PRODUCTS + 1);
+                for (int p = 0; p < count; p++) {
+                    Product product = new Product();
+                    product.setName(NAMES[random.nextInt(NAMES.length)]);
+                    product.setBestBefore(today.plusDays(random.nextInt(14)));
+                    product.setConsumptionDays(0);
+                    list.getProducts().add(product);
+                }
+                products += count;
+                lists.add(list);
+            }
+            lists = listRepository.saveAll(lists);
+
+            List<User> users = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                User user = new User();
+                user.setEmail("synthetic" + i + "@zerowaste.local");
+                user.setPassword("not-used");
+                user.setVerified(true);
+                user.setNotification_day(1 + random.nextInt(3));
+                user.setPreferred_notification_hour(random.nextDouble() < BUSY_SHARE
+                        ? BUSY_MINUTE : LocalTime.of(6, 0).plusMinutes(random.nextInt(16 * 60)));
+                user.setUserProductList(lists.get(i - from));
+                users.add(user);
+            }
+            userRepository.saveAll(users);
+        }
+        return products;
+    }
+
+    private static String shareCode(int i) {
+        String code = Integer.toString(i, 36).toUpperCase();
+        return "0".repeat(6 - code.length()) + code;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getTotalThreadAllocatedBytes();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,165 @@
+package zerowaste.backend.recipe;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import zerowaste.backend.loadtest.LatencyStats;
+import zerowaste.backend.product.models.UserProductList;
+import zerowaste.backend.product.repos.UserProductListRepository;
+import zerowaste.backend.recipe.models.Recipe;
+import zerowaste.backend.recipe.repos.RecipeRepository;
+import zerowaste.backend.recipe.worker.StubAiWorker;
+import zerowaste.backend.security.AppUserDetails;
+import zerowaste.backend.user.User;
+import zerowaste.backend.user.UserRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// ./gradlew loadTest --tests '*RecommendationLoadHarness' -Dloadtest.users=5000 -Dloadtest.clients=64
+@SpringBootTest(properties = {
+        "ai.stub.latency-ms=${loadtest.ai-latency-ms:25}",
+        "ai.stub.result-size=${loadtest.ai-result-size:200}",
+        "ai.stub.threads=${loadtest.ai-threads:5}"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@ActiveProfiles({"test", "ai-stub"})
+class RecommendationLoadHarness {
+
+    private static final int USERS = Integer.getInteger("loadtest.users", 2000);
+    private static final int CLIENTS = Integer.getInteger("loadtest.clients", 32);
+    private static final int RECIPES = Integer.getInteger("loadtest.recipes", 870);
+    private static final long TIMEOUT_MS = Long.getLong("loadtest.timeout-ms", 10_000);
+
+    @Autowired
+    private RecipeService recipeService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserProductListRepository listRepository;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private StubAiWorker worker;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void recommendationRoundTrip() throws Exception {
+        seedRecipes();
+        List<User> users = seedUsers();
+        Cache cache = cacheManager.getCache("userRecipes");
+
+        LatencyStats coldStats = new LatencyStats(USERS);
+        AtomicInteger timeouts = new AtomicInteger();
+
+        long coldStart = System.nanoTime();
+        runClients(users, user -> {
+            AppUserDetails me = new AppUserDetails(user);
+            long start = System.nanoTime();
+
+            transactionTemplate.execute(status -> recipeService.getRecipesPaged(me, 10, 0));
+
+            long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+            while (cache.get(user.getEmail()) == null) {
+                if (System.currentTimeMillis() > deadline) {
+                    timeouts.incrementAndGet();
+                    return;
+                }
+                Thread.sleep(2);
+            }
+
+            transactionTemplate.execute(status -> recipeService.getRecipesPaged(me, 10, 0));
+            coldStats.record(System.nanoTime() - start);
+        });
+        double coldSeconds = (System.nanoTime() - coldStart) / 1e9;
+
+        // second pass shows how much of the population survived cache eviction
+        LatencyStats warmStats = new LatencyStats(USERS);
+        AtomicInteger hits = new AtomicInteger();
+        long warmStart = System.nanoTime();
+        runClients(users, user -> {
+            long start = System.nanoTime();
+            if (cache.get(user.getEmail()) != null) {
+                hits.incrementAndGet();
+            }
+            transactionTemplate.execute(status -> recipeService.getRecipesPaged(new AppUserDetails(user), 10, 0));
+            warmStats.record(System.nanoTime() - start);
+        });
+        double warmSeconds = (System.nanoTime() - warmStart) / 1e9;
+
+        System.out.printf("%n=== recommendation round trip: %d users, %d clients ===%n", USERS, CLIENTS);
+        System.out.printf("cold  %.0f users/s  %s  timeouts=%d%n", USERS / coldSeconds, coldStats.summary(), timeouts.get());
+        System.out.printf("warm  %.0f users/s  %s  cache hit ratio=%.1f%%%n",
+                USERS / warmSeconds, warmStats.summary(), 100.0 * hits.get() / USERS);
+        System.out.printf("ai stub requests=%d answered=%d%n", worker.getReceived(), worker.getAnswered());
+
+        assertEquals(0, timeouts.get());
+    }
+
+    private interface ClientAction {
+        void run(User user) throws Exception;
+    }
+
+    private void runClients(List<User> users, ClientAction action) throws InterruptedException {
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        for (User user : users) {
+            clients.submit(() -> {
+                action.run(user);
+                return null;
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(10, TimeUnit.MINUTES);
+    }
+
+    private void seedRecipes() {
+        List<Recipe> recipes = new ArrayList<>();
+        String[] types = {"Breakfast", "Lunch", "Dinner", "Dessert"};
+        for (int i = 0; i < RECIPES; i++) {
+            Recipe recipe = new Recipe();
+            recipe.setName("Recipe " + i);
+            recipe.setRecipeType(types[i % types.length]);
+            recipe.setDifficulty(1 + i % 3);
+            recipe.setTime(15 + (i % 12) * 15);
+            recipes.add(recipe);
+        }
+        recipeRepository.saveAll(recipes);
+    }
+
+    private List<User> seedUsers() {
+        List<User> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            UserProductList list = new UserProductList();
+            list.setShare_code(String.format("R%05d", i));
+            listRepository.save(list);
+
+            User user = new User();
+            user.setEmail("load" + i + "@zerowaste.local");
+            user.setPassword("not-used");
+            user.setVerified(true);
+            user.setUserProductList(list);
+            users.add(user);
+        }
+        return userRepository.saveAll(users);
+    }
+}
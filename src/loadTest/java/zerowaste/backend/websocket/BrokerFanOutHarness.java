@@ -0,0 +1,91 @@
+package zerowaste.backend.websocket;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.test.LocalServerPort;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.test.context.ActiveProfiles;
+import zerowaste.backend.loadtest.LatencyStats;
+import zerowaste.backend.loadtest.StompClients;
+import zerowaste.backend.webSocket.ProductWsNotifier;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Fan-out throughput of the simple broker for one large share-code topic.
+// ./gradlew loadTest --tests '*BrokerFanOutHarness' -Dloadtest.subscribers=2000 -Dloadtest.virtual-threads=true
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "websocket.notifications.flush-window-ms=0",
+        "websocket.virtual-threads=${loadtest.virtual-threads:false}",
+        "websocket.outbound.core-pool-size=${loadtest.outbound-threads:8}",
+        "websocket.outbound.max-pool-size=${loadtest.outbound-threads:8}",
+        "websocket.broker.core-pool-size=${loadtest.broker-threads:4}",
+        "websocket.broker.max-pool-size=${loadtest.broker-threads:4}"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@ActiveProfiles("test")
+class BrokerFanOutHarness {
+
+    private static final int SUBSCRIBERS = Integer.getInteger("loadtest.subscribers", 500);
+    private static final int EVENTS = Integer.getInteger("loadtest.events", 200);
+    private static final String SHARE_CODE = "FANOUT";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ProductWsNotifier notifier;
+
+    @Test
+    void fanOutToOneTopic() throws Exception {
+        long expected = (long) SUBSCRIBERS * EVENTS;
+        CountDownLatch delivered = new CountDownLatch((int) expected);
+        LatencyStats stats = new LatencyStats((int) Math.min(expected, 5_000_000));
+
+        try (StompClients clients = new StompClients()) {
+            List<StompSession> sessions = clients.connect("ws://localhost:" + port + "/ws-endpoint",
+                    SUBSCRIBERS, i -> new StompHeaders());
+
+            for (StompSession session : sessions) {
+                session.subscribe("/topic/notifications/" + SHARE_CODE, new StompFrameHandler() {
+                    @Override
+                    public Type getPayloadType(StompHeaders headers) {
+                        return Map.class;
+                    }
+
+                    @Override
+                    public void handleFrame(StompHeaders headers, Object payload) {
+                        Object sentAt = ((Map<?, ?>) payload).get("payload");
+                        stats.record(System.nanoTime() - ((Number) sentAt).longValue());
+                        delivered.countDown();
+                    }
+                });
+            }
+            // SUBSCRIBE frames are async, give the broker time to register them all
+            Thread.sleep(1000);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < EVENTS; i++) {
+                notifier.notifyList(SHARE_CODE, "fanout", System.nanoTime());
+            }
+            boolean complete = delivered.await(2, TimeUnit.MINUTES);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            long received = expected - delivered.getCount();
+            System.out.printf("%n=== broker fan-out: %d subscribers x %d events ===%n", SUBSCRIBERS, EVENTS);
+            System.out.printf("delivered %d/%d in %.2fs  %.0f frames/s%n", received, expected, seconds, received / seconds);
+            System.out.printf("latency %s%n", stats.summary());
+
+            assertTrue(complete, "not every frame was delivered");
+        }
+    }
+}
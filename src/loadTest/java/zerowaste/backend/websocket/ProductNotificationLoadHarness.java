@@ -0,0 +1,277 @@
+package zerowaste.backend.websocket;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.test.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.client.RestClient;
+import zerowaste.backend.loadtest.LatencyStats;
+import zerowaste.backend.loadtest.StompClients;
+import zerowaste.backend.product.controller.requests.AddProductRequest;
+import zerowaste.backend.product.controller.requests.UpdateProductRequest;
+import zerowaste.backend.product.models.Product;
+import zerowaste.backend.product.models.UserProductList;
+import zerowaste.backend.product.repos.UserProductListRepository;
+import zerowaste.backend.security.JwtService;
+import zerowaste.backend.user.User;
+import zerowaste.backend.user.UserRepository;
+import zerowaste.backend.webSocket.WsSessionRegistry;
+
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// End to end: authenticated STOMP sessions spread over shared lists, product mutations through the REST API,
+// latency from the HTTP call until each subscriber has the frame. The send time travels in the product name.
+// Every mutation touches a different product, so the notifier never collapses two of them into one event.
+// ./gradlew loadTest --tests '*ProductNotificationLoadHarness' -Dloadtest.sessions=5000 -Dloadtest.share-codes=250
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "websocket.notifications.flush-window-ms=${loadtest.flush-window-ms:50}",
+        "websocket.virtual-threads=${loadtest.virtual-threads:false}",
+        "websocket.slow-consumer.max-queued-bytes=${loadtest.max-queued-bytes:262144}"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@ActiveProfiles("test")
+class ProductNotificationLoadHarness {
+
+    private static final int SESSIONS = Integer.getInteger("loadtest.sessions", 2000);
+    private static final int SHARE_CODES = Integer.getInteger("loadtest.share-codes", 100);
+    private static final int MUTATIONS = Integer.getInteger("loadtest.mutations", 2000);
+    private static final int WRITERS = Integer.getInteger("loadtest.writers", 16);
+    private static final String NAME_PREFIX = "load-";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserProductListRepository listRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private WsSessionRegistry sessionRegistry;
+
+    @Test
+    void productMutationsReachEverySubscriber() throws Exception {
+        List<UserProductList> lists = seedLists();
+        List<Long> seeded = seededProductIds(lists);
+        List<String> tokens = seedUsers(lists).stream()
+                .map(user -> jwtService.generateAccessToken(user.getEmail(), Map.of("typ", "access")))
+                .toList();
+        int[] subscribersPerList = new int[SHARE_CODES];
+        for (int i = 0; i < SESSIONS; i++) {
+            subscribersPerList[i % SHARE_CODES]++;
+        }
+
+        AtomicLong delivered = new AtomicLong();
+        AtomicInteger resyncs = new AtomicInteger();
+        LatencyStats deliveryStats = new LatencyStats((int) Math.min((long) MUTATIONS * SESSIONS, 5_000_000));
+        LatencyStats httpStats = new LatencyStats(MUTATIONS);
+
+        try (StompClients clients = new StompClients()) {
+            long connectStart = System.nanoTime();
+            List<StompSession> sessions = clients.connect("ws://localhost:" + port + "/ws-endpoint", SESSIONS, i -> {
+                StompHeaders headers = new StompHeaders();
+                headers.add("Authorization", "Bearer " + tokens.get(i));
+                return headers;
+            });
+            double connectSeconds = (System.nanoTime() - connectStart) / 1e9;
+
+            for (int i = 0; i < SESSIONS; i++) {
+                sessions.get(i).subscribe(topic(lists.get(i % SHARE_CODES)),
+                        new DeliveryHandler(deliveryStats, delivered, resyncs));
+            }
+            awaitSubscriptions(lists);
+
+            AtomicLong expected = new AtomicLong();
+            AtomicInteger failures = new AtomicInteger();
+            RestClient rest = RestClient.builder().baseUrl("http://localhost:" + port).build();
+            ExecutorService writers = Executors.newFixedThreadPool(WRITERS);
+
+            long start = System.nanoTime();
+            for (int w = 0; w < WRITERS; w++) {
+                int writer = w;
+                writers.submit(() -> {
+                    for (int m = writer; m < MUTATIONS; m += WRITERS) {
+                        // user i is a member of list i % SHARE_CODES
+                        int list = m % SHARE_CODES;
+                        long sentAt = System.nanoTime();
+                        try {
+                            mutate(rest, tokens.get(list), m, seeded.get(m), sentAt);
+                            httpStats.record(System.nanoTime() - sentAt);
+                            expected.addAndGet(subscribersPerList[list]);
+                        } catch (Exception e) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            writers.shutdown();
+            writers.awaitTermination(10, TimeUnit.MINUTES);
+            double writeSeconds = (System.nanoTime() - start) / 1e9;
+
+            long deadline = System.currentTimeMillis() + 120_000;
+            while (delivered.get() < expected.get() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            WsSessionRegistry.Stats stats = sessionRegistry.stats(0);
+            System.out.printf("%n=== product notifications: %d sessions on %d lists, %d mutations by %d writers ===%n",
+                    SESSIONS, SHARE_CODES, MUTATIONS, WRITERS);
+            System.out.printf("connect   %d sessions in %.2fs  %.0f sessions/s%n", SESSIONS, connectSeconds, SESSIONS / connectSeconds);
+            System.out.printf("http      %.0f mutations/s  %s  failures=%d%n", MUTATIONS / writeSeconds, httpStats.summary(), failures.get());
+            System.out.printf("delivery  %d/%d frames in %.2fs  %.0f frames/s%n", delivered.get(), expected.get(), seconds,
+                    delivered.get() / seconds);
+            System.out.printf("latency   %s%n", deliveryStats.summary());
+            System.out.printf("broker    dropped=%d resyncs=%d disconnected=%d%n", stats.dropped(), resyncs.get(), stats.disconnected());
+
+            assertEquals(0, failures.get());
+            assertEquals(expected.get(), delivered.get());
+        }
+    }
+
+    // even mutations add a product, odd ones rename the product seeded for this mutation
+    private void mutate(RestClient rest, String token, int mutation, Long seededId, long sentAt) {
+        String name = NAME_PREFIX + sentAt;
+        if (mutation % 2 == 1) {
+            rest.put().uri("/user-product-list/")
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(new UpdateProductRequest(seededId, name, LocalDate.now().plusDays(5), null, 3))
+                    .retrieve()
+                    .toBodilessEntity();
+            return;
+        }
+
+        rest.post().uri("/user-product-list/")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(new AddProductRequest(name, LocalDate.now().plusDays(7), 3, null))
+                .retrieve()
+                .toBodilessEntity();
+    }
+
+    private void awaitSubscriptions(List<UserProductList> lists) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (System.currentTimeMillis() < deadline) {
+            int subscribed = 0;
+            for (UserProductList list : lists) {
+                subscribed += sessionRegistry.subscribers(topic(list));
+            }
+            if (subscribed >= SESSIONS) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        throw new IllegalStateException("not every session subscribed in time");
+    }
+
+    private static String topic(UserProductList list) {
+        return "/topic/notifications/" + list.getShare_code();
+    }
+
+    // mutation m runs against list m % SHARE_CODES, so its seeded product is created in that list
+    private List<UserProductList> seedLists() {
+        List<UserProductList> lists = new ArrayList<>(SHARE_CODES);
+        for (int i = 0; i < SHARE_CODES; i++) {
+            UserProductList list = new UserProductList();
+            list.setShare_code(String.format("N%05d", i));
+            lists.add(list);
+        }
+        for (int m = 0; m < MUTATIONS; m++) {
+            Product product = new Product();
+            product.setName("seed-" + m);
+            product.setBestBefore(LocalDate.now().plusDays(10));
+            product.setConsumptionDays(0);
+            lists.get(m % SHARE_CODES).getProducts().add(product);
+        }
+        return listRepository.saveAll(lists);
+    }
+
+    private static List<Long> seededProductIds(List<UserProductList> lists) {
+        List<Long> ids = new ArrayList<>(MUTATIONS);
+        for (int m = 0; m < MUTATIONS; m++) {
+            ids.add(lists.get(m % SHARE_CODES).getProducts().get(m / SHARE_CODES).getId());
+        }
+        return ids;
+    }
+
+    private List<User> seedUsers(List<UserProductList> lists) {
+        List<User> users = new ArrayList<>(SESSIONS);
+        for (int i = 0; i < SESSIONS; i++) {
+            User user = new User();
+            user.setEmail("notify" + i + "@zerowaste.local");
+            user.setPassword("not-used");
+            user.setVerified(true);
+            user.setUserProductList(lists.get(i % SHARE_CODES));
+            users.add(user);
+        }
+        return userRepository.saveAll(users);
+    }
+
+    // frames are single events or, when the notifier coalesced them, a "batch" of events
+    private static final class DeliveryHandler implements StompFrameHandler {
+
+        private final LatencyStats stats;
+        private final AtomicLong delivered;
+        private final AtomicInteger resyncs;
+
+        DeliveryHandler(LatencyStats stats, AtomicLong delivered, AtomicInteger resyncs) {
+            this.stats = stats;
+            this.delivered = delivered;
+            this.resyncs = resyncs;
+        }
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return Map.class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            long now = System.nanoTime();
+            Map<?, ?> envelope = (Map<?, ?>) payload;
+            if ("batch".equals(envelope.get("type"))) {
+                for (Object event : (List<?>) envelope.get("payload")) {
+                    record((Map<?, ?>) event, now);
+                }
+            } else {
+                record(envelope, now);
+            }
+        }
+
+        private void record(Map<?, ?> event, long now) {
+            if ("resync_required".equals(event.get("type"))) {
+                resyncs.incrementAndGet();
+                return;
+            }
+            if (event.get("payload") instanceof Map<?, ?> product
+                    && product.get("name") instanceof String name && name.startsWith(NAME_PREFIX)) {
+                stats.record(now - Long.parseLong(name.substring(NAME_PREFIX.length())));
+                delivered.incrementAndGet();
+            }
+        }
+    }
+}
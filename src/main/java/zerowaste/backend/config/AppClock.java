@@ -0,0 +1,76 @@
+package zerowaste.backend.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+// The application's notion of now. Today is kept as an epoch day and only recomputed when the clock crosses
+// midnight, so per-product date checks compare ints instead of building LocalDates. Tests and benchmarks pass
+// a fixed or offset java.time.Clock.
+@Component
+public class AppClock {
+
+    private record Day(int epochDay, long startMillis, long endMillis) {}
+
+    // for code Spring does not construct, entities serialized to JSON; the bean replaces it once it exists
+    private static volatile AppClock shared = new AppClock();
+
+    private final Clock clock;
+    private volatile Day day;
+
+    public AppClock() {
+        this(Clock.systemDefaultZone());
+    }
+
+    public AppClock(Clock clock) {
+        this.clock = clock;
+        this.day = dayAt(clock.millis());
+    }
+
+    public static AppClock current() {
+        return shared;
+    }
+
+    @PostConstruct
+    public void makeCurrent() {
+        shared = this;
+    }
+
+    public int today() {
+        long now = clock.millis();
+        Day current = day;
+        if (now >= current.endMillis() || now < current.startMillis()) {
+            current = dayAt(now);
+            day = current;
+        }
+        return current.epochDay();
+    }
+
+    public LocalDate todayDate() {
+        return LocalDate.ofEpochDay(today());
+    }
+
+    public LocalDateTime now() {
+        return LocalDateTime.now(clock);
+    }
+
+    public Instant instant() {
+        return clock.instant();
+    }
+
+    public ZoneId zone() {
+        return clock.getZone();
+    }
+
+    private Day dayAt(long millis) {
+        ZoneId zone = clock.getZone();
+        LocalDate date = Instant.ofEpochMilli(millis).atZone(zone).toLocalDate();
+        return new Day((int) date.toEpochDay(), date.atStartOfDay(zone).toInstant().toEpochMilli(),
+                date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli());
+    }
+}
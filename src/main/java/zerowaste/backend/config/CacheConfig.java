@@ -1,23 +1,49 @@
 package zerowaste.backend.config;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import java.util.concurrent.TimeUnit;
+import zerowaste.backend.recipe.ranking.DurableRankingCache;
+import zerowaste.backend.recipe.ranking.RankingStore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
 
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
+    private static final Duration TTL = Duration.ofMinutes(30);
+
     @Bean
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("userRecipes");
+    public CacheManager cacheManager(ObjectProvider<RankingStore> rankingStore, AppClock clock) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                Cache l1 = super.adaptCaffeineCache(name, cache);
+                RankingStore store = rankingStore.getIfAvailable();
+                return "userRecipes".equals(name) && store != null ? new DurableRankingCache(l1, store, TTL, clock) : l1;
+            }
+        };
         cacheManager.setCaffeine(Caffeine.newBuilder()
-                .expireAfterWrite(30, TimeUnit.MINUTES)
+                .expireAfterWrite(TTL)
                 .maximumSize(1000));
+        cacheManager.setCacheNames(List.of("userRecipes"));
         return cacheManager;
     }
-}
\ No newline at end of file
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "recipes.ranking-store.enabled", havingValue = "true")
+    public RankingStore rankingStore(@Value("${recipes.ranking-store.path:data/rankings}") String path) throws IOException {
+        return RankingStore.open(Path.of(path));
+    }
+}
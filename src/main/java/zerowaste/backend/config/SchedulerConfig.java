@@ -1,5 +1,6 @@
 package zerowaste.backend.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
@@ -15,4 +16,14 @@ public class SchedulerConfig {
         scheduler.initialize();
         return scheduler;
     }
+
+    // kept apart from taskScheduler so a slow daily job never delays STOMP heartbeats
+    @Bean(name = "wsHeartbeatScheduler")
+    public ThreadPoolTaskScheduler wsHeartbeatScheduler(@Value("${websocket.heartbeat.pool-size:2}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("ws-heartbeat-");
+        scheduler.initialize();
+        return scheduler;
+    }
 }
\ No newline at end of file
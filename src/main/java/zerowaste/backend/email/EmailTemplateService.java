@@ -3,21 +3,145 @@ package zerowaste.backend.email;
 import org.springframework.stereotype.Service;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
+import org.unbescape.html.HtmlEscape;
+import zerowaste.backend.product.models.Product;
 
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class EmailTemplateService {
 
+    public static final String EXPIRING_PRODUCTS = "mail/expiringProducts-email";
+
+    private static final String[] NAME_MARKERS = {"zwFirstProductzw", "zwSecondProductzw"};
+    private static final LocalDate[] DATE_MARKERS = {LocalDate.of(1901, 2, 3), LocalDate.of(1902, 3, 4)};
+    private static final DateTimeFormatter ROW_DATE = DateTimeFormatter.ofPattern("dd MMM, yy", Locale.ENGLISH);
+    private static final int MAX_POOLED_CHARS = 256 * 1024;
+
+    // the expiring products digest split around the product name and date of each row, see compile()
+    private record Layout(String empty, String head, String beforeDate, String between, String end) {}
+
     private final TemplateEngine templateEngine;
+    private final Map<String, Optional<Layout>> layouts = new ConcurrentHashMap<>();
+    private final ThreadLocal<StringBuilder> buffers = ThreadLocal.withInitial(() -> new StringBuilder(8192));
 
     public EmailTemplateService(TemplateEngine templateEngine) {
         this.templateEngine = templateEngine;
     }
 
     public String render(String templateName, Map<String, Object> variables) {
+        return templateEngine.process(templateName, context(variables));
+    }
+
+    public void render(String templateName, Map<String, Object> variables, Writer writer) {
+        templateEngine.process(templateName, context(variables), writer);
+    }
+
+    // reuses a per-thread buffer, a digest is built without growing a fresh StringBuilder each time
+    public String renderExpiringProducts(List<Product> products, int days, String frontendUrl) {
+        StringBuilder out = buffers.get();
+        out.setLength(0);
+        renderExpiringProducts(products, days, frontendUrl, out);
+        String html = out.toString();
+        if (out.capacity() > MAX_POOLED_CHARS) {
+            buffers.remove();
+        }
+        return html;
+    }
+
+    public void renderExpiringProducts(List<Product> products, int days, String frontendUrl, StringBuilder out) {
+        Optional<Layout> layout = layouts.computeIfAbsent(days + "|" + frontendUrl, key -> compile(days, frontendUrl));
+        if (layout.isEmpty()) {
+            out.append(render(EXPIRING_PRODUCTS, expiringVariables(products, days, frontendUrl)));
+            return;
+        }
+        append(layout.get(), products, out);
+    }
+
+    private static void append(Layout layout, List<Product> products, StringBuilder out) {
+        if (products.isEmpty()) {
+            out.append(layout.empty());
+            return;
+        }
+
+        out.append(layout.head());
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            if (i > 0) {
+                out.append(layout.between());
+            }
+            if (product.getName() != null) {
+                out.append(HtmlEscape.escapeHtml4Xml(product.getName()));
+            }
+            out.append(layout.beforeDate());
+            if (product.getBestBefore() != null) {
+                out.append(ROW_DATE.format(product.getBestBefore()));
+            }
+        }
+        out.append(layout.end());
+    }
+
+    // Renders the template with two marker products and cuts it at the markers: everything up to the first name,
+    // name to date, date to the next name (row end plus the whitespace th:each repeats), and the rest.
+    // The result is checked against the engine once and dropped on mismatch, so a template edit can never
+    // produce a wrong email, only a slower one.
+    private Optional<Layout> compile(int days, String frontendUrl) {
+        List<Product> markers = List.of(sample(NAME_MARKERS[0], DATE_MARKERS[0]), sample(NAME_MARKERS[1], DATE_MARKERS[1]));
+        String empty = render(EXPIRING_PRODUCTS, expiringVariables(List.of(), days, frontendUrl));
+        String two = render(EXPIRING_PRODUCTS, expiringVariables(markers, days, frontendUrl));
+
+        String firstDate = ROW_DATE.format(DATE_MARKERS[0]);
+        String secondDate = ROW_DATE.format(DATE_MARKERS[1]);
+        int firstName = two.indexOf(NAME_MARKERS[0]);
+        int firstDateAt = firstName < 0 ? -1 : two.indexOf(firstDate, firstName);
+        int secondName = firstDateAt < 0 ? -1 : two.indexOf(NAME_MARKERS[1], firstDateAt);
+        int secondDateAt = secondName < 0 ? -1 : two.indexOf(secondDate, secondName);
+        if (secondDateAt < 0) {
+            System.err.println("Could not split " + EXPIRING_PRODUCTS + ", rendering it through the engine");
+            return Optional.empty();
+        }
+
+        Layout layout = new Layout(empty, two.substring(0, firstName),
+                two.substring(firstName + NAME_MARKERS[0].length(), firstDateAt),
+                two.substring(firstDateAt + firstDate.length(), secondName),
+                two.substring(secondDateAt + secondDate.length()));
+
+        List<Product> sample = List.of(sample("Milk & \"Cookies\" <2>", LocalDate.of(2026, 1, 8)),
+                sample("Crème", null), sample("Eggs", LocalDate.of(2026, 1, 9)));
+        StringBuilder fast = new StringBuilder();
+        append(layout, sample, fast);
+        if (!fast.toString().equals(render(EXPIRING_PRODUCTS, expiringVariables(sample, days, frontendUrl)))) {
+            System.err.println("Split " + EXPIRING_PRODUCTS + " differs from the engine, rendering it through the engine");
+            return Optional.empty();
+        }
+        return Optional.of(layout);
+    }
+
+    private static Map<String, Object> expiringVariables(List<Product> products, int days, String frontendUrl) {
+        return Map.of(
+                "products", products,
+                "days", days,
+                "frontendUrl", frontendUrl
+        );
+    }
+
+    private static Product sample(String name, LocalDate bestBefore) {
+        Product product = new Product();
+        product.setName(name);
+        product.setBestBefore(bestBefore);
+        return product;
+    }
+
+    private static Context context(Map<String, Object> variables) {
         Context context = new Context();
         variables.forEach(context::setVariable);
-        return templateEngine.process(templateName, context);
+        return context;
     }
 }
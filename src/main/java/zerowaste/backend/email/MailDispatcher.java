@@ -0,0 +1,311 @@
+package zerowaste.backend.email;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded queue in front of the SMTP server. A fixed set of workers drains it in batches and sends each batch
+// through one JavaMailSender.send(MimeMessage...) call, which keeps a single SMTP connection open for the batch.
+// Urgent mail (account confirmation, password reset) has its own lane and never waits behind expiry alerts.
+// Recipient domains are throttled with a token bucket so a big bucket does not trip provider rate limits.
+@Component
+public class MailDispatcher {
+
+    public record Stats(long submitted, long sent, long failed, long rejected, long throttled, long batches,
+                        int queued, double sentPerSecond) {}
+
+    // told once per message whether the SMTP server accepted it, error is null when sent
+    public interface Callback {
+        void done(boolean sent, String error);
+    }
+
+    private record Outgoing(MimeMessage message, String domain, Callback callback) {}
+
+    private final JavaMailSender mailSender;
+
+    @Value("${mail.dispatcher.workers:4}")
+    private int workers;
+
+    @Value("${mail.dispatcher.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${mail.dispatcher.batch-size:50}")
+    private int batchSize;
+
+    @Value("${mail.dispatcher.offer-timeout-ms:5000}")
+    private long offerTimeoutMs;
+
+    // 0 disables throttling
+    @Value("${mail.dispatcher.per-domain-per-second:0}")
+    private double perDomainPerSecond;
+
+    @Value("${mail.dispatcher.shutdown-timeout-ms:30000}")
+    private long shutdownTimeoutMs;
+
+    private BlockingQueue<Outgoing> urgent;
+    private BlockingQueue<Outgoing> bulk;
+    private ExecutorService pool;
+    private volatile boolean running;
+    // idle workers wait here for a message on either lane; submitters only take the lock when someone waits
+    private final Object arrivals = new Object();
+    private volatile int idleWorkers;
+
+    private final Map<String, DomainThrottle> throttles = new ConcurrentHashMap<>();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    private long reportedSent;
+    private long reportedAt = System.nanoTime();
+    private volatile double sentPerSecond;
+
+    public MailDispatcher(JavaMailSender mailSender) {
+        this.mailSender = mailSender;
+    }
+
+    @PostConstruct
+    public void start() {
+        urgent = new ArrayBlockingQueue<>(Math.max(1, queueCapacity / 10));
+        bulk = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        pool = Executors.newFixedThreadPool(workers, Thread.ofPlatform().name("mail-dispatch-", 0).factory());
+        for (int i = 0; i < workers; i++) {
+            pool.execute(this::work);
+        }
+    }
+
+    // bulk producers block up to mail.dispatcher.offer-timeout-ms when the queue is full, so they slow down instead
+    // of piling up; urgent mail is submitted from request threads and is rejected right away
+    public boolean submit(MimeMessage message, boolean urgentLane) {
+        return submit(message, urgentLane, null);
+    }
+
+    public boolean submit(MimeMessage message, boolean urgentLane, Callback callback) {
+        submitted.incrementAndGet();
+        try {
+            if ((urgentLane ? urgent : bulk).offer(new Outgoing(message, domainOf(message), callback),
+                    urgentLane ? 0 : offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                if (idleWorkers > 0) {
+                    synchronized (arrivals) {
+                        arrivals.notify();
+                    }
+                }
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejected.incrementAndGet();
+        System.err.println("Mail queue full, dropped message to " + domainOf(message));
+        complete(new Outgoing(message, "", callback), false, "mail queue full");
+        return false;
+    }
+
+    public Stats stats() {
+        return new Stats(submitted.get(), sent.get(), failed.get(), rejected.get(), throttled.get(), batches.get(),
+                urgent.size() + bulk.size(), sentPerSecond);
+    }
+
+    @Scheduled(fixedDelayString = "${mail.dispatcher.report-interval-ms:60000}")
+    public void report() {
+        long now = System.nanoTime();
+        long total = sent.get();
+        long window = total - reportedSent;
+        sentPerSecond = window / ((now - reportedAt) / 1e9);
+        reportedSent = total;
+        reportedAt = now;
+
+        if (window > 0 || failed.get() > 0 || rejected.get() > 0) {
+            Stats stats = stats();
+            System.out.printf("Mail dispatcher: sent %d (%.1f/s), total sent=%d failed=%d rejected=%d throttled=%d queued=%d%n",
+                    window, sentPerSecond, stats.sent(), stats.failed(), stats.rejected(), stats.throttled(), stats.queued());
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        synchronized (arrivals) {
+            arrivals.notifyAll();
+        }
+        pool.shutdown();
+        if (!pool.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS)) {
+            pool.shutdownNow();
+            System.err.println("Mail dispatcher stopped with " + (urgent.size() + bulk.size()) + " messages queued");
+        }
+    }
+
+    private void work() {
+        List<Outgoing> deferred = new ArrayList<>();
+        while (running || !deferred.isEmpty() || !urgent.isEmpty() || !bulk.isEmpty()) {
+            try {
+                List<Outgoing> candidates = deferred;
+                deferred = new ArrayList<>();
+                fill(candidates);
+
+                List<Outgoing> batch = new ArrayList<>(candidates.size());
+                long now = System.nanoTime();
+                for (Outgoing outgoing : candidates) {
+                    if (throttle(outgoing.domain()).tryAcquire(now)) {
+                        batch.add(outgoing);
+                    } else {
+                        throttled.incrementAndGet();
+                        deferred.add(outgoing);
+                    }
+                }
+
+                if (!batch.isEmpty()) {
+                    send(batch);
+                } else if (!deferred.isEmpty()) {
+                    Thread.sleep(20);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // deferred messages count against the batch, so a throttled domain stops the worker from pulling more
+    private void fill(List<Outgoing> candidates) throws InterruptedException {
+        drain(candidates);
+        if (candidates.isEmpty()) {
+            synchronized (arrivals) {
+                idleWorkers++;
+                try {
+                    // checked under the lock a submitter notifies under, so an arrival cannot slip in between
+                    if (running && urgent.isEmpty() && bulk.isEmpty()) {
+                        arrivals.wait(1000);
+                    }
+                } finally {
+                    idleWorkers--;
+                }
+            }
+            drain(candidates);
+        }
+    }
+
+    private void drain(List<Outgoing> candidates) {
+        urgent.drainTo(candidates, batchSize - candidates.size());
+        bulk.drainTo(candidates, batchSize - candidates.size());
+    }
+
+    private void send(List<Outgoing> batch) {
+        batches.incrementAndGet();
+        MimeMessage[] messages = new MimeMessage[batch.size()];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = batch.get(i).message();
+        }
+
+        try {
+            mailSender.send(messages);
+            sent.addAndGet(batch.size());
+            for (Outgoing outgoing : batch) {
+                complete(outgoing, true, null);
+            }
+        } catch (MailSendException e) {
+            // an empty map means the whole batch failed, e.g. the connection could not be opened
+            Map<Object, Exception> failedMessages = e.getFailedMessages();
+            Exception[] causes = new Exception[batch.size()];
+            int failedCount = 0;
+            for (int i = 0; i < causes.length; i++) {
+                causes[i] = failedMessages.isEmpty() ? e : failedMessages.get(messages[i]);
+                if (causes[i] != null) {
+                    failedCount++;
+                }
+            }
+            sent.addAndGet(batch.size() - failedCount);
+            failed.addAndGet(failedCount);
+            System.err.println("Could not send " + failedCount + " of " + batch.size() + " emails: " + e.getMessage());
+            for (int i = 0; i < causes.length; i++) {
+                complete(batch.get(i), causes[i] == null, causes[i] == null ? null : causes[i].getMessage());
+            }
+        } catch (MailException e) {
+            failed.addAndGet(batch.size());
+            System.err.println("Could not send " + batch.size() + " emails: " + e.getMessage());
+            for (Outgoing outgoing : batch) {
+                complete(outgoing, false, e.getMessage());
+            }
+        }
+    }
+
+    private static void complete(Outgoing outgoing, boolean sent, String error) {
+        if (outgoing.callback() == null) {
+            return;
+        }
+        try {
+            outgoing.callback().done(sent, error);
+        } catch (RuntimeException e) {
+            System.err.println("Mail callback failed: " + e.getMessage());
+        }
+    }
+
+    private DomainThrottle throttle(String domain) {
+        return throttles.computeIfAbsent(domain, d -> new DomainThrottle(perDomainPerSecond));
+    }
+
+    private static String domainOf(MimeMessage message) {
+        try {
+            Address[] recipients = message.getAllRecipients();
+            if (recipients != null && recipients.length > 0 && recipients[0] instanceof InternetAddress address) {
+                String email = address.getAddress();
+                return email.substring(email.indexOf('@') + 1).toLowerCase(Locale.ROOT);
+            }
+        } catch (MessagingException ignored) {
+        }
+        return "";
+    }
+
+    // token bucket holding at most one second worth of messages, and at least one
+    private static final class DomainThrottle {
+
+        private final double perSecond;
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        private final double burst;
+
+        DomainThrottle(double perSecond) {
+            this.perSecond = perSecond;
+            this.burst = Math.max(1, perSecond);
+            this.tokens = burst;
+        }
+
+        synchronized boolean tryAcquire(long now) {
+            if (perSecond <= 0) {
+                return true;
+            }
+            tokens = Math.min(burst, tokens + (now - refilledAt) / 1e9 * perSecond);
+            refilledAt = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
+}
@@ -3,21 +3,32 @@ package zerowaste.backend.email;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 @Service
 public class MailService {
 
     private final JavaMailSender mailSender;
+    private final MailDispatcher dispatcher;
     @Value("${spring.mail.username}")
     private String from;
 
-    public MailService(JavaMailSender mailSender) {
+    @Value("${mail.urgent.timeout-ms:1000}")
+    private long urgentTimeoutMs;
+
+    public MailService(JavaMailSender mailSender, MailDispatcher dispatcher) {
         this.mailSender = mailSender;
+        this.dispatcher = dispatcher;
     }
 
     @Async
@@ -29,8 +40,44 @@ public class MailService {
         mailSender.send(msg);
     }
 
-    @Async
+    // account mails, sent ahead of any queued alerts. The caller waits at most mail.urgent.timeout-ms: a full
+    // urgent lane or a refusal within that time is a MailSendException. A slower answer does not hold the request
+    // thread, the message stays queued and a later failure is only logged; the user can ask for the mail again
     public void sendHtmlEmail(String to, String subject, String html) {
+        CompletableFuture<String> outcome = new CompletableFuture<>();
+        dispatcher.submit(createHtmlMessage(to, subject, html), true, (sent, error) -> {
+            if (!outcome.complete(sent ? null : error) && !sent) {
+                System.err.println("Could not send email to " + to + " after the request returned: " + error);
+            }
+        });
+
+        String error;
+        try {
+            error = outcome.get(urgentTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // the answer may have come in just now
+            if (outcome.complete(null)) {
+                return;
+            }
+            error = outcome.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = "interrupted";
+        } catch (ExecutionException e) {
+            error = e.getMessage();
+        }
+        if (error != null) {
+            throw new MailSendException("Could not send email to " + to + ": " + error);
+        }
+    }
+
+    // bulk notifications, waits for a free slot when the queue is full; the callback learns whether the SMTP
+    // server took the message
+    public void queueHtmlEmail(String to, String subject, String html, MailDispatcher.Callback callback) {
+        dispatcher.submit(createHtmlMessage(to, subject, html), false, callback);
+    }
+
+    private MimeMessage createHtmlMessage(String to, String subject, String html) {
         try {
             MimeMessage message = mailSender.createMimeMessage();
             MimeMessageHelper helper = new MimeMessageHelper(message, "UTF-8");
@@ -45,7 +92,7 @@ public class MailService {
 
             message.saveChanges();
 
-            mailSender.send(message);
+            return message;
         } catch (MessagingException e) {
             throw new RuntimeException("Could not send HTML email", e);
         }
@@ -5,6 +5,7 @@ import jakarta.validation.ValidationException;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mail.MailException;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.DisabledException;
@@ -81,6 +82,11 @@ public class GlobalExceptionHandler {
         return buildResponse(HttpStatus.METHOD_NOT_ALLOWED, ex.getMessage(), req.getRequestURI());
     }
 
+    @ExceptionHandler(MailException.class)
+    public ResponseEntity<ErrorHttpResponse> handleMail(MailException ex, HttpServletRequest req) {
+        return buildResponse(HttpStatus.SERVICE_UNAVAILABLE, "We could not send the email, please try again later.", req.getRequestURI());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorHttpResponse> handleGeneric(Exception ex, HttpServletRequest req) {
         return buildResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected error: " + ex.getMessage() , req.getRequestURI());
@@ -0,0 +1,12 @@
+package zerowaste.backend.notification;
+
+import zerowaste.backend.notification.outbox.OutboxEntry;
+
+import java.util.List;
+
+// Where rendered expiry alerts go: the outbox, or DiscardingAlertSink when notifications.dry-run is set.
+public interface AlertSink {
+
+    // returns how many alerts were accepted
+    int enqueue(List<OutboxEntry> alerts);
+}
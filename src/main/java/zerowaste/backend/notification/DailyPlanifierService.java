@@ -1,110 +1,326 @@
 package zerowaste.backend.notification;
 
-import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
-import org.springframework.scheduling.support.CronTrigger;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import zerowaste.backend.config.AppClock;
 import zerowaste.backend.email.EmailTemplateService;
-import zerowaste.backend.email.MailService;
+import zerowaste.backend.notification.outbox.NotificationOutbox;
+import zerowaste.backend.notification.outbox.OutboxEntry;
+import zerowaste.backend.notification.partition.PartitionManager;
 import zerowaste.backend.product.models.Product;
 import zerowaste.backend.user.User;
 import zerowaste.backend.user.UserRepository;
+import zerowaste.backend.webSocket.relay.NotificationRelay;
+import zerowaste.backend.webSocket.relay.RelayMessage;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ScheduledFuture;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class DailyPlanifierService {
 
+    // cumulative cost of each stage since startup: wheel selection, the expiring query, rendering, the sink
+    public record Timings(long ticks, long users, long chunks, long chunksDone, long alerts, long selectNanos,
+                          long queryNanos, long renderNanos, long sinkNanos) {}
+
     private final ThreadPoolTaskScheduler taskScheduler;
     private final UserRepository userRepository;
-    private final MailService mailService;
+    private final AlertSink sink;
+    private final PartitionManager partitions;
     private final EmailTemplateService emailTemplateService;
+    private final AppClock clock;
+    private final NotificationRelay relay;
+
+    private final NotificationWheel wheel = new NotificationWheel();
+    private long lastTick = -1;
+    // per partition, the last minute this node has handed to the workers
+    private final Map<Integer, Long> scheduledThrough = new HashMap<>();
+    // users changed while the wheel is loading, their page data may already be stale. Read and written under the
+    // wheel's lock together with the put, so an update cannot land between a page's check and its put
+    private Set<Long> changedDuringLoad;
 
-    private final ConcurrentHashMap<Long, ScheduledFuture<?>> scheduledTasks = new ConcurrentHashMap<>();
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong selectedUsers = new AtomicLong();
+    private final AtomicLong chunks = new AtomicLong();
+    private final AtomicLong chunksDone = new AtomicLong();
+    private final AtomicLong queuedAlerts = new AtomicLong();
+    private final AtomicLong selectNanos = new AtomicLong();
+    private final AtomicLong queryNanos = new AtomicLong();
+    private final AtomicLong renderNanos = new AtomicLong();
+    private final AtomicLong sinkNanos = new AtomicLong();
 
     @Value("${frontend.url}")
     private String frontendUrl;
 
+    @Value("${notifications.query-chunk-size:500}")
+    private int queryChunkSize;
+
+    @Value("${notifications.bootstrap-page-size:5000}")
+    private int bootstrapPageSize;
+
+    @Value("${notifications.dry-run:false}")
+    private boolean dryRun;
+
     public DailyPlanifierService(ThreadPoolTaskScheduler taskScheduler,
-                                 UserRepository userRepository, MailService mailService,
-                                 EmailTemplateService emailTemplateService) {
+                                 UserRepository userRepository, AlertSink sink,
+                                 EmailTemplateService emailTemplateService, PartitionManager partitions,
+                                 AppClock clock, NotificationRelay relay) {
         this.taskScheduler = taskScheduler;
         this.userRepository = userRepository;
-        this.mailService = mailService;
+        this.sink = sink;
+        this.partitions = partitions;
         this.emailTemplateService = emailTemplateService;
+        this.clock = clock;
+        this.relay = relay;
     }
 
-    @PostConstruct
-    @Scheduled(cron = "0 0 0 * * *")
-    public void scheduledTasks() {
-        scheduledTasks.values().forEach(future -> future.cancel(false));
-        scheduledTasks.clear();
-
-        List<User> users = userRepository.findAll();
+    // off the startup path: the app is ready before every user is in the wheel
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        taskScheduler.execute(this::loadWheel);
+    }
 
-        for (User user : users) {
-            if (user.getPreferred_notification_hour() != null) {
-                scheduleUserTask(user);
+    // the wheel repeats every day, so it is filled once instead of being rebuilt at midnight.
+    // Reads (id, hour) pages by id, never User entities; updates made meanwhile win over the page data.
+    public void loadWheel() {
+        synchronized (wheel) {
+            changedDuringLoad = new HashSet<>();
+        }
+        long start = System.nanoTime();
+        long afterId = 0;
+        int loaded = 0;
+        List<NotificationSlot> page;
+        do {
+            page = userRepository.findNotificationSlots(afterId, Limit.of(bootstrapPageSize));
+            synchronized (wheel) {
+                for (NotificationSlot slot : page) {
+                    if (!changedDuringLoad.contains(slot.userId())) {
+                        wheel.put(slot.userId(), NotificationWheel.minuteOf(slot.preferredHour()));
+                    }
+                }
+            }
+            loaded += page.size();
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).userId();
             }
+        } while (page.size() == bootstrapPageSize);
+        synchronized (wheel) {
+            changedDuringLoad = null;
         }
+
+        System.out.printf("Notification wheel loaded with %d users in %d ms%n",
+                loaded, (System.nanoTime() - start) / 1_000_000);
     }
 
+    // applied once the surrounding transaction commits, a rolled back change never reaches the wheel. The other
+    // nodes get it through the relay: the user's partition may be owned by any of them
     public void updateUserNotification(User user) {
-        ScheduledFuture<?> existing = scheduledTasks.get(user.getId());
-        if (existing != null) {
-            existing.cancel(false);
-        }
-        scheduleUserTask(user);
+        long userId = user.getId();
+        LocalTime hour = user.getPreferred_notification_hour();
+        afterCommit(() -> moveSlot(userId, hour == null ? -1 : NotificationWheel.minuteOf(hour)));
     }
 
-    private void scheduleUserTask(User user) {
-        String cronExp = String.format("0 %d %d * * *",
-                user.getPreferred_notification_hour().getMinute(),
-                user.getPreferred_notification_hour().getHour());
+    public void removeUserNotification(long userId) {
+        afterCommit(() -> moveSlot(userId, -1));
+    }
 
-        ScheduledFuture<?> future = taskScheduler.schedule(() ->
-                verifyAndSend(user.getId()), new CronTrigger(cronExp));
+    private void moveSlot(long userId, int minute) {
+        applySlot(userId, minute);
+        relay.publish(RelayMessage.NOTIFICATION_SLOT, String.valueOf(userId), minute < 0 ? "remove" : "put",
+                minute < 0 ? null : (long) minute);
+    }
 
-        if (future != null) {
-            scheduledTasks.put(user.getId(), future);
-            System.out.println("task scheduled for " + user.getEmail());
+    // -1 takes the user off the wheel
+    public void applySlot(long userId, int minute) {
+        synchronized (wheel) {
+            if (changedDuringLoad != null) {
+                changedDuringLoad.add(userId);
+            }
+            if (minute < 0) {
+                wheel.remove(userId);
+            } else {
+                wheel.put(userId, minute);
+            }
         }
     }
 
-    protected void verifyAndSend(Long userId) {
-        userRepository.findById(userId).ifPresent(user -> {
-            LocalDate expiringDay = LocalDate.now().plusDays(user.getNotification_day());
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 
-            List<Product> expiringProducts = user.getUserProductList().getProducts().stream()
-                    .filter(p -> p.getBestBefore() != null && p.getBestBefore().equals(expiringDay))
-                    .toList();
+    // "-" turns the tick off, benchmarks drive it themselves
+    @Scheduled(cron = "${notifications.tick-cron:0 * * * * *}")
+    public void tick() {
+        tick(clock.now());
+    }
+
+    synchronized void tick(LocalTime now) {
+        tick(LocalDateTime.of(clock.todayDate(), now));
+    }
 
-            if (!expiringProducts.isEmpty()) {
-                sendExpiringProductsEmail(user.getEmail(), expiringProducts, user.getNotification_day());
+    // also dispatches the minutes skipped when a tick ran late, at most one full turn of the wheel.
+    // Every node keeps the whole wheel, kept current through the relay, and only dispatches the users of the
+    // partitions it holds. A partition picks up after the last minute dispatched for it by any node, so minutes
+    // missed while it had no owner are replayed.
+    synchronized void tick(LocalDateTime now) {
+        long current = minuteOf(now);
+        if (lastTick == current) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        long fallback = lastTick < 0 ? current : lastTick + 1;
+        long earliest = current - NotificationWheel.MINUTES_PER_DAY + 1;
+        Map<Integer, Long> marks = partitions.dispatchMarks();
+        Map<Integer, Long> from = new HashMap<>();
+        long first = fallback;
+        for (Map.Entry<Integer, Long> mark : marks.entrySet()) {
+            long through = Math.max(mark.getValue(), scheduledThrough.getOrDefault(mark.getKey(), -1L));
+            long partitionFrom = through < 0 ? fallback : Math.max(through + 1, earliest);
+            from.put(mark.getKey(), partitionFrom);
+            first = Math.min(first, partitionFrom);
+        }
+        first = Math.max(first, earliest);
+
+        // replayed minutes may belong to yesterday, their alerts are keyed and queried for that day
+        Map<LocalDate, List<Long>> due = new TreeMap<>();
+        int selected = 0;
+        for (long minute = first; minute <= current; minute++) {
+            List<Long> day = null;
+            for (long userId : wheel.due((int) (minute % NotificationWheel.MINUTES_PER_DAY))) {
+                if (partitions.owns(userId) && minute >= from.getOrDefault(partitions.partitionOf(userId), fallback)) {
+                    if (day == null) {
+                        day = due.computeIfAbsent(LocalDate.ofEpochDay(minute / NotificationWheel.MINUTES_PER_DAY),
+                                d -> new ArrayList<>());
+                    }
+                    day.add(userId);
+                    selected++;
+                }
             }
-        });
+        }
+        lastTick = current;
+        marks.keySet().forEach(partition -> scheduledThrough.put(partition, current));
+        ticks.incrementAndGet();
+        selectedUsers.addAndGet(selected);
+        selectNanos.addAndGet(System.nanoTime() - start);
+
+        List<Runnable> work = new ArrayList<>();
+        AtomicInteger remaining = new AtomicInteger();
+        AtomicBoolean failed = new AtomicBoolean();
+        Set<Integer> dispatched = marks.keySet();
+        for (Map.Entry<LocalDate, List<Long>> day : due.entrySet()) {
+            List<Long> users = day.getValue();
+            for (int offset = 0; offset < users.size(); offset += queryChunkSize) {
+                List<Long> chunk = users.subList(offset, Math.min(offset + queryChunkSize, users.size()));
+                work.add(() -> {
+                    try {
+                        enqueueExpiring(chunk, day.getKey());
+                    } catch (RuntimeException e) {
+                        failed.set(true);
+                        throw e;
+                    } finally {
+                        chunksDone.incrementAndGet();
+                        // recorded once every chunk is queued; after a failure the next owner replays the minutes
+                        if (remaining.decrementAndGet() == 0 && !failed.get()) {
+                            partitions.markDispatched(dispatched, current);
+                        }
+                    }
+                });
+            }
+        }
+        if (work.isEmpty()) {
+            partitions.markDispatched(dispatched, current);
+            return;
+        }
+        remaining.set(work.size());
+        chunks.addAndGet(work.size());
+        work.forEach(taskScheduler::execute);
     }
 
-    private void sendExpiringProductsEmail(String email, List<Product> expiringProducts, int days) {
-        String html = emailTemplateService.render("mail/expiringProducts-email",
-                Map.of(
-                        "products", expiringProducts,
-                        "days", days,
-                        "frontendUrl", frontendUrl
-                )
-        );
+    // minutes since the epoch in local time, so minute % 1440 is the wheel slot and minute / 1440 the day
+    static long minuteOf(LocalDateTime time) {
+        return time.toLocalDate().toEpochDay() * NotificationWheel.MINUTES_PER_DAY
+                + NotificationWheel.minuteOf(time.toLocalTime());
+    }
 
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd MMM, yy", Locale.ENGLISH);
-        String formattedDate = LocalDate.now().format(formatter);
+    // one query per chunk of users instead of loading every user and list; rows arrive ordered by user.
+    // The alerts go to the sink in one call: the outbox, which sends and retries them, or a discarding sink in dry runs.
+    protected void enqueueExpiring(List<Long> userIds, LocalDate today) {
+        long start = System.nanoTime();
+        List<ExpiringProductRow> rows = userRepository.findExpiringProducts(userIds, today);
+        long queried = System.nanoTime();
+        List<OutboxEntry> entries = new ArrayList<>();
+        String subject = "Expiring Products Alert " + today.format(DateTimeFormatter.ofPattern("dd MMM, yy", Locale.ENGLISH));
+
+        int from = 0;
+        for (int i = 1; i <= rows.size(); i++) {
+            if (i < rows.size() && rows.get(i).userId() == rows.get(from).userId()) {
+                continue;
+            }
+
+            ExpiringProductRow first = rows.get(from);
+            List<Product> products = rows.subList(from, i).stream().map(ExpiringProductRow::product).toList();
+            try {
+                OutboxEntry entry = new OutboxEntry();
+                entry.setIdempotencyKey(NotificationOutbox.idempotencyKey("expiring", first.userId(), today));
+                entry.setUserId(first.userId());
+                entry.setEmail(first.email());
+                entry.setSubject(subject);
+                entry.setBody(emailTemplateService.renderExpiringProducts(products, first.notificationDay(), frontendUrl));
+                entries.add(entry);
+            } catch (RuntimeException e) {
+                System.err.println("Expiring products email to " + first.email() + " failed: " + e.getMessage());
+            }
+            from = i;
+        }
+
+        long rendered = System.nanoTime();
+        if (!entries.isEmpty()) {
+            sink.enqueue(entries);
+        }
+        long end = System.nanoTime();
+
+        queryNanos.addAndGet(queried - start);
+        renderNanos.addAndGet(rendered - queried);
+        sinkNanos.addAndGet(end - rendered);
+        queuedAlerts.addAndGet(entries.size());
+        if (dryRun) {
+            System.out.printf("Dry run: %d users, %d alerts, query %d ms, render %d ms%n", userIds.size(), entries.size(),
+                    (queried - start) / 1_000_000, (rendered - queried) / 1_000_000);
+        }
+    }
 
-        mailService.sendHtmlEmail(email, "Expiring Products Alert " + formattedDate, html);
+    public Timings timings() {
+        return new Timings(ticks.get(), selectedUsers.get(), chunks.get(), chunksDone.get(), queuedAlerts.get(),
+                selectNanos.get(), queryNanos.get(), renderNanos.get(), sinkNanos.get());
     }
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package zerowaste.backend.notification;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import zerowaste.backend.notification.outbox.OutboxEntry;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Dry run: the scheduler selects, queries and renders as usual, the alerts are only counted.
+@Component
+@ConditionalOnProperty(name = "notifications.dry-run", havingValue = "true")
+public class DiscardingAlertSink implements AlertSink {
+
+    public record Stats(long batches, long alerts, long bodyChars) {}
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong alerts = new AtomicLong();
+    private final AtomicLong bodyChars = new AtomicLong();
+
+    @Override
+    public int enqueue(List<OutboxEntry> entries) {
+        long chars = 0;
+        for (OutboxEntry entry : entries) {
+            chars += entry.getBody() == null ? 0 : entry.getBody().length();
+        }
+        batches.incrementAndGet();
+        alerts.addAndGet(entries.size());
+        bodyChars.addAndGet(chars);
+        return entries.size();
+    }
+
+    public Stats stats() {
+        return new Stats(batches.get(), alerts.get(), bodyChars.get());
+    }
+}
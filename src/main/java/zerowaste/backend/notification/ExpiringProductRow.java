@@ -0,0 +1,5 @@
+package zerowaste.backend.notification;
+
+import zerowaste.backend.product.models.Product;
+
+public record ExpiringProductRow(long userId, String email, int notificationDay, Product product) {}
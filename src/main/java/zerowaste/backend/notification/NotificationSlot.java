@@ -0,0 +1,5 @@
+package zerowaste.backend.notification;
+
+import java.time.LocalTime;
+
+public record NotificationSlot(long userId, LocalTime preferredHour) {}
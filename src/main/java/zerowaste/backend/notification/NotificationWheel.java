@@ -0,0 +1,186 @@
+package zerowaste.backend.notification;
+
+import java.time.LocalTime;
+import java.util.Arrays;
+
+// One bucket per minute of the day, each holding the ids of users notified at that minute.
+// Buckets and the user -> minute index are open addressing tables over primitive arrays, so a user costs a few
+// primitive slots instead of a CronTrigger and a ScheduledFuture. All methods are O(1) except due().
+public class NotificationWheel {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final LongIntMap[] buckets = new LongIntMap[MINUTES_PER_DAY];
+    private final LongIntMap users = new LongIntMap();
+
+    public static int minuteOf(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    public synchronized void put(long userId, int minute) {
+        int previous = users.put(userId, minute);
+        if (previous == minute) {
+            return;
+        }
+        if (previous >= 0) {
+            buckets[previous].remove(userId);
+        }
+        if (buckets[minute] == null) {
+            buckets[minute] = new LongIntMap();
+        }
+        buckets[minute].put(userId, 0);
+    }
+
+    public synchronized void remove(long userId) {
+        int previous = users.remove(userId);
+        if (previous >= 0) {
+            buckets[previous].remove(userId);
+        }
+    }
+
+    // returns -1 when the user has no notification time
+    public synchronized int minuteOf(long userId) {
+        return users.get(userId);
+    }
+
+    // a copy, dispatching must not hold the lock while users are moved around
+    public synchronized long[] due(int minute) {
+        LongIntMap bucket = buckets[minute];
+        return bucket == null ? new long[0] : bucket.keys();
+    }
+
+    public synchronized int size() {
+        return users.size;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(buckets, null);
+        users.clear();
+    }
+
+    // linear probing with backward shift deletion; key 0 marks a free slot, so it is stored aside
+    private static final class LongIntMap {
+
+        private long[] keys = new long[8];
+        private int[] values = new int[8];
+        private int size;
+        private boolean hasZero;
+        private int zeroValue;
+
+        int get(long key) {
+            if (key == 0) {
+                return hasZero ? zeroValue : -1;
+            }
+            int slot = find(key);
+            return keys[slot] == 0 ? -1 : values[slot];
+        }
+
+        // returns the previous value or -1
+        int put(long key, int value) {
+            if (key == 0) {
+                int previous = hasZero ? zeroValue : -1;
+                if (!hasZero) {
+                    size++;
+                }
+                hasZero = true;
+                zeroValue = value;
+                return previous;
+            }
+
+            int slot = find(key);
+            if (keys[slot] != 0) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+
+            keys[slot] = key;
+            values[slot] = value;
+            if (++size * 4 > keys.length * 3) {
+                resize(keys.length * 2);
+            }
+            return -1;
+        }
+
+        int remove(long key) {
+            if (key == 0) {
+                if (!hasZero) {
+                    return -1;
+                }
+                hasZero = false;
+                size--;
+                return zeroValue;
+            }
+
+            int slot = find(key);
+            if (keys[slot] == 0) {
+                return -1;
+            }
+            int previous = values[slot];
+            size--;
+
+            int mask = keys.length - 1;
+            int free = slot;
+            for (int next = (free + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+                int home = hash(keys[next]) & mask;
+                // move the entry back if its home slot is not between the free slot and its current slot
+                if (((next - home) & mask) >= ((next - free) & mask)) {
+                    keys[free] = keys[next];
+                    values[free] = values[next];
+                    free = next;
+                }
+            }
+            keys[free] = 0;
+            return previous;
+        }
+
+        long[] keys() {
+            long[] result = new long[size];
+            int i = 0;
+            if (hasZero) {
+                result[i++] = 0;
+            }
+            for (long key : keys) {
+                if (key != 0) {
+                    result[i++] = key;
+                }
+            }
+            return result;
+        }
+
+        void clear() {
+            keys = new long[8];
+            values = new int[8];
+            size = 0;
+            hasZero = false;
+        }
+
+        private int find(long key) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[capacity];
+            values = new int[capacity];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = find(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
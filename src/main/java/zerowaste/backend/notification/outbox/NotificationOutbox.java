@@ -0,0 +1,230 @@
+package zerowaste.backend.notification.outbox;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import zerowaste.backend.email.MailService;
+import zerowaste.backend.notification.AlertSink;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Alerts are written to notification_outbox before any mail leaves, so a restart or an SMTP outage delays them
+// instead of losing them. A poller claims due rows in batches, hands them to the mail dispatcher and writes the
+// outcomes back in bulk on its next run. Failures are retried with exponential backoff until max-attempts.
+// Delivery is at least once: a node dying between the SMTP accept and the status update resends after the lease.
+// Claims are conditional updates, so several nodes can drain the same table without sending a row twice.
+@Service
+@ConditionalOnProperty(name = "notifications.dry-run", havingValue = "false", matchIfMissing = true)
+public class NotificationOutbox implements AlertSink {
+
+    private static final List<OutboxEntry.Status> CLAIMABLE = List.of(OutboxEntry.Status.PENDING, OutboxEntry.Status.SENDING);
+
+    private record Result(long id, boolean sent, String error) {}
+
+    private final OutboxEntryRepository repository;
+    private final MailService mailService;
+
+    private final String node = UUID.randomUUID().toString();
+
+    @Value("${notifications.outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${notifications.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${notifications.outbox.backoff-base-ms:60000}")
+    private long backoffBaseMs;
+
+    @Value("${notifications.outbox.backoff-max-ms:3600000}")
+    private long backoffMaxMs;
+
+    // a claimed row is picked up again after this, longer than a message can wait in the mail queue
+    @Value("${notifications.outbox.lease-ms:600000}")
+    private long leaseMs;
+
+    @Value("${notifications.outbox.retention-days:7}")
+    private long retentionDays;
+
+    private final Queue<Result> results = new ConcurrentLinkedQueue<>();
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private long lastCleanup;
+
+    public NotificationOutbox(OutboxEntryRepository repository, MailService mailService) {
+        this.repository = repository;
+        this.mailService = mailService;
+    }
+
+    public static String idempotencyKey(String kind, long userId, Object day) {
+        return kind + ":" + userId + ":" + day;
+    }
+
+    // returns how many entries were new, keys already in the table are skipped
+    @Override
+    public int enqueue(List<OutboxEntry> entries) {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+
+        Set<String> existing = new HashSet<>(repository.findExistingKeys(
+                entries.stream().map(OutboxEntry::getIdempotencyKey).toList()));
+        Instant now = Instant.now();
+        List<OutboxEntry> fresh = new ArrayList<>(entries.size());
+        for (OutboxEntry entry : entries) {
+            if (existing.add(entry.getIdempotencyKey())) {
+                entry.setStatus(OutboxEntry.Status.PENDING);
+                entry.setCreatedAt(now);
+                entry.setNextAttemptAt(now);
+                fresh.add(entry);
+            }
+        }
+        if (fresh.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            repository.saveAll(fresh);
+            return fresh.size();
+        } catch (DataIntegrityViolationException e) {
+            // another run inserted some of the keys since the lookup, keep the rest one by one
+            int added = 0;
+            for (OutboxEntry entry : fresh) {
+                try {
+                    // a copy, the failed batch may have left an id on the original
+                    repository.save(copyOf(entry));
+                    added++;
+                } catch (DataIntegrityViolationException duplicate) {
+                    System.out.println("Outbox entry " + entry.getIdempotencyKey() + " already queued");
+                }
+            }
+            return added;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.outbox.poll-ms:1000}")
+    public synchronized void drain() {
+        try {
+            flushResults();
+            claimAndSend();
+            cleanup();
+        } catch (RuntimeException e) {
+            System.err.println("Notification outbox drain failed: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        try {
+            flushResults();
+        } catch (RuntimeException e) {
+            System.err.println("Could not write back " + results.size() + " outbox results: " + e.getMessage());
+        }
+    }
+
+    private void claimAndSend() {
+        Instant now = Instant.now();
+        List<Long> due = repository.findDue(CLAIMABLE, now, Limit.of(batchSize)).stream()
+                .map(OutboxEntry::getId)
+                .filter(id -> !inFlight.contains(id))
+                .toList();
+        if (due.isEmpty()) {
+            return;
+        }
+
+        // millisecond precision, the lease end is read back as the claim marker
+        Instant leaseUntil = now.plusMillis(leaseMs).truncatedTo(ChronoUnit.MILLIS);
+        if (repository.claim(due, CLAIMABLE, OutboxEntry.Status.SENDING, node, now, leaseUntil) == 0) {
+            return;
+        }
+        for (OutboxEntry entry : repository.findClaimed(node, OutboxEntry.Status.SENDING, leaseUntil)) {
+            long id = entry.getId();
+            inFlight.add(id);
+            try {
+                mailService.queueHtmlEmail(entry.getEmail(), entry.getSubject(), entry.getBody(),
+                        (sent, error) -> results.add(new Result(id, sent, error)));
+            } catch (RuntimeException e) {
+                results.add(new Result(id, false, e.getMessage()));
+            }
+        }
+    }
+
+    // one update for every sent entry, failed ones are loaded and saved together with their next attempt
+    private void flushResults() {
+        List<Long> sent = new ArrayList<>();
+        Map<Long, String> failed = new HashMap<>();
+        Result result;
+        while ((result = results.poll()) != null) {
+            if (result.sent()) {
+                sent.add(result.id());
+            } else {
+                failed.put(result.id(), result.error() == null ? "unknown error" : result.error());
+            }
+        }
+
+        Instant now = Instant.now();
+        if (!sent.isEmpty()) {
+            repository.markSent(sent, OutboxEntry.Status.SENT, now);
+        }
+        if (!failed.isEmpty()) {
+            List<OutboxEntry> entries = repository.findAllById(failed.keySet());
+            for (OutboxEntry entry : entries) {
+                int attempts = entry.getAttempts() + 1;
+                String error = failed.get(entry.getId());
+                entry.setAttempts(attempts);
+                entry.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+                if (attempts >= maxAttempts) {
+                    entry.setStatus(OutboxEntry.Status.FAILED);
+                    System.err.println("Giving up on " + entry.getIdempotencyKey() + " after " + attempts + " attempts: " + error);
+                } else {
+                    entry.setStatus(OutboxEntry.Status.PENDING);
+                    entry.setNextAttemptAt(now.plus(backoff(attempts, backoffBaseMs, backoffMaxMs)));
+                }
+            }
+            repository.saveAll(entries);
+        }
+        inFlight.removeAll(sent);
+        inFlight.removeAll(failed.keySet());
+    }
+
+    private static OutboxEntry copyOf(OutboxEntry entry) {
+        OutboxEntry copy = new OutboxEntry();
+        copy.setIdempotencyKey(entry.getIdempotencyKey());
+        copy.setUserId(entry.getUserId());
+        copy.setEmail(entry.getEmail());
+        copy.setSubject(entry.getSubject());
+        copy.setBody(entry.getBody());
+        copy.setStatus(entry.getStatus());
+        copy.setCreatedAt(entry.getCreatedAt());
+        copy.setNextAttemptAt(entry.getNextAttemptAt());
+        return copy;
+    }
+
+    private void cleanup() {
+        long now = System.currentTimeMillis();
+        if (now - lastCleanup > Duration.ofHours(1).toMillis()) {
+            lastCleanup = now;
+            repository.deleteSentBefore(OutboxEntry.Status.SENT, Instant.now().minus(Duration.ofDays(retentionDays)));
+        }
+    }
+
+    // base, 2 * base, 4 * base ... capped at max
+    static Duration backoff(int attempts, long baseMs, long maxMs) {
+        int shift = Math.min(Math.max(attempts - 1, 0), 30);
+        return Duration.ofMillis(Math.min(maxMs, baseMs << shift));
+    }
+}
@@ -0,0 +1,147 @@
+package zerowaste.backend.notification.outbox;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "notification_outbox", indexes = @Index(columnList = "status, next_attempt_at"))
+public class OutboxEntry {
+
+    public enum Status { PENDING, SENDING, SENT, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    // one alert per user and day, a second insert for the same key is ignored
+    @Column(nullable = false, unique = true)
+    private String idempotency_key;
+
+    private long user_id;
+
+    private String email;
+
+    private String subject;
+
+    @Column(columnDefinition = "text")
+    private String body;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.PENDING;
+
+    private int attempts;
+
+    // node holding the current claim, see OutboxEntryRepository.claim
+    private String claimed_by;
+
+    private Instant next_attempt_at;
+
+    @Column(length = 1000)
+    private String last_error;
+
+    private Instant created_at;
+
+    private Instant sent_at;
+
+    public long getId() {
+        return id;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotency_key;
+    }
+
+    public void setIdempotencyKey(String idempotency_key) {
+        this.idempotency_key = idempotency_key;
+    }
+
+    public long getUserId() {
+        return user_id;
+    }
+
+    public void setUserId(long user_id) {
+        this.user_id = user_id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getClaimedBy() {
+        return claimed_by;
+    }
+
+    public void setClaimedBy(String claimed_by) {
+        this.claimed_by = claimed_by;
+    }
+
+    public Instant getNextAttemptAt() {
+        return next_attempt_at;
+    }
+
+    public void setNextAttemptAt(Instant next_attempt_at) {
+        this.next_attempt_at = next_attempt_at;
+    }
+
+    public String getLastError() {
+        return last_error;
+    }
+
+    public void setLastError(String last_error) {
+        this.last_error = last_error;
+    }
+
+    public Instant getCreatedAt() {
+        return created_at;
+    }
+
+    public void setCreatedAt(Instant created_at) {
+        this.created_at = created_at;
+    }
+
+    public Instant getSentAt() {
+        return sent_at;
+    }
+
+    public void setSentAt(Instant sent_at) {
+        this.sent_at = sent_at;
+    }
+}
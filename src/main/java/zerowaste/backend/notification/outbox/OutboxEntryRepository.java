@@ -0,0 +1,52 @@
+package zerowaste.backend.notification.outbox;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxEntryRepository extends JpaRepository<OutboxEntry, Long> {
+
+    @Query("select e.idempotency_key from OutboxEntry e where e.idempotency_key in :keys")
+    List<String> findExistingKeys(@Param("keys") Collection<String> keys);
+
+    @Query("select e from OutboxEntry e where e.status in :statuses and e.next_attempt_at <= :now order by e.next_attempt_at")
+    List<OutboxEntry> findDue(@Param("statuses") Collection<OutboxEntry.Status> statuses, @Param("now") Instant now,
+                              Limit limit);
+
+    // only rows still due are taken, so when nodes race for the same rows each row goes to exactly one of them
+    @Modifying
+    @Transactional
+    @Query("""
+            update OutboxEntry e set e.status = :status, e.claimed_by = :node, e.next_attempt_at = :leaseUntil
+            where e.id in :ids and e.status in :claimable and e.next_attempt_at <= :now
+            """)
+    int claim(@Param("ids") Collection<Long> ids, @Param("claimable") Collection<OutboxEntry.Status> claimable,
+              @Param("status") OutboxEntry.Status status, @Param("node") String node, @Param("now") Instant now,
+              @Param("leaseUntil") Instant leaseUntil);
+
+    @Query("select e from OutboxEntry e where e.claimed_by = :node and e.status = :status and e.next_attempt_at = :leaseUntil")
+    List<OutboxEntry> findClaimed(@Param("node") String node, @Param("status") OutboxEntry.Status status,
+                                  @Param("leaseUntil") Instant leaseUntil);
+
+    @Modifying
+    @Transactional
+    @Query("""
+            update OutboxEntry e
+            set e.status = :status, e.sent_at = :sentAt, e.attempts = e.attempts + 1, e.last_error = null
+            where e.id in :ids
+            """)
+    int markSent(@Param("ids") Collection<Long> ids, @Param("status") OutboxEntry.Status status,
+                 @Param("sentAt") Instant sentAt);
+
+    @Modifying
+    @Transactional
+    @Query("delete from OutboxEntry e where e.status = :status and e.sent_at < :before")
+    int deleteSentBefore(@Param("status") OutboxEntry.Status status, @Param("before") Instant before);
+}
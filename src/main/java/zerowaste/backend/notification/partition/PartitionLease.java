@@ -0,0 +1,67 @@
+package zerowaste.backend.notification.partition;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "notification_partition")
+public class PartitionLease {
+
+    @Id
+    private int partition_no;
+
+    private String owner;
+
+    private Instant lease_until;
+
+    // set by an owner holding more than its share, any node below its share may take the partition over
+    private boolean releasing;
+
+    // last minute whose alerts went out for this partition, as epoch day * 1440 + minute of day in the server zone.
+    // Whoever takes the partition over dispatches the minutes after it, so a handover gap loses nobody
+    private Long dispatched_through;
+
+    public PartitionLease() {
+    }
+
+    public PartitionLease(int partition) {
+        this.partition_no = partition;
+    }
+
+    public int getPartition() {
+        return partition_no;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public Instant getLeaseUntil() {
+        return lease_until;
+    }
+
+    public void setLeaseUntil(Instant lease_until) {
+        this.lease_until = lease_until;
+    }
+
+    public boolean isReleasing() {
+        return releasing;
+    }
+
+    public void setReleasing(boolean releasing) {
+        this.releasing = releasing;
+    }
+
+    public Long getDispatchedThrough() {
+        return dispatched_through;
+    }
+
+    public void setDispatchedThrough(Long dispatched_through) {
+        this.dispatched_through = dispatched_through;
+    }
+}
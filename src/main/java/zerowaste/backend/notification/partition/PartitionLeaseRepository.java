@@ -0,0 +1,49 @@
+package zerowaste.backend.notification.partition;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+
+public interface PartitionLeaseRepository extends JpaRepository<PartitionLease, Integer> {
+
+    @Modifying
+    @Transactional
+    @Query("update PartitionLease p set p.lease_until = :until where p.owner = :node")
+    int renew(@Param("node") String node, @Param("until") Instant until);
+
+    // wins only if the partition is free, expired or being handed over, so two nodes never both get it
+    @Modifying
+    @Transactional
+    @Query("""
+            update PartitionLease p set p.owner = :node, p.lease_until = :until, p.releasing = false
+            where p.partition_no = :partition
+              and (p.owner is null or p.lease_until < :now or p.releasing = true)
+            """)
+    int claim(@Param("partition") int partition, @Param("node") String node, @Param("now") Instant now,
+              @Param("until") Instant until);
+
+    @Modifying
+    @Transactional
+    @Query("update PartitionLease p set p.releasing = :releasing where p.owner = :node and p.partition_no in :partitions")
+    int markReleasing(@Param("node") String node, @Param("partitions") Collection<Integer> partitions,
+                      @Param("releasing") boolean releasing);
+
+    @Modifying
+    @Transactional
+    @Query("update PartitionLease p set p.owner = null, p.lease_until = null, p.releasing = false where p.owner = :node")
+    int releaseAll(@Param("node") String node);
+
+    // only moves forward, a node finishing an older minute late must not pull it back
+    @Modifying
+    @Transactional
+    @Query("""
+            update PartitionLease p set p.dispatched_through = :minute
+            where p.partition_no in :partitions and (p.dispatched_through is null or p.dispatched_through < :minute)
+            """)
+    int markDispatched(@Param("partitions") Collection<Integer> partitions, @Param("minute") long minute);
+}
@@ -0,0 +1,207 @@
+package zerowaste.backend.notification.partition;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// Splits users over the running nodes: a user id hashes to one of notifications.partitions.count partitions and
+// only the node holding that partition's lease schedules the user. Nodes heartbeat into notification_node, each
+// aims for ceil(partitions / live nodes) leases, marks the rest as releasing and takes free, expired or released
+// partitions when it is below its share. A node that stops renewing loses its partitions after lease-ms.
+// Ownership may overlap for one heartbeat while a partition changes hands; the outbox idempotency key absorbs that.
+// It may also lapse, after a crash or between a release and the next claim; each partition records the last minute
+// dispatched for it, and the next owner dispatches everything after that.
+@Component
+public class PartitionManager {
+
+    private final PartitionLeaseRepository leaseRepository;
+    private final PartitionNodeRepository nodeRepository;
+
+    private final String node = UUID.randomUUID().toString();
+
+    @Value("${notifications.partitions.count:64}")
+    private int partitionCount;
+
+    @Value("${notifications.partitions.lease-ms:30000}")
+    private long leaseMs;
+
+    private volatile boolean[] owned = new boolean[0];
+    // owned partitions are trusted for half a lease after a heartbeat, so a node cut off from the database stops
+    // before its leases expire; heartbeat-ms has to stay below lease-ms / 2
+    private volatile long ownedUntilMillis;
+
+    public PartitionManager(PartitionLeaseRepository leaseRepository, PartitionNodeRepository nodeRepository) {
+        this.leaseRepository = leaseRepository;
+        this.nodeRepository = nodeRepository;
+    }
+
+    @PostConstruct
+    public void start() {
+        Set<Integer> existing = new HashSet<>();
+        leaseRepository.findAll().forEach(lease -> existing.add(lease.getPartition()));
+        List<PartitionLease> missing = new ArrayList<>();
+        for (int partition = 0; partition < partitionCount; partition++) {
+            if (!existing.contains(partition)) {
+                missing.add(new PartitionLease(partition));
+            }
+        }
+        if (!missing.isEmpty()) {
+            try {
+                leaseRepository.saveAll(missing);
+            } catch (DataAccessException e) {
+                System.out.println("Notification partitions created by another node");
+            }
+        }
+        rebalance();
+    }
+
+    @PreDestroy
+    public void stop() {
+        owned = new boolean[0];
+        try {
+            leaseRepository.releaseAll(node);
+            nodeRepository.deleteById(node);
+        } catch (DataAccessException e) {
+            System.err.println("Could not release notification partitions: " + e.getMessage());
+        }
+    }
+
+    public static int partitionOf(long userId, int partitionCount) {
+        long h = userId * 0x9E3779B97F4A7C15L;
+        return Math.floorMod((int) (h ^ (h >>> 32)), partitionCount);
+    }
+
+    public boolean owns(long userId) {
+        boolean[] current = owned;
+        return System.currentTimeMillis() < ownedUntilMillis
+                && current.length == partitionCount && current[partitionOf(userId, partitionCount)];
+    }
+
+    public int partitionOf(long userId) {
+        return partitionOf(userId, partitionCount);
+    }
+
+    // the partitions this node holds, each with the last minute dispatched for it by any node, -1 if none is
+    // recorded or the database cannot be read; empty while ownership is not trusted
+    public Map<Integer, Long> dispatchMarks() {
+        List<Integer> mine = ownedPartitions();
+        if (mine.isEmpty() || System.currentTimeMillis() >= ownedUntilMillis) {
+            return Map.of();
+        }
+        Map<Integer, Long> marks = new HashMap<>();
+        mine.forEach(partition -> marks.put(partition, -1L));
+        try {
+            for (PartitionLease lease : leaseRepository.findAllById(mine)) {
+                if (lease.getDispatchedThrough() != null) {
+                    marks.put(lease.getPartition(), lease.getDispatchedThrough());
+                }
+            }
+        } catch (DataAccessException e) {
+            System.err.println("Could not read notification dispatch marks: " + e.getMessage());
+        }
+        return marks;
+    }
+
+    public void markDispatched(Collection<Integer> partitions, long minute) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        try {
+            leaseRepository.markDispatched(partitions, minute);
+        } catch (DataAccessException e) {
+            System.err.println("Could not record dispatched minute " + minute + ": " + e.getMessage());
+        }
+    }
+
+    public String node() {
+        return node;
+    }
+
+    public List<Integer> ownedPartitions() {
+        boolean[] current = owned;
+        List<Integer> partitions = new ArrayList<>();
+        for (int partition = 0; partition < current.length; partition++) {
+            if (current[partition]) {
+                partitions.add(partition);
+            }
+        }
+        return partitions;
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.partitions.heartbeat-ms:10000}")
+    public synchronized void rebalance() {
+        try {
+            Instant now = Instant.now();
+            Instant until = now.plusMillis(leaseMs);
+            nodeRepository.save(new PartitionNode(node, now));
+            leaseRepository.renew(node, until);
+
+            long alive = Math.max(1, nodeRepository.countAlive(now.minusMillis(leaseMs)));
+            int share = (int) ((partitionCount + alive - 1) / alive);
+
+            List<Integer> mine = new ArrayList<>();
+            List<Integer> free = new ArrayList<>();
+            List<Integer> released = new ArrayList<>();
+            for (PartitionLease lease : leaseRepository.findAll()) {
+                if (lease.getPartition() >= partitionCount) {
+                    continue;
+                }
+                boolean expired = lease.getOwner() == null || lease.getLeaseUntil() == null || lease.getLeaseUntil().isBefore(now);
+                if (node.equals(lease.getOwner()) && !expired) {
+                    mine.add(lease.getPartition());
+                } else if (expired) {
+                    free.add(lease.getPartition());
+                } else if (lease.isReleasing()) {
+                    released.add(lease.getPartition());
+                }
+            }
+
+            mine.sort(null);
+            if (mine.size() > share) {
+                // hand the surplus over but keep scheduling it until someone has taken it
+                leaseRepository.markReleasing(node, mine.subList(share, mine.size()), true);
+            } else {
+                if (!mine.isEmpty()) {
+                    leaseRepository.markReleasing(node, mine, false);
+                }
+                free.addAll(released);
+                for (int i = 0; i < free.size() && mine.size() < share; i++) {
+                    if (leaseRepository.claim(free.get(i), node, now, until) == 1) {
+                        mine.add(free.get(i));
+                    }
+                }
+            }
+
+            apply(mine, now.plusMillis(leaseMs / 2));
+            nodeRepository.deleteSilentSince(now.minus(Duration.ofMillis(leaseMs * 10)));
+        } catch (DataAccessException e) {
+            System.err.println("Notification partition rebalance failed: " + e.getMessage());
+        }
+    }
+
+    private void apply(List<Integer> partitions, Instant trustedUntil) {
+        boolean[] next = new boolean[partitionCount];
+        partitions.forEach(partition -> next[partition] = true);
+        if (!Arrays.equals(next, owned)) {
+            System.out.println("Node " + node + " schedules " + partitions.size() + "/" + partitionCount
+                    + " notification partitions");
+        }
+        owned = next;
+        ownedUntilMillis = trustedUntil.toEpochMilli();
+    }
+}
@@ -0,0 +1,35 @@
+package zerowaste.backend.notification.partition;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "notification_node")
+public class PartitionNode {
+
+    @Id
+    private String node;
+
+    private Instant heartbeat_at;
+
+    public PartitionNode() {
+    }
+
+    public PartitionNode(String node, Instant heartbeat_at) {
+        this.node = node;
+        this.heartbeat_at = heartbeat_at;
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    public Instant getHeartbeatAt() {
+        return heartbeat_at;
+    }
+
+    public void setHeartbeatAt(Instant heartbeat_at) {
+        this.heartbeat_at = heartbeat_at;
+    }
+}
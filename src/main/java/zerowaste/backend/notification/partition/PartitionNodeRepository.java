@@ -0,0 +1,20 @@
+package zerowaste.backend.notification.partition;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+public interface PartitionNodeRepository extends JpaRepository<PartitionNode, String> {
+
+    @Query("select count(n) from PartitionNode n where n.heartbeat_at >= :since")
+    long countAlive(@Param("since") Instant since);
+
+    @Modifying
+    @Transactional
+    @Query("delete from PartitionNode n where n.heartbeat_at < :before")
+    int deleteSilentSince(@Param("before") Instant before);
+}
@@ -73,7 +73,7 @@ public class ProductsController {
     private UserProductListDto mapToDto(UserProductList list) {
         List<ProductDto> productDtos = list.getProducts()
                 .stream()
-                .map(this::mapProductToDto)
+                .map(ProductDto::from)
                 .toList();
 
         return new UserProductListDto(
@@ -82,14 +82,4 @@ public class ProductsController {
                 productDtos
         );
     }
-
-    private ProductDto mapProductToDto(Product p) {
-        return new ProductDto(
-                p.getId(),
-                p.getName(),
-                p.getBestBefore(),
-                p.getOpened(),
-                p.getConsumptionDays()
-        );
-    }
 }
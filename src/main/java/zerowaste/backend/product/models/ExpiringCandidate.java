@@ -0,0 +1,6 @@
+package zerowaste.backend.product.models;
+
+import java.time.LocalDate;
+
+public record ExpiringCandidate(String shareCode, long productId, LocalDate bestBefore, LocalDate opened,
+                                Integer consumptionDays) {}
@@ -1,8 +1,10 @@
 package zerowaste.backend.product.models;
 
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.PositiveOrZero;
+import zerowaste.backend.config.AppClock;
 
 import java.time.LocalDate;
 
@@ -10,6 +12,8 @@ import java.time.LocalDate;
 @Table(name="products")
 public class Product {
 
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
@@ -64,27 +68,39 @@ public class Product {
         this.opened = opened;
     }
 
+    // part of the product JSON the REST endpoints return
+    @JsonProperty("expiringSoon")
     public boolean isExpiringSoon(){
+        return isExpiringSoon(AppClock.current().today());
+    }
+
+    // today as an epoch day, see AppClock
+    public boolean isExpiringSoon(int today){
+        return expiresSoon(epochDay(best_before), epochDay(opened), consumption_days == null ? 0 : consumption_days, today);
+    }
 
-        LocalDate expDay = null;
+    // expiry is the earlier of best before and opened + consumption days, soon means within the next three days;
+    // all days are epoch days, NO_DATE for a missing one
+    public static boolean expiresSoon(int bestBefore, int opened, int consumptionDays, int today){
 
-        if(this.getBestBefore() != null) expDay = this.getBestBefore();
+        int expDay = bestBefore;
 
-        if(this.getOpened() != null && this.getConsumptionDays() != 0){
-            LocalDate openedExp = this.getOpened().plusDays(this.getConsumptionDays());
+        if(opened != NO_DATE && consumptionDays != 0){
+            int openedExp = opened + consumptionDays;
 
-            expDay = (expDay == null || expDay.isAfter(openedExp))
+            expDay = (expDay == NO_DATE || expDay > openedExp)
                     ? openedExp
                     : expDay;
-
-
         }
 
-        if(expDay == null){
+        if(expDay == NO_DATE){
             return false;
         }
 
-        return expDay.isBefore(LocalDate.now().plusDays(4)) &&
-                expDay.isAfter(LocalDate.now().minusDays(1));
+        return expDay >= today && expDay <= today + 3;
+    }
+
+    public static int epochDay(LocalDate date){
+        return date == null ? NO_DATE : (int) date.toEpochDay();
     }
 }
@@ -1,6 +1,8 @@
 package zerowaste.backend.product.models;
 
 
+import zerowaste.backend.config.AppClock;
+
 import java.time.LocalDate;
 
 public record ProductDto(
@@ -8,5 +10,17 @@ public record ProductDto(
         String name,
         LocalDate bestBefore,
         LocalDate opened,
-        Integer consumptionDays
-) {}
+        Integer consumptionDays,
+        boolean expiringSoon
+) {
+    public static ProductDto from(Product p) {
+        return new ProductDto(
+                p.getId(),
+                p.getName(),
+                p.getBestBefore(),
+                p.getOpened(),
+                p.getConsumptionDays(),
+                p.isExpiringSoon(AppClock.current().today())
+        );
+    }
+}
@@ -1,12 +1,25 @@
 package zerowaste.backend.product.repos;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import zerowaste.backend.product.models.ExpiringCandidate;
 import zerowaste.backend.product.models.UserProductList;
 import zerowaste.backend.user.User;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserProductListRepository extends JpaRepository<UserProductList, Long> {
     Optional<UserProductList> findByShareCode(String shareCode);
     boolean existsByShareCode(String shareCode);
+
+    // every product that can be expiring soon: best before inside the window, or opened with a consumption period
+    @Query("""
+            select new zerowaste.backend.product.models.ExpiringCandidate(l.shareCode, p.id, p.best_before, p.opened, p.consumption_days)
+            from UserProductList l join l.products p
+            where p.best_before between :from and :to or (p.opened is not null and p.consumption_days > 0)
+            """)
+    List<ExpiringCandidate> findExpiringCandidates(@Param("from") LocalDate from, @Param("to") LocalDate to);
 }
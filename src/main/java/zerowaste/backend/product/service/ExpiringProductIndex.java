@@ -0,0 +1,141 @@
+package zerowaste.backend.product.service;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import zerowaste.backend.config.AppClock;
+import zerowaste.backend.product.models.ExpiringCandidate;
+import zerowaste.backend.product.models.Product;
+import zerowaste.backend.product.models.ProductDto;
+import zerowaste.backend.product.models.UserProductList;
+import zerowaste.backend.product.repos.UserProductListRepository;
+import zerowaste.backend.webSocket.ProductListWsEvent;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Ids of the products expiring soon, per share code. The answer only moves at midnight or when a product is
+// written, so the whole set is rebuilt once a day in one query and patched after every committed product change,
+// local or relayed from another node. Until a rebuild for today has finished readers get null and evaluate
+// Product.isExpiringSoon themselves.
+@Component
+public class ExpiringProductIndex {
+
+    private record Snapshot(int day, Map<String, Set<Long>> ids) {}
+
+    private record Patch(String shareCode, long productId, boolean expiring) {}
+
+    private final UserProductListRepository listRepository;
+    private final AppClock clock;
+
+    private volatile Snapshot snapshot = new Snapshot(Product.NO_DATE, new ConcurrentHashMap<>());
+    // patches arriving while a rebuild queries, replayed onto the new snapshot; null when no rebuild runs
+    private List<Patch> pending;
+
+    public ExpiringProductIndex(UserProductListRepository listRepository, AppClock clock) {
+        this.listRepository = listRepository;
+        this.clock = clock;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${products.expiring-index.rebuild-cron:0 0 0 * * *}")
+    public void rebuild() {
+        int today = clock.today();
+        synchronized (this) {
+            pending = new ArrayList<>();
+        }
+
+        Map<String, Set<Long>> ids = new ConcurrentHashMap<>();
+        int count = 0;
+        try {
+            for (ExpiringCandidate candidate : listRepository.findExpiringCandidates(LocalDate.ofEpochDay(today), LocalDate.ofEpochDay(today + 3))) {
+                int days = candidate.consumptionDays() == null ? 0 : candidate.consumptionDays();
+                if (Product.expiresSoon(Product.epochDay(candidate.bestBefore()), Product.epochDay(candidate.opened()), days, today)) {
+                    ids.computeIfAbsent(candidate.shareCode(), k -> ConcurrentHashMap.newKeySet()).add(candidate.productId());
+                    count++;
+                }
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pending = null;
+            }
+            System.err.println("Expiring products index rebuild failed: " + e.getMessage());
+            return;
+        }
+
+        synchronized (this) {
+            for (Patch patch : pending) {
+                apply(ids, patch);
+            }
+            pending = null;
+            snapshot = new Snapshot(today, ids);
+        }
+        System.out.println("Expiring products index for " + LocalDate.ofEpochDay(today) + ": " + count + " products in " + ids.size() + " lists");
+    }
+
+    // null when the index is not built for today yet
+    public Set<Long> expiringIds(String shareCode) {
+        Snapshot current = snapshot;
+        if (current.day() != clock.today()) {
+            return null;
+        }
+        return current.ids().getOrDefault(shareCode, Set.of());
+    }
+
+    public List<String> expiringNames(UserProductList list) {
+        Set<Long> ids = expiringIds(list.getShare_code());
+        if (ids == null) {
+            int today = clock.today();
+            return list.getProducts().stream().filter(p -> p.isExpiringSoon(today)).map(Product::getName).toList();
+        }
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return list.getProducts().stream().filter(p -> ids.contains(p.getId())).map(Product::getName).toList();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onProductListChanged(ProductListWsEvent event) {
+        apply(event.shareCode(), event.type(), event.payload());
+    }
+
+    // same (type, payload) pairs as the product list socket messages
+    public void apply(String shareCode, String type, Object payload) {
+        if (shareCode == null) {
+            return;
+        }
+        if (payload instanceof ProductDto product) {
+            int days = product.consumptionDays() == null ? 0 : product.consumptionDays();
+            patch(new Patch(shareCode, product.id(),
+                    Product.expiresSoon(Product.epochDay(product.bestBefore()), Product.epochDay(product.opened()), days,
+                            clock.today())));
+        } else if ("delete_product".equals(type) && payload instanceof Number id) {
+            patch(new Patch(shareCode, id.longValue(), false));
+        }
+    }
+
+    private synchronized void patch(Patch patch) {
+        apply(snapshot.ids(), patch);
+        if (pending != null) {
+            pending.add(patch);
+        }
+    }
+
+    private static void apply(Map<String, Set<Long>> ids, Patch patch) {
+        if (patch.expiring()) {
+            ids.computeIfAbsent(patch.shareCode(), k -> ConcurrentHashMap.newKeySet()).add(patch.productId());
+        } else {
+            Set<Long> set = ids.get(patch.shareCode());
+            if (set != null) {
+                set.remove(patch.productId());
+            }
+        }
+    }
+}
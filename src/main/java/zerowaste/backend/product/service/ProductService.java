@@ -5,10 +5,12 @@ import jakarta.persistence.EntityNotFoundException;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import zerowaste.backend.config.AppClock;
 import zerowaste.backend.exception.classes.ConstraintException;
 import zerowaste.backend.product.controller.requests.AddProductRequest;
 import zerowaste.backend.product.controller.requests.UpdateProductRequest;
 import zerowaste.backend.product.models.Product;
+import zerowaste.backend.product.models.ProductDto;
 import zerowaste.backend.product.models.UserProductList;
 import zerowaste.backend.product.repos.ProductRepository;
 import zerowaste.backend.product.repos.UserProductListRepository;
@@ -17,7 +19,6 @@ import zerowaste.backend.user.User;
 import zerowaste.backend.user.UserRepository;
 import zerowaste.backend.webSocket.ProductListWsEvent;
 
-import java.time.LocalDate;
 import java.util.List;
 
 @Service
@@ -26,12 +27,14 @@ public class ProductService {
     private final ProductRepository productRepository;
     private final UserProductListRepository userProductListRepository;
     private final ApplicationEventPublisher applicationEventPublisher;
+    private final AppClock clock;
 
-    public ProductService(UserRepository userRepository, ProductRepository productRepository, UserProductListRepository userProductListRepository, ApplicationEventPublisher applicationEventPublisher ) {
+    public ProductService(UserRepository userRepository, ProductRepository productRepository, UserProductListRepository userProductListRepository, ApplicationEventPublisher applicationEventPublisher, AppClock clock) {
         this.userRepository = userRepository;
         this.productRepository = productRepository;
         this.userProductListRepository = userProductListRepository;
         this.applicationEventPublisher = applicationEventPublisher;
+        this.clock = clock;
     }
 
     @Transactional
@@ -43,7 +46,7 @@ public class ProductService {
             throw new EntityNotFoundException("User has no product list");
         }
 
-        if (req.opened() != null && req.opened().isAfter(LocalDate.now())){
+        if (req.opened() != null && req.opened().toEpochDay() > clock.today()){
             throw new ConstraintException("Opened date can`t be in the future!");
         }
 
@@ -62,7 +65,7 @@ public class ProductService {
 
         userProductListRepository.save(list);
 
-        applicationEventPublisher.publishEvent(new ProductListWsEvent( list.getShare_code(), "add_product", saved));
+        applicationEventPublisher.publishEvent(new ProductListWsEvent( list.getShare_code(), "add_product", ProductDto.from(saved)));
 
         return saved;
     }
@@ -76,7 +79,7 @@ public class ProductService {
         Product p = productRepository.findById(req.id())
                 .orElseThrow(() -> new EntityNotFoundException("Product not found: " + req.id()));
 
-        if (req.opened() != null && req.opened().isAfter(LocalDate.now())){
+        if (req.opened() != null && req.opened().toEpochDay() > clock.today()){
             throw new ConstraintException("Opened date can`t be in the future!");
         }
 
@@ -87,7 +90,7 @@ public class ProductService {
 
         Product updated = productRepository.save(p);
 
-        applicationEventPublisher.publishEvent(new ProductListWsEvent( list.getShare_code(), "update_product", updated));
+        applicationEventPublisher.publishEvent(new ProductListWsEvent( list.getShare_code(), "update_product", ProductDto.from(updated)));
 
         return updated;
     }
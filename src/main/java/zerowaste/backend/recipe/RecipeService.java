@@ -3,19 +3,26 @@ package zerowaste.backend.recipe;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Limit;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
-import zerowaste.backend.product.models.Product;
+import zerowaste.backend.product.service.ExpiringProductIndex;
 import zerowaste.backend.recipe.models.Recipe;
 import zerowaste.backend.recipe.models.RecipeDto;
 import zerowaste.backend.recipe.models.UserRecipe;
+import zerowaste.backend.recipe.ranking.RecipeRanking;
+import zerowaste.backend.recipe.ranking.RecipeSimilarity;
 import zerowaste.backend.recipe.repos.RecipeRepository;
 import zerowaste.backend.recipe.repos.UserRecipeRepository;
+import zerowaste.backend.recipe.traits.RecipeTraits;
+import zerowaste.backend.recipe.traits.RecipeTraitsIndex;
 import zerowaste.backend.security.AppUserDetails;
 import zerowaste.backend.user.User;
 import zerowaste.backend.user.UserRepository;
 import zerowaste.backend.user.properties.Allergy;
 import zerowaste.backend.user.properties.Preference;
+import zerowaste.backend.webSocket.relay.NotificationRelay;
+import zerowaste.backend.webSocket.relay.RelayMessage;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -28,7 +35,12 @@ public class RecipeService {
     private final UserRecipeRepository userRecipeRepository;
     private final SimpMessagingTemplate template;
     private final CacheManager cacheManager;
+    private final RecipeTraitsIndex recipeTraits;
+    private final NotificationRelay notificationRelay;
+    private final ExpiringProductIndex expiringProducts;
 
+    private static final int LIKE_NEIGHBOURS = 20;
+    private static final double LIKE_WEIGHT = 0.5;
 
     public record PythonPayload(List<Long> recipe_ids, String email){}
     public record PythonMessage(String type, PythonPayload payload){}
@@ -50,13 +62,17 @@ public class RecipeService {
 
     public RecipeService(RecipeRepository recipeRepository, UserRepository userRepository,
                          UserRecipeRepository userRecipeRepository, SimpMessagingTemplate template,
-                         CacheManager cacheManager) {
+                         CacheManager cacheManager, RecipeTraitsIndex recipeTraits,
+                         NotificationRelay notificationRelay, ExpiringProductIndex expiringProducts) {
 
         this.recipeRepository = recipeRepository;
         this.userRepository = userRepository;
         this.userRecipeRepository = userRecipeRepository;
         this.template = template;
         this.cacheManager = cacheManager;
+        this.recipeTraits = recipeTraits;
+        this.notificationRelay = notificationRelay;
+        this.expiringProducts = expiringProducts;
     }
 
 
@@ -66,12 +82,78 @@ public class RecipeService {
         if (cache != null) {
             Cache.ValueWrapper wrapper = cache.get(email);
             if (wrapper != null && wrapper.get() != null) {
+                if (wrapper.get() instanceof RecipeRanking ranking) {
+                    return ranking.ids();
+                }
                 return cache.get(email, List.class);
             }
         }
         return null;
     }
 
+    private List<Long> allowedIds(User user, List<Long> ids) {
+        int allergies = RecipeTraits.allergenMaskOf(user);
+        int preferences = RecipeTraits.preferenceMaskOf(user);
+        if (allergies == 0 && preferences == 0) {
+            return ids;
+        }
+        return ids.stream().filter(id -> recipeTraits.allows(id, allergies, preferences)).toList();
+    }
+
+    private List<Recipe> allowedRecipes(User user, List<Recipe> recipes) {
+        int allergies = RecipeTraits.allergenMaskOf(user);
+        int preferences = RecipeTraits.preferenceMaskOf(user);
+        if (allergies == 0 && preferences == 0) {
+            return recipes;
+        }
+        return recipes.stream().filter(r -> recipeTraits.allows(r.getId(), allergies, preferences)).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private RecipeRanking getRankingFromCache(Cache cache, String email) {
+        Cache.ValueWrapper wrapper = cache.get(email);
+        if (wrapper == null || wrapper.get() == null) {
+            return null;
+        }
+        if (wrapper.get() instanceof RecipeRanking ranking) {
+            return ranking;
+        }
+        return RecipeRanking.fromIds((List<Long>) wrapper.get());
+    }
+
+    private void updateCachedRanking(User user, Recipe recipe, boolean rate) {
+        Cache cache = cacheManager.getCache("userRecipes");
+        if (cache == null) {
+            return;
+        }
+
+        RecipeRanking ranking = getRankingFromCache(cache, user.getEmail());
+        if (ranking == null) {
+            return;
+        }
+
+        if (rate) {
+            ranking.blend(likeNeighbours(recipe, ranking));
+        } else {
+            ranking.remove(recipe.getId());
+        }
+
+        cache.put(user.getEmail(), ranking);
+    }
+
+    private Map<Long, Double> likeNeighbours(Recipe liked, RecipeRanking ranking) {
+        double weight = LIKE_WEIGHT * ranking.size();
+
+        List<Long> candidates = recipeRepository.findMostSimilarIds(ranking.ids(), liked.getId(),
+                liked.getRecipeType(), liked.getDifficulty(), liked.getTime(), Limit.of(LIKE_NEIGHBOURS));
+        return recipeRepository.findAllById(candidates).stream()
+                .map(r -> Map.entry(r.getId(), RecipeSimilarity.between(liked, r)))
+                .filter(e -> e.getValue() > 0)
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
+                .limit(LIKE_NEIGHBOURS)
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue() * weight));
+    }
+
 
     private void askAiModule(User user, List<Integer> difficulty, Integer time, List<String> type){
 
@@ -82,7 +164,7 @@ public class RecipeService {
                         .map(UserRecipe::getRecipe).map(Recipe::getId).toList(),
                 userRecipeRepository.getUserRecipeByUserAndRating(user, false).stream()
                         .map(UserRecipe::getRecipe).map(Recipe::getId).toList(),
-                user.getUserProductList().getProducts().stream().filter(Product::isExpiringSoon).map(Product::getName).toList()
+                expiringProducts.expiringNames(user.getUserProductList())
                 );
 
         NotificationRequest not = new NotificationRequest(n);
@@ -101,6 +183,8 @@ public class RecipeService {
             return new PageResponse<>(0, null, List.of());
         }
 
+        cachedIds = allowedIds(user, cachedIds);
+
         int total = cachedIds.size();
         int start = Math.min(offset, total);
         int end = Math.min(offset + limit, total);
@@ -157,6 +241,8 @@ public class RecipeService {
         recipeRating.setRating(rate);
 
         userRecipeRepository.save(recipeRating);
+
+        updateCachedRanking(user, recipe, rate);
     }
 
 
@@ -168,12 +254,14 @@ public class RecipeService {
         }
 
         final String searchLower = search.toLowerCase();
-        List<Long> cachedIds = getRecipesFromCache(user.getEmail());
+        List<Long> cached = getRecipesFromCache(user.getEmail());
 
-        if (cachedIds == null || cachedIds.isEmpty()) {
+        if (cached == null || cached.isEmpty()) {
             return new PageResponse<>(0, null, List.of());
         }
 
+        final List<Long> cachedIds = allowedIds(user, cached);
+
         List<Recipe> filteredRecipes = recipeRepository.findAllById(cachedIds).stream()
                 .filter(r -> r.getName() != null && r.getName().toLowerCase().contains(searchLower))
                 .sorted(Comparator.comparingInt(r -> cachedIds.indexOf(r.getId())))
@@ -230,7 +318,7 @@ public class RecipeService {
 
         System.out.println(recipeFilter);
 
-        List<Recipe> filteredRecipes = baseRecipes.stream()
+        List<Recipe> filteredRecipes = allowedRecipes(user, baseRecipes).stream()
                 .filter(r -> recipeFilter.time() == null || r.getTime() <= recipeFilter.time())
                 .filter(r -> recipeFilter.difficulty() == null || recipeFilter.difficulty().getFirst() == null
                         || recipeFilter.difficulty().isEmpty()
@@ -297,6 +385,7 @@ public class RecipeService {
 
             String cleanEmail = request.payload().email().replace("@","").replace(".","");
             template.convertAndSend("/topic/notifications/" + cleanEmail, new WsMessage("recipe"));
+            notificationRelay.publish(RelayMessage.RECIPES_READY, cleanEmail, "recipe", request.payload());
 
             System.out.println(cleanEmail);
         }
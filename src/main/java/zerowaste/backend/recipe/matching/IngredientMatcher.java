@@ -0,0 +1,160 @@
+package zerowaste.backend.recipe.matching;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+
+// Aho-Corasick automaton over the expiring product names of one request.
+// Same result as use_expiring_ingredients in AIModule/Main20.py: a product counts when its name
+// appears in the ingredients and "mini <name>" does not; priority is the index of the first such product.
+// Building one costs more than matching a few hundred recipes, RecipeIngredientIndex keeps the recent ones.
+public final class IngredientMatcher {
+
+    public record Match(int count, int priority) {}
+
+    private static final int[] NO_OUTPUT = new int[0];
+
+    private final int products;
+    private final short[] asciiClass = new short[128];
+    private final char[] otherChars;
+    private final short[] otherClass;
+    private final int[][] delta;
+    private final int[][] outputs;
+    private final long[] emptyPatterns;
+
+    private IngredientMatcher(List<String> names) {
+        this.products = names.size();
+
+        List<String> patterns = new ArrayList<>(products * 2);
+        patterns.addAll(names);
+        for (String name : names) {
+            patterns.add("mini " + name);
+        }
+
+        // dense char classes, 0 = a char no pattern uses
+        Map<Character, Short> classes = new HashMap<>();
+        for (String pattern : patterns) {
+            for (char c : pattern.toCharArray()) {
+                classes.computeIfAbsent(c, k -> (short) (classes.size() + 1));
+            }
+        }
+        otherChars = classes.keySet().stream().filter(c -> c >= 128).sorted()
+                .map(String::valueOf).reduce("", String::concat).toCharArray();
+        otherClass = new short[otherChars.length];
+        classes.forEach((c, cls) -> {
+            if (c < 128) {
+                asciiClass[c] = cls;
+            } else {
+                otherClass[Arrays.binarySearch(otherChars, c)] = cls;
+            }
+        });
+        int width = classes.size() + 1;
+
+        // trie
+        emptyPatterns = new long[(patterns.size() + 63) >>> 6];
+        List<int[]> trie = new ArrayList<>();
+        List<List<Integer>> out = new ArrayList<>();
+        trie.add(new int[width]);
+        out.add(new ArrayList<>());
+        for (int p = 0; p < patterns.size(); p++) {
+            String pattern = patterns.get(p);
+            if (pattern.isEmpty()) {
+                // "" in text is always true in Python
+                emptyPatterns[p >>> 6] |= 1L << p;
+                continue;
+            }
+            int state = 0;
+            for (char c : pattern.toCharArray()) {
+                int cls = classOf(c);
+                if (trie.get(state)[cls] == 0) {
+                    trie.get(state)[cls] = trie.size();
+                    trie.add(new int[width]);
+                    out.add(new ArrayList<>());
+                }
+                state = trie.get(state)[cls];
+            }
+            out.get(state).add(p);
+        }
+
+        // failure links folded into a full transition table
+        int[] fail = new int[trie.size()];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int cls = 0; cls < width; cls++) {
+            int next = trie.get(0)[cls];
+            if (next != 0) {
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            out.get(state).addAll(out.get(fail[state]));
+            for (int cls = 0; cls < width; cls++) {
+                int next = trie.get(state)[cls];
+                if (next != 0) {
+                    fail[next] = trie.get(fail[state])[cls];
+                    queue.add(next);
+                } else {
+                    trie.get(state)[cls] = trie.get(fail[state])[cls];
+                }
+            }
+        }
+
+        delta = trie.toArray(new int[0][]);
+        outputs = new int[out.size()][];
+        for (int s = 0; s < out.size(); s++) {
+            outputs[s] = out.get(s).isEmpty() ? NO_OUTPUT : out.get(s).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    public static IngredientMatcher of(List<String> expiringProducts) {
+        return new IngredientMatcher(normalizeAll(expiringProducts));
+    }
+
+    public static List<String> normalizeAll(List<String> names) {
+        return names.stream().map(IngredientMatcher::normalize).toList();
+    }
+
+    public static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    public int products() {
+        return products;
+    }
+
+    // text must already be normalize()d
+    public Match match(String ingredients) {
+        long[] found = emptyPatterns.clone();
+        int state = 0;
+        for (int i = 0; i < ingredients.length(); i++) {
+            state = delta[state][classOf(ingredients.charAt(i))];
+            for (int pattern : outputs[state]) {
+                found[pattern >>> 6] |= 1L << pattern;
+            }
+        }
+
+        int count = 0;
+        int priority = products;
+        for (int p = 0; p < products; p++) {
+            int mini = products + p;
+            if ((found[p >>> 6] & (1L << p)) != 0 && (found[mini >>> 6] & (1L << mini)) == 0) {
+                count++;
+                priority = Math.min(priority, p);
+            }
+        }
+        return new Match(count, priority);
+    }
+
+    private int classOf(char c) {
+        if (c < 128) {
+            return asciiClass[c];
+        }
+        int index = Arrays.binarySearch(otherChars, c);
+        return index < 0 ? 0 : otherClass[index];
+    }
+}
@@ -0,0 +1,59 @@
+package zerowaste.backend.recipe.matching;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class RecipeIngredientIndex {
+
+    private volatile Map<Long, String> ingredients = Map.of();
+    // by normalized product list, users with the same expiring products share one automaton
+    private final Cache<List<String>, IngredientMatcher> matchers;
+
+    public RecipeIngredientIndex(@Value("${recipes.matcher-cache.size:1000}") long matcherCacheSize) {
+        this.matchers = Caffeine.newBuilder()
+                .maximumSize(matcherCacheSize)
+                .build();
+    }
+
+    public void replace(Map<Long, String> normalizedIngredients) {
+        ingredients = Map.copyOf(normalizedIngredients);
+    }
+
+    public int size() {
+        return ingredients.size();
+    }
+
+    // stable sort by (match count desc, priority asc), ids without ingredient text keep their place at the end
+    public List<Long> rankByExpiring(List<Long> recipeIds, List<String> expiringProducts) {
+        if (expiringProducts == null || expiringProducts.isEmpty()) {
+            return recipeIds;
+        }
+
+        IngredientMatcher matcher = matcher(expiringProducts);
+        Map<Long, String> current = ingredients;
+        IngredientMatcher.Match none = new IngredientMatcher.Match(0, matcher.products());
+
+        record Ranked(long id, IngredientMatcher.Match match) {}
+        List<Ranked> ranked = new ArrayList<>(recipeIds.size());
+        for (Long id : recipeIds) {
+            String text = current.get(id);
+            ranked.add(new Ranked(id, text == null ? none : matcher.match(text)));
+        }
+        ranked.sort(Comparator.comparingInt((Ranked r) -> -r.match().count())
+                .thenComparingInt(r -> r.match().priority()));
+
+        return ranked.stream().map(Ranked::id).toList();
+    }
+
+    public IngredientMatcher matcher(List<String> expiringProducts) {
+        return matchers.get(IngredientMatcher.normalizeAll(expiringProducts), IngredientMatcher::of);
+    }
+}
@@ -0,0 +1,140 @@
+package zerowaste.backend.recipe.ranking;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import zerowaste.backend.config.AppClock;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+// Caffeine stays the L1, the ranking store behind it survives restarts and deploys.
+// Both expire a ranking ttl after it was written; an entry read back from the store keeps its original write time.
+public class DurableRankingCache implements Cache {
+
+    private final Cache l1;
+    private final RankingStore store;
+    private final Duration ttl;
+    private final AppClock clock;
+
+    public DurableRankingCache(Cache l1, RankingStore store, Duration ttl, AppClock clock) {
+        this.l1 = l1;
+        this.store = store;
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    @Override
+    public String getName() {
+        return l1.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return l1.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        long writtenSince = clock.instant().toEpochMilli() - ttl.toMillis();
+        ValueWrapper wrapper = l1.get(key);
+        if (wrapper != null) {
+            // the L1 restarts its timer when a stored ranking is loaded into it, the store knows the real age
+            long writtenAt = store.writtenAt(key.toString());
+            if (writtenAt >= 0 && writtenAt < writtenSince) {
+                l1.evict(key);
+                return null;
+            }
+            return wrapper;
+        }
+
+        List<Long> ids = store.get(key.toString(), writtenSince);
+        if (ids == null) {
+            return null;
+        }
+
+        RecipeRanking ranking = RecipeRanking.fromIds(ids);
+        l1.put(key, ranking);
+        return new SimpleValueWrapper(ranking);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper == null) {
+            return null;
+        }
+        Object value = wrapper.get();
+        if (type != null && value != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        l1.put(key, value);
+
+        List<Long> ids = idsOf(value);
+        try {
+            if (ids == null) {
+                store.remove(key.toString());
+            } else {
+                store.put(key.toString(), ids, clock.instant().toEpochMilli());
+            }
+        } catch (IOException e) {
+            System.err.println("Ranking store write failed for " + key + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        l1.evict(key);
+        try {
+            store.remove(key.toString());
+        } catch (IOException e) {
+            System.err.println("Ranking store evict failed for " + key + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void clear() {
+        l1.clear();
+        try {
+            store.clear();
+        } catch (IOException e) {
+            System.err.println("Ranking store clear failed: " + e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Long> idsOf(Object value) {
+        if (value instanceof RecipeRanking ranking) {
+            return ranking.ids();
+        }
+        if (value instanceof List<?> list) {
+            return (List<Long>) list;
+        }
+        return null;
+    }
+}
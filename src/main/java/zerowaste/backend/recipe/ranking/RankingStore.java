@@ -0,0 +1,307 @@
+package zerowaste.backend.recipe.ranking;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Append-only log of user -> ranked recipe ids, memory-mapped.
+// Record: magic | body length | version | written at (epoch ms) | email length | email | count (-1 = removed) | ids
+// A log in an older record format is dropped on open, the rankings are rebuilt by the AI module.
+public class RankingStore implements Closeable {
+
+    private static final int MAGIC = 0x5A57524C;
+    private static final int RECORD_HEADER = 8;
+    private static final int REMOVED = -1;
+    private static final long INITIAL_SIZE = 4L << 20;
+    private static final long COMPACT_MIN_BYTES = 1L << 20;
+    private static final String PREFIX = "rankings-";
+    private static final String SUFFIX = ".log";
+
+    private record Entry(int offset, int size, long version, long writtenAt, boolean removed) {}
+
+    private final Path directory;
+    private final Map<String, Entry> index = new HashMap<>();
+
+    private long generation;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int writePosition;
+    private long liveBytes;
+    private long deadBytes;
+
+    private RankingStore(Path directory) {
+        this.directory = directory;
+    }
+
+    public static RankingStore open(Path directory) throws IOException {
+        RankingStore store = new RankingStore(directory);
+        store.load();
+        return store;
+    }
+
+    public synchronized List<Long> get(String key) {
+        return get(key, Long.MIN_VALUE);
+    }
+
+    // null as well when the ids were written before writtenSince
+    public synchronized List<Long> get(String key, long writtenSince) {
+        Entry entry = index.get(key);
+        if (entry == null || entry.removed() || entry.writtenAt() < writtenSince) {
+            return null;
+        }
+
+        int position = entry.offset() + RECORD_HEADER + 16;
+        position += 2 + (buffer.getShort(position) & 0xFFFF);
+        int count = buffer.getInt(position);
+        position += 4;
+
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(buffer.getLong(position + i * 8));
+        }
+        return ids;
+    }
+
+    public synchronized long version(String key) {
+        Entry entry = index.get(key);
+        return entry == null ? 0 : entry.version();
+    }
+
+    // -1 when the key has no live ids
+    public synchronized long writtenAt(String key) {
+        Entry entry = index.get(key);
+        return entry == null || entry.removed() ? -1 : entry.writtenAt();
+    }
+
+    public synchronized void put(String key, List<Long> ids) throws IOException {
+        put(key, ids, System.currentTimeMillis());
+    }
+
+    public synchronized void put(String key, List<Long> ids, long writtenAt) throws IOException {
+        apply(key, append(key, version(key) + 1, writtenAt, ids));
+        maybeCompact();
+    }
+
+    public synchronized void remove(String key) throws IOException {
+        Entry entry = index.get(key);
+        if (entry == null || entry.removed()) {
+            return;
+        }
+        apply(key, append(key, entry.version() + 1, System.currentTimeMillis(), null));
+        maybeCompact();
+    }
+
+    public synchronized void clear() throws IOException {
+        index.clear();
+        compact();
+    }
+
+    public synchronized int size() {
+        return (int) index.values().stream().filter(e -> !e.removed()).count();
+    }
+
+    // rewrites only the latest version of every live key into the next generation file
+    public synchronized void compact() throws IOException {
+        long nextGeneration = generation + 1;
+        Path tmp = directory.resolve(PREFIX + nextGeneration + ".tmp");
+        Map<String, Entry> compacted = new HashMap<>();
+        int position = 0;
+
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Map.Entry<String, Entry> e : index.entrySet()) {
+                Entry entry = e.getValue();
+                if (entry.removed()) {
+                    continue;
+                }
+                ByteBuffer record = buffer.slice(entry.offset(), entry.size());
+                while (record.hasRemaining()) {
+                    out.write(record);
+                }
+                compacted.put(e.getKey(), new Entry(position, entry.size(), entry.version(), entry.writtenAt(), false));
+                position += entry.size();
+            }
+            out.force(true);
+        }
+
+        Path previous = fileFor(generation);
+        Files.move(tmp, fileFor(nextGeneration), StandardCopyOption.ATOMIC_MOVE);
+
+        channel.close();
+        generation = nextGeneration;
+        map(fileFor(generation));
+
+        index.clear();
+        index.putAll(compacted);
+        writePosition = position;
+        liveBytes = position;
+        deadBytes = 0;
+
+        deleteQuietly(previous);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null && channel.isOpen()) {
+            buffer.force();
+            channel.close();
+        }
+    }
+
+    private void load() throws IOException {
+        Files.createDirectories(directory);
+
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(p -> p.getFileName().toString().startsWith(PREFIX))
+                    .sorted(Comparator.comparingLong(RankingStore::generationOf))
+                    .toList();
+        }
+
+        // leftovers from an interrupted compaction or an older generation
+        for (Path file : files) {
+            if (!file.toString().endsWith(SUFFIX)) {
+                deleteQuietly(file);
+            }
+        }
+        List<Path> logs = files.stream().filter(p -> p.toString().endsWith(SUFFIX)).toList();
+        generation = logs.isEmpty() ? 0 : generationOf(logs.getLast());
+        logs.stream().filter(p -> generationOf(p) != generation).forEach(RankingStore::deleteQuietly);
+
+        map(fileFor(generation));
+        scan();
+        if (writePosition == 0 && buffer.getInt(0) != 0) {
+            compact();
+        }
+    }
+
+    private void map(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), INITIAL_SIZE));
+    }
+
+    private void scan() {
+        int position = 0;
+        while (position + RECORD_HEADER <= buffer.capacity() && buffer.getInt(position) == MAGIC) {
+            int bodyLength = buffer.getInt(position + 4);
+            if (bodyLength <= 0 || (long) position + RECORD_HEADER + bodyLength > buffer.capacity()) {
+                break;
+            }
+
+            int body = position + RECORD_HEADER;
+            long version = buffer.getLong(body);
+            long writtenAt = buffer.getLong(body + 8);
+            int keyLength = buffer.getShort(body + 16) & 0xFFFF;
+            byte[] key = new byte[keyLength];
+            buffer.get(body + 18, key);
+            int count = buffer.getInt(body + 18 + keyLength);
+
+            apply(new String(key, StandardCharsets.UTF_8),
+                    new Entry(position, RECORD_HEADER + bodyLength, version, writtenAt, count == REMOVED));
+            position += RECORD_HEADER + bodyLength;
+        }
+        writePosition = position;
+    }
+
+    private Entry append(String key, long version, long writtenAt, List<Long> ids) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int bodyLength = 16 + 2 + keyBytes.length + 4 + (ids == null ? 0 : ids.size() * 8);
+        int size = RECORD_HEADER + bodyLength;
+        ensureCapacity(size);
+
+        int start = writePosition;
+        int position = start + RECORD_HEADER;
+        buffer.putInt(start + 4, bodyLength);
+        buffer.putLong(position, version);
+        buffer.putLong(position + 8, writtenAt);
+        buffer.putShort(position + 16, (short) keyBytes.length);
+        buffer.put(position + 18, keyBytes);
+        position += 18 + keyBytes.length;
+        buffer.putInt(position, ids == null ? REMOVED : ids.size());
+        position += 4;
+        if (ids != null) {
+            for (Long id : ids) {
+                buffer.putLong(position, id);
+                position += 8;
+            }
+        }
+        // magic goes in last, a record torn by a crash is never picked up by scan()
+        buffer.putInt(start, MAGIC);
+
+        writePosition += size;
+        return new Entry(start, size, version, writtenAt, ids == null);
+    }
+
+    private void apply(String key, Entry entry) {
+        Entry previous = index.get(key);
+        if (previous != null && previous.version() >= entry.version()) {
+            deadBytes += entry.size();
+            return;
+        }
+        if (previous != null) {
+            deadBytes += previous.size();
+            if (!previous.removed()) {
+                liveBytes -= previous.size();
+            }
+        }
+
+        index.put(key, entry);
+        if (entry.removed()) {
+            deadBytes += entry.size();
+        } else {
+            liveBytes += entry.size();
+        }
+    }
+
+    private void ensureCapacity(int size) throws IOException {
+        if ((long) writePosition + size <= buffer.capacity()) {
+            return;
+        }
+        long newSize = Math.max((long) buffer.capacity() * 2, (long) writePosition + size);
+        if (newSize > Integer.MAX_VALUE) {
+            throw new IOException("Ranking store is full");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+    }
+
+    private void maybeCompact() throws IOException {
+        if (deadBytes >= COMPACT_MIN_BYTES && deadBytes > liveBytes) {
+            compact();
+        }
+    }
+
+    private Path fileFor(long generation) {
+        return directory.resolve(PREFIX + generation + SUFFIX);
+    }
+
+    private static long generationOf(Path file) {
+        String name = file.getFileName().toString();
+        String number = name.substring(PREFIX.length(), name.lastIndexOf('.'));
+        try {
+            return Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // still mapped on some platforms, the next startup removes it
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package zerowaste.backend.recipe.ranking;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+public class RecipeRanking {
+
+    private final Map<Long, Double> scores = new HashMap<>();
+    private final TreeSet<Long> order = new TreeSet<>(
+            Comparator.comparing((Long id) -> scores.get(id), Comparator.reverseOrder())
+                    .thenComparing(Comparator.naturalOrder()));
+
+    private List<Long> snapshot;
+
+    // the AI module sends ids already sorted, so the position becomes the initial score
+    public static RecipeRanking fromIds(List<Long> ids) {
+        RecipeRanking ranking = new RecipeRanking();
+        int size = ids.size();
+        for (int i = 0; i < size; i++) {
+            Long id = ids.get(i);
+            if (ranking.scores.putIfAbsent(id, (double) (size - i)) == null) {
+                ranking.order.add(id);
+            }
+        }
+        return ranking;
+    }
+
+    public synchronized boolean remove(long recipeId) {
+        if (!scores.containsKey(recipeId)) {
+            return false;
+        }
+        // the comparator reads the score, so the id has to leave the tree first
+        order.remove(recipeId);
+        scores.remove(recipeId);
+        snapshot = null;
+        return true;
+    }
+
+    public synchronized void blend(Map<Long, Double> boosts) {
+        boosts.forEach((id, boost) -> {
+            Double score = scores.get(id);
+            if (score == null) {
+                return;
+            }
+            order.remove(id);
+            scores.put(id, score + boost);
+            order.add(id);
+        });
+        snapshot = null;
+    }
+
+    public synchronized List<Long> ids() {
+        if (snapshot == null) {
+            snapshot = List.copyOf(order);
+        }
+        return snapshot;
+    }
+
+    public synchronized boolean contains(long recipeId) {
+        return scores.containsKey(recipeId);
+    }
+
+    public synchronized int size() {
+        return order.size();
+    }
+}
@@ -0,0 +1,28 @@
+package zerowaste.backend.recipe.ranking;
+
+import zerowaste.backend.recipe.models.Recipe;
+
+public final class RecipeSimilarity {
+
+    private RecipeSimilarity() {}
+
+    // 0..1, only uses what the backend knows about a recipe (type, difficulty, time)
+    public static double between(Recipe a, Recipe b) {
+        if (a.getId() == b.getId()) {
+            return 1.0;
+        }
+
+        double score = 0;
+
+        if (a.getRecipeType() != null && a.getRecipeType().equalsIgnoreCase(b.getRecipeType())) {
+            score += 0.5;
+        }
+
+        score += 0.25 * (1 - Math.abs(a.getDifficulty() - b.getDifficulty()) / 2.0);
+
+        int maxTime = Math.max(a.getTime(), b.getTime());
+        score += maxTime == 0 ? 0.25 : 0.25 * Math.min(a.getTime(), b.getTime()) / maxTime;
+
+        return score;
+    }
+}
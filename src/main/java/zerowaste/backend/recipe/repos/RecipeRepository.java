@@ -1,7 +1,11 @@
 package zerowaste.backend.recipe.repos;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import zerowaste.backend.recipe.models.Recipe;
 
+import java.util.Collection;
 import java.util.List;
 
 import java.util.Optional;
@@ -12,4 +16,22 @@ public interface RecipeRepository  extends JpaRepository<Recipe,Long> {
     Optional<List<Recipe>> findAllByTimeBefore(int t);
     Optional<List<Recipe>> findAllByRecipeType(String r);
     Optional<List<Recipe>> findAllByNameContainingIgnoreCase(String n);
+
+    // same score as RecipeSimilarity.between, so only the best candidates are loaded
+    @Query("""
+            select r.id from Recipe r
+            where r.id in :ids
+            order by case when r.id = :id then 1.0 else
+                (case when lower(r.recipeType) = lower(:recipeType) then 0.5 else 0.0 end)
+                + 0.25 * (1 - abs(r.difficulty - :difficulty) / 2.0)
+                + (case when greatest(r.time, :time) = 0 then 0.25
+                        else 0.25 * least(r.time, :time) / (1.0 * greatest(r.time, :time)) end) end desc,
+                r.id
+            """)
+    List<Long> findMostSimilarIds(@Param("ids") Collection<Long> ids,
+                                  @Param("id") long id,
+                                  @Param("recipeType") String recipeType,
+                                  @Param("difficulty") int difficulty,
+                                  @Param("time") int time,
+                                  Limit limit);
 }
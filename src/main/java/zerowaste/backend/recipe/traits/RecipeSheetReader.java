@@ -0,0 +1,195 @@
+package zerowaste.backend.recipe.traits;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+// Streams the rows of one sheet of an .xlsx file with StAX, without loading the sheet into memory.
+// Each row is handed over as header -> raw cell text.
+public final class RecipeSheetReader {
+
+    private static final String RELATIONSHIP_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    private static final XMLInputFactory XML = XMLInputFactory.newFactory();
+
+    static {
+        XML.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private RecipeSheetReader() {}
+
+    public static void read(Path file, String sheetName, Consumer<Map<String, String>> rows) throws IOException {
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            List<String> sharedStrings = readSharedStrings(zip);
+            String sheetEntry = resolveSheet(zip, sheetName);
+
+            try (InputStream in = open(zip, sheetEntry)) {
+                streamRows(XML.createXMLStreamReader(in), sharedStrings, rows);
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not read sheet " + sheetName + " from " + file, e);
+        }
+    }
+
+    private static void streamRows(XMLStreamReader xml, List<String> sharedStrings,
+                                   Consumer<Map<String, String>> rows) throws XMLStreamException {
+        List<String> header = null;
+        Map<Integer, String> cells = new HashMap<>();
+        int column = 0;
+        String type = null;
+        StringBuilder value = new StringBuilder();
+        boolean inValue = false;
+
+        while (xml.hasNext()) {
+            int event = xml.next();
+
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (xml.getLocalName()) {
+                    case "row" -> cells.clear();
+                    case "c" -> {
+                        column = columnIndex(xml.getAttributeValue(null, "r"), column + 1);
+                        type = xml.getAttributeValue(null, "t");
+                        value.setLength(0);
+                    }
+                    case "v", "t" -> inValue = true;
+                    default -> { }
+                }
+            } else if (event == XMLStreamConstants.CHARACTERS && inValue) {
+                value.append(xml.getText());
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                switch (xml.getLocalName()) {
+                    case "v", "t" -> inValue = false;
+                    case "c" -> cells.put(column, cellText(type, value.toString(), sharedStrings));
+                    case "row" -> {
+                        if (header == null) {
+                            header = toHeader(cells);
+                        } else {
+                            rows.accept(toRow(header, cells));
+                        }
+                        column = 0;
+                    }
+                    default -> { }
+                }
+            }
+        }
+    }
+
+    private static String cellText(String type, String raw, List<String> sharedStrings) {
+        if ("s".equals(type)) {
+            int index = Integer.parseInt(raw.trim());
+            return index < sharedStrings.size() ? sharedStrings.get(index) : "";
+        }
+        return raw;
+    }
+
+    private static List<String> toHeader(Map<Integer, String> cells) {
+        int width = cells.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+        List<String> header = new ArrayList<>(width);
+        for (int i = 1; i <= width; i++) {
+            header.add(cells.getOrDefault(i, "").trim());
+        }
+        return header;
+    }
+
+    private static Map<String, String> toRow(List<String> header, Map<Integer, String> cells) {
+        Map<String, String> row = new HashMap<>();
+        cells.forEach((column, text) -> {
+            if (column <= header.size() && !header.get(column - 1).isEmpty()) {
+                row.put(header.get(column - 1), text);
+            }
+        });
+        return row;
+    }
+
+    // "AB12" -> 28, falls back to the next column when the reference is missing
+    private static int columnIndex(String reference, int fallback) {
+        if (reference == null) {
+            return fallback;
+        }
+        int index = 0;
+        for (int i = 0; i < reference.length() && Character.isLetter(reference.charAt(i)); i++) {
+            index = index * 26 + (Character.toUpperCase(reference.charAt(i)) - 'A' + 1);
+        }
+        return index == 0 ? fallback : index;
+    }
+
+    private static List<String> readSharedStrings(ZipFile zip) throws IOException, XMLStreamException {
+        List<String> strings = new ArrayList<>();
+        if (zip.getEntry("xl/sharedStrings.xml") == null) {
+            return strings;
+        }
+
+        try (InputStream in = open(zip, "xl/sharedStrings.xml")) {
+            XMLStreamReader xml = XML.createXMLStreamReader(in);
+            StringBuilder text = new StringBuilder();
+            boolean inText = false;
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (xml.getLocalName().equals("si")) {
+                        text.setLength(0);
+                    } else if (xml.getLocalName().equals("t")) {
+                        inText = true;
+                    }
+                } else if (event == XMLStreamConstants.CHARACTERS && inText) {
+                    text.append(xml.getText());
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (xml.getLocalName().equals("t")) {
+                        inText = false;
+                    } else if (xml.getLocalName().equals("si")) {
+                        strings.add(text.toString());
+                    }
+                }
+            }
+        }
+        return strings;
+    }
+
+    private static String resolveSheet(ZipFile zip, String sheetName) throws IOException, XMLStreamException {
+        String relationId = null;
+        try (InputStream in = open(zip, "xl/workbook.xml")) {
+            XMLStreamReader xml = XML.createXMLStreamReader(in);
+            while (xml.hasNext() && relationId == null) {
+                if (xml.next() == XMLStreamConstants.START_ELEMENT && xml.getLocalName().equals("sheet")
+                        && sheetName.equals(xml.getAttributeValue(null, "name"))) {
+                    relationId = xml.getAttributeValue(RELATIONSHIP_NS, "id");
+                }
+            }
+        }
+        if (relationId == null) {
+            throw new IOException("Sheet not found: " + sheetName);
+        }
+
+        try (InputStream in = open(zip, "xl/_rels/workbook.xml.rels")) {
+            XMLStreamReader xml = XML.createXMLStreamReader(in);
+            while (xml.hasNext()) {
+                if (xml.next() == XMLStreamConstants.START_ELEMENT && xml.getLocalName().equals("Relationship")
+                        && relationId.equals(xml.getAttributeValue(null, "Id"))) {
+                    String target = xml.getAttributeValue(null, "Target");
+                    return target.startsWith("/") ? target.substring(1) : "xl/" + target;
+                }
+            }
+        }
+        throw new IOException("Sheet target not found: " + sheetName);
+    }
+
+    private static InputStream open(ZipFile zip, String name) throws IOException {
+        ZipEntry entry = zip.getEntry(name);
+        if (entry == null) {
+            throw new IOException("Missing entry " + name);
+        }
+        return zip.getInputStream(entry);
+    }
+}
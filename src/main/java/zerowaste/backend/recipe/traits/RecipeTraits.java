@@ -0,0 +1,79 @@
+package zerowaste.backend.recipe.traits;
+
+import zerowaste.backend.user.User;
+import zerowaste.backend.user.properties.Allergy;
+import zerowaste.backend.user.properties.Preference;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Bit positions follow the columns of AIModule/Files/recipesAllergensPreferences.xlsx
+public final class RecipeTraits {
+
+    public static final List<String> ALLERGENS = List.of(
+            "Celery", "Cereals", "Crustaceans", "Eggs", "Fish", "Lupin", "Milk",
+            "Molluscs", "Mustard", "Peanuts", "Sesame", "Soybeans", "Sulphur");
+
+    public static final List<String> PREFERENCES = List.of(
+            "Dairy-Free", "Gluten-Free", "Vegan", "Vegetarian");
+
+    private RecipeTraits() {}
+
+    public static int allergenMask(Collection<String> names) {
+        return mask(ALLERGENS, names);
+    }
+
+    public static int preferenceMask(Collection<String> names) {
+        return mask(PREFERENCES, names);
+    }
+
+    public static int allergenMaskOf(User user) {
+        if (user.getAllergy_mask() != null) {
+            return user.getAllergy_mask();
+        }
+        return allergenMask(user.getAllergies().stream().map(Allergy::getName).toList());
+    }
+
+    public static int preferenceMaskOf(User user) {
+        if (user.getPreference_mask() != null) {
+            return user.getPreference_mask();
+        }
+        return preferenceMask(user.getPreferences().stream().map(Preference::getName).toList());
+    }
+
+    static int allergenMaskOfRow(Map<String, String> row) {
+        return rowMask(ALLERGENS, row);
+    }
+
+    static int preferenceMaskOfRow(Map<String, String> row) {
+        return rowMask(PREFERENCES, row);
+    }
+
+    private static int mask(List<String> columns, Collection<String> names) {
+        int mask = 0;
+        for (String name : names) {
+            if (name == null) {
+                continue;
+            }
+            for (int bit = 0; bit < columns.size(); bit++) {
+                if (columns.get(bit).equalsIgnoreCase(name.trim())) {
+                    mask |= 1 << bit;
+                }
+            }
+        }
+        return mask;
+    }
+
+    private static int rowMask(List<String> columns, Map<String, String> row) {
+        int mask = 0;
+        for (int bit = 0; bit < columns.size(); bit++) {
+            String value = row.get(columns.get(bit));
+            if (value != null && (value.equals("1") || value.toLowerCase(Locale.ROOT).equals("true"))) {
+                mask |= 1 << bit;
+            }
+        }
+        return mask;
+    }
+}
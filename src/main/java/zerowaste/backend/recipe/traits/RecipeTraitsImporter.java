@@ -0,0 +1,79 @@
+package zerowaste.backend.recipe.traits;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import zerowaste.backend.recipe.matching.IngredientMatcher;
+import zerowaste.backend.recipe.matching.RecipeIngredientIndex;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+public class RecipeTraitsImporter {
+
+    public record Imported(RecipeTraitsIndex.Builder traits, Map<Long, String> ingredients) {}
+
+    private final RecipeTraitsIndex recipeTraits;
+    private final RecipeIngredientIndex recipeIngredients;
+
+    @Value("${recipes.traits.file:}")
+    private String file;
+
+    @Value("${recipes.traits.sheet:AI}")
+    private String sheet;
+
+    public RecipeTraitsImporter(RecipeTraitsIndex recipeTraits, RecipeIngredientIndex recipeIngredients) {
+        this.recipeTraits = recipeTraits;
+        this.recipeIngredients = recipeIngredients;
+    }
+
+    @PostConstruct
+    public void importTraits() {
+        if (file == null || file.isBlank()) {
+            return;
+        }
+
+        Path path = Path.of(file);
+        if (!Files.exists(path)) {
+            System.out.println("Recipe traits file not found: " + path.toAbsolutePath());
+            return;
+        }
+
+        try {
+            Imported imported = importFrom(path, sheet);
+            recipeTraits.replace(imported.traits());
+            recipeIngredients.replace(imported.ingredients());
+            System.out.println("Recipe traits loaded for " + recipeTraits.size() + " recipe ids, ingredients for "
+                    + recipeIngredients.size());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not import recipe traits: " + e.getMessage());
+        }
+    }
+
+    public static Imported importFrom(Path path, String sheet) throws IOException {
+        RecipeTraitsIndex.Builder builder = RecipeTraitsIndex.builder();
+        Map<Long, String> ingredients = new HashMap<>();
+
+        RecipeSheetReader.read(path, sheet, row -> {
+            String id = row.get("id");
+            if (id == null || id.isBlank()) {
+                return;
+            }
+            long recipeId = (long) Double.parseDouble(id);
+            builder.put(recipeId,
+                    RecipeTraits.allergenMaskOfRow(row),
+                    RecipeTraits.preferenceMaskOfRow(row));
+
+            String text = row.get("Ingredients");
+            if (text != null && !text.isBlank()) {
+                ingredients.put(recipeId, IngredientMatcher.normalize(text));
+            }
+        });
+
+        return new Imported(builder, ingredients);
+    }
+}
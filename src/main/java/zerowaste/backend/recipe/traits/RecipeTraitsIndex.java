@@ -0,0 +1,70 @@
+package zerowaste.backend.recipe.traits;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+@Component
+public class RecipeTraitsIndex {
+
+    // recipes missing from the sheet: no allergens, matches every preference
+    private static final int ANY_PREFERENCE = -1;
+
+    private record Masks(int[] allergens, int[] preferences) {}
+
+    private volatile Masks masks = new Masks(new int[0], new int[0]);
+
+    // one AND per check, ids index straight into the arrays
+    public boolean allows(long recipeId, int userAllergies, int userPreferences) {
+        Masks current = masks;
+        if (recipeId < 0 || recipeId >= current.allergens().length) {
+            return true;
+        }
+        int id = (int) recipeId;
+        return (current.allergens()[id] & userAllergies) == 0
+                && (userPreferences == 0 || (current.preferences()[id] & userPreferences) != 0);
+    }
+
+    public int size() {
+        return masks.allergens().length;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public void replace(Builder builder) {
+        masks = new Masks(Arrays.copyOf(builder.allergens, builder.length),
+                Arrays.copyOf(builder.preferences, builder.length));
+    }
+
+    public static class Builder {
+        private int[] allergens = new int[1024];
+        private int[] preferences = filled(1024);
+        private int length;
+
+        public Builder put(long recipeId, int allergenMask, int preferenceMask) {
+            if (recipeId < 0 || recipeId >= Integer.MAX_VALUE) {
+                return this;
+            }
+            int id = (int) recipeId;
+            if (id >= allergens.length) {
+                int capacity = Math.max(allergens.length * 2, id + 1);
+                allergens = Arrays.copyOf(allergens, capacity);
+                int previous = preferences.length;
+                preferences = Arrays.copyOf(preferences, capacity);
+                Arrays.fill(preferences, previous, capacity, ANY_PREFERENCE);
+            }
+            allergens[id] = allergenMask;
+            preferences[id] = preferenceMask;
+            length = Math.max(length, id + 1);
+            return this;
+        }
+
+        private static int[] filled(int size) {
+            int[] array = new int[size];
+            Arrays.fill(array, ANY_PREFERENCE);
+            return array;
+        }
+    }
+}
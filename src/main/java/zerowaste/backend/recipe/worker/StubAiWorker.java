@@ -0,0 +1,147 @@
+package zerowaste.backend.recipe.worker;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import zerowaste.backend.recipe.RecipeService;
+import zerowaste.backend.recipe.matching.RecipeIngredientIndex;
+import zerowaste.backend.recipe.models.Recipe;
+import zerowaste.backend.recipe.repos.RecipeRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+// Stand-in for AIModule/Main20.py: listens on /topic/python-requests inside the JVM
+// and answers on /app/python-response after a configurable delay.
+@Component
+@Profile("ai-stub")
+public class StubAiWorker implements MessageHandler {
+
+    private static final String REQUEST_DESTINATION = "/topic/python-requests";
+    private static final String RESPONSE_DESTINATION = "/app/python-response";
+
+    private final SubscribableChannel brokerChannel;
+    private final MessageChannel clientInboundChannel;
+    private final MessageConverter converter;
+    private final RecipeRepository recipeRepository;
+    private final RecipeIngredientIndex recipeIngredients;
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong answered = new AtomicLong();
+
+    @Value("${ai.stub.latency-ms:50}")
+    private long latencyMs;
+
+    @Value("${ai.stub.result-size:100}")
+    private int resultSize;
+
+    @Value("${ai.stub.threads:5}")
+    private int threads;
+
+    private ScheduledExecutorService executor;
+    private volatile List<Long> recipeIds;
+
+    public StubAiWorker(@Qualifier("brokerChannel") SubscribableChannel brokerChannel,
+                        @Qualifier("clientInboundChannel") MessageChannel clientInboundChannel,
+                        @Qualifier("brokerMessageConverter") MessageConverter converter,
+                        RecipeRepository recipeRepository,
+                        RecipeIngredientIndex recipeIngredients) {
+        this.brokerChannel = brokerChannel;
+        this.clientInboundChannel = clientInboundChannel;
+        this.converter = converter;
+        this.recipeRepository = recipeRepository;
+        this.recipeIngredients = recipeIngredients;
+    }
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newScheduledThreadPool(threads);
+        brokerChannel.subscribe(this);
+        System.out.println("AI stub worker listening on " + REQUEST_DESTINATION);
+    }
+
+    @PreDestroy
+    public void stop() {
+        brokerChannel.unsubscribe(this);
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void handleMessage(Message<?> message) {
+        if (!REQUEST_DESTINATION.equals(SimpMessageHeaderAccessor.getDestination(message.getHeaders()))) {
+            return;
+        }
+
+        Object converted = converter.fromMessage(message, RecipeService.NotificationRequest.class);
+        if (!(converted instanceof RecipeService.NotificationRequest request) || request.payload() == null) {
+            return;
+        }
+
+        received.incrementAndGet();
+        executor.schedule(() -> reply(request.payload()), latencyMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void reply(RecipeService.NotificationPayload payload) {
+        String email = payload.email();
+        List<Long> ids = recipeIngredients.rankByExpiring(pickRecipes(email), payload.ExpiringProducts());
+        RecipeService.PythonMessage response =
+                new RecipeService.PythonMessage("run", new RecipeService.PythonPayload(ids, email));
+
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SEND);
+        accessor.setDestination(RESPONSE_DESTINATION);
+        accessor.setSessionId("ai-stub");
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setLeaveMutable(true);
+
+        Message<?> message = converter.toMessage(response, accessor.getMessageHeaders());
+        if (message != null && clientInboundChannel.send(message)) {
+            answered.incrementAndGet();
+        }
+    }
+
+    // same user -> same ranking, like the real module for an unchanged profile
+    private List<Long> pickRecipes(String email) {
+        List<Long> ids = new ArrayList<>(knownRecipeIds());
+        Collections.shuffle(ids, new Random(email.hashCode()));
+        return List.copyOf(ids.subList(0, Math.min(resultSize, ids.size())));
+    }
+
+    private List<Long> knownRecipeIds() {
+        List<Long> ids = recipeIds;
+        if (ids == null) {
+            ids = recipeRepository.findAll().stream().map(Recipe::getId).toList();
+            if (ids.isEmpty()) {
+                ids = LongStream.rangeClosed(1, resultSize).boxed().toList();
+            }
+            recipeIds = ids;
+        }
+        return ids;
+    }
+
+    public long getReceived() {
+        return received.get();
+    }
+
+    public long getAnswered() {
+        return answered.get();
+    }
+}
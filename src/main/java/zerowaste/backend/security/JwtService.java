@@ -1,6 +1,8 @@
 package zerowaste.backend.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,6 +20,8 @@ public class JwtService {
     private final SecretKey refreshKey;
     private final long accessExpirationMillis;
     private final long refreshExpirationMillis;
+    private final JwtParser accessParser;
+    private final JwtParser refreshParser;
 
     public JwtService(
             @Value("${security.jwt.access.secret}") String accessSecret,
@@ -29,6 +33,8 @@ public class JwtService {
         this.refreshKey = Keys.hmacShaKeyFor(refreshSecret.getBytes(StandardCharsets.UTF_8));
         this.accessExpirationMillis = accessExpirationMillis;
         this.refreshExpirationMillis = refreshExpirationMillis;
+        this.accessParser = Jwts.parser().verifyWith(accessKey).build();
+        this.refreshParser = Jwts.parser().verifyWith(refreshKey).build();
     }
 
 
@@ -70,11 +76,18 @@ public class JwtService {
         }
     }
 
+    // single parse: the parser already rejects bad signatures and expired tokens
+    public Claims parseValidClaims(String token, boolean isRefreshToken) {
+        try {
+            return parseAllClaims(token, isRefreshToken);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     private Claims parseAllClaims(String token, boolean isRefreshToken) {
-        SecretKey key = isRefreshToken ? refreshKey : accessKey;
-        return Jwts.parser()
-                .verifyWith(key)
-                .build()
+        JwtParser parser = isRefreshToken ? refreshParser : accessParser;
+        return parser
                 .parseSignedClaims(token)
                 .getPayload();
     }
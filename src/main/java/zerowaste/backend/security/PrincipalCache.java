@@ -0,0 +1,54 @@
+package zerowaste.backend.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+// Short-lived user details by subject, so reconnect storms do not each hit the users table.
+// The token itself is still verified on every CONNECT. Only an immutable copy without the password is kept,
+// never the loaded AppUserDetails: its User entity would be shared by every session of that user.
+@Component
+public class PrincipalCache {
+
+    private final Cache<String, UserDetails> principals;
+
+    public PrincipalCache(@Value("${security.principal-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.principals = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(10_000)
+                .build();
+    }
+
+    public UserDetails get(String subject, Function<String, UserDetails> loader) {
+        return principals.get(subject, key -> snapshot(loader.apply(key)));
+    }
+
+    // again after the surrounding transaction commits, a CONNECT in between may have cached the old row
+    public void evict(String subject) {
+        principals.invalidate(subject);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    principals.invalidate(subject);
+                }
+            });
+        }
+    }
+
+    private static UserDetails snapshot(UserDetails details) {
+        return User.withUsername(details.getUsername())
+                .password("")
+                .authorities(details.getAuthorities())
+                .disabled(!details.isEnabled())
+                .build();
+    }
+}
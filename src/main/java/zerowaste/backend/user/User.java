@@ -40,6 +40,10 @@ public class User {
     @ManyToMany
     private List<Allergy> allergies = new  ArrayList<>();
 
+    private Integer preference_mask;
+
+    private Integer allergy_mask;
+
     @ManyToOne
     private UserProductList userProductList;
 
@@ -107,6 +111,22 @@ public class User {
         this.allergies = allergies;
     }
 
+    public Integer getPreference_mask() {
+        return preference_mask;
+    }
+
+    public void setPreference_mask(Integer preference_mask) {
+        this.preference_mask = preference_mask;
+    }
+
+    public Integer getAllergy_mask() {
+        return allergy_mask;
+    }
+
+    public void setAllergy_mask(Integer allergy_mask) {
+        this.allergy_mask = allergy_mask;
+    }
+
     public boolean isVerified() {
         return verified;
     }
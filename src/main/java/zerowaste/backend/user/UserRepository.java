@@ -1,10 +1,37 @@
 package zerowaste.backend.user;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import zerowaste.backend.notification.ExpiringProductRow;
+import zerowaste.backend.notification.NotificationSlot;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User,Long> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+
+    // products expiring exactly notification_day days after today, one row per product, grouped by user
+    @Query("""
+            select new zerowaste.backend.notification.ExpiringProductRow(u.id, u.email, u.notification_day, p)
+            from User u join u.userProductList l join l.products p
+            where u.id in :userIds and p.best_before = :today + (u.notification_day) day
+            order by u.id, p.id
+            """)
+    List<ExpiringProductRow> findExpiringProducts(@Param("userIds") Collection<Long> userIds,
+                                                  @Param("today") LocalDate today);
+
+    // keyset page, callers pass the last id they saw
+    @Query("""
+            select new zerowaste.backend.notification.NotificationSlot(u.id, u.preferred_notification_hour)
+            from User u
+            where u.preferred_notification_hour is not null and u.id > :afterId
+            order by u.id
+            """)
+    List<NotificationSlot> findNotificationSlots(@Param("afterId") long afterId, Limit limit);
 }
@@ -6,6 +6,7 @@ import org.springframework.stereotype.Service;
 import zerowaste.backend.notification.DailyPlanifierService;
 import zerowaste.backend.product.models.UserProductList;
 import zerowaste.backend.product.repos.UserProductListRepository;
+import zerowaste.backend.recipe.traits.RecipeTraits;
 import zerowaste.backend.security.AppUserDetails;
 import zerowaste.backend.user.properties.Allergy;
 import zerowaste.backend.user.properties.AllergyRepository;
@@ -58,6 +59,7 @@ public class UserService {
         List<Preference> preferences = preferenceRepository.findByNameInIgnoreCase(prefs);
 
         user.setPreferences(preferences);
+        user.setPreference_mask(RecipeTraits.preferenceMask(preferences.stream().map(Preference::getName).toList()));
         userRepository.save(user);
 
         return preferences;
@@ -72,6 +74,7 @@ public class UserService {
         List<Allergy> allergies = allergyRepository.findByNameInIgnoreCase(allergiesNames);
 
         user.setAllergies(allergies);
+        user.setAllergy_mask(RecipeTraits.allergenMask(allergies.stream().map(Allergy::getName).toList()));
         userRepository.save(user);
 
         return allergies;
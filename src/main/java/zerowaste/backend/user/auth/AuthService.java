@@ -5,13 +5,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import zerowaste.backend.config.AppClock;
 import zerowaste.backend.email.EmailTemplateService;
 import zerowaste.backend.email.MailService;
 import zerowaste.backend.exception.classes.ConstraintException;
 import zerowaste.backend.exception.classes.ExpiredTokenException;
+import zerowaste.backend.notification.DailyPlanifierService;
 import zerowaste.backend.product.models.UserProductList;
 import zerowaste.backend.product.repos.UserProductListRepository;
 import zerowaste.backend.security.AppUserDetails;
+import zerowaste.backend.security.PrincipalCache;
 import zerowaste.backend.user.User;
 import zerowaste.backend.user.UserRepository;
 import zerowaste.backend.user.auth.tokens.EmailVerificationToken;
@@ -21,7 +24,6 @@ import zerowaste.backend.user.auth.tokens.PasswordResetTokenRepository;
 import zerowaste.backend.user.dtos.RegisterUserDto;
 
 import java.security.SecureRandom;
-import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.Map;
 import java.util.UUID;
@@ -43,12 +45,16 @@ public class AuthService {
     private final PasswordResetTokenRepository passwordTokenRepository;
     private final MailService mailService;
     private final EmailTemplateService emailTemplateService;
+    private final AppClock clock;
+    private final PrincipalCache principalCache;
+    private final DailyPlanifierService dailyPlanifierService;
 
     @Autowired
     public AuthService(UserRepository userRepository, PasswordEncoder encoder,
                        EmailVerificationTokenRepository tokenRepository, MailService mailService,
                        EmailTemplateService emailTemplateService, PasswordResetTokenRepository passwordTokenRepository,
-                       UserProductListRepository  userProductListRepository) {
+                       UserProductListRepository  userProductListRepository, AppClock clock,
+                       PrincipalCache principalCache, DailyPlanifierService dailyPlanifierService) {
         this.userRepository = userRepository;
         this.encoder = encoder;
         this.tokenRepository = tokenRepository;
@@ -56,6 +62,9 @@ public class AuthService {
         this.emailTemplateService = emailTemplateService;
         this.passwordTokenRepository = passwordTokenRepository;
         this.userProductListRepository = userProductListRepository;
+        this.clock = clock;
+        this.principalCache = principalCache;
+        this.dailyPlanifierService = dailyPlanifierService;
     }
 
     @Transactional
@@ -83,13 +92,13 @@ public class AuthService {
 
         if(token != null) {
             token.setToken(tokenValue);
-            token.setExpiresAt(LocalDateTime.now().plusDays(1));
+            token.setExpiresAt(clock.now().plusDays(1));
             tokenRepository.save(token);
         }else {
              token = new EmailVerificationToken(
                     tokenValue,
                     user,
-                    LocalDateTime.now().plusDays(1)
+                    clock.now().plusDays(1)
             );
 
             tokenRepository.save(token);
@@ -109,6 +118,8 @@ public class AuthService {
         );
     }
 
+    // a failed send throws, the token is rolled back with it
+    @Transactional
     public void createResetToken(String email) {
         userRepository.findByEmail(email).ifPresent(user -> {
             String tokenValue = UUID.randomUUID().toString();
@@ -116,7 +127,7 @@ public class AuthService {
             PasswordResetToken token = new PasswordResetToken();
             token.setToken(tokenValue);
             token.setUser(user);
-            token.setExpiresAt(LocalDateTime.now().plusHours(1));
+            token.setExpiresAt(clock.now().plusHours(1));
             passwordTokenRepository.save(token);
 
             String resetLink = frontendUrl + "set-new-password?token=" + tokenValue;
@@ -158,7 +169,7 @@ public class AuthService {
             throw new IllegalArgumentException("Account already verified!");
         }
 
-        if (token.getExpiresAt().isBefore(LocalDateTime.now())) {
+        if (token.getExpiresAt().isBefore(clock.now())) {
             throw new ExpiredTokenException("Token expired");
         }
 
@@ -177,6 +188,7 @@ public class AuthService {
 
 
         userRepository.save(user);
+        dailyPlanifierService.updateUserNotification(user);
 
         tokenRepository.delete(token);
     }
@@ -203,6 +215,7 @@ public class AuthService {
 
         user.setPassword(encoder.encode(newPassword));
         userRepository.save(user);
+        principalCache.evict(user.getEmail());
     }
 
     @Transactional
@@ -210,7 +223,7 @@ public class AuthService {
         PasswordResetToken token = passwordTokenRepository.findByToken(tokenValue)
                 .orElseThrow(() -> new IllegalArgumentException("Token invalid"));
 
-        if (token.getExpiresAt().isBefore(LocalDateTime.now())) {
+        if (token.getExpiresAt().isBefore(clock.now())) {
             throw new ExpiredTokenException("Token expired");
         }
 
@@ -225,6 +238,7 @@ public class AuthService {
         User user = token.getUser();
         user.setPassword(encoder.encode(newPassword));
         userRepository.save(user);
+        principalCache.evict(user.getEmail());
 
         passwordTokenRepository.delete(token);
     }
@@ -243,6 +257,8 @@ public class AuthService {
             }
         }
         userRepository.delete(user);
+        principalCache.evict(user.getEmail());
+        dailyPlanifierService.removeUserNotification(user.getId());
     }
 
 }
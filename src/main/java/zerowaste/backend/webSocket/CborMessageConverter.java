@@ -0,0 +1,54 @@
+package zerowaste.backend.webSocket;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.util.MimeType;
+import tools.jackson.dataformat.cbor.CBORMapper;
+
+import java.util.List;
+import java.util.Map;
+
+// CBOR for STOMP payloads. Spring only writes binary websocket frames for application/octet-stream,
+// so outgoing frames are labelled application/octet-stream;codec=cbor. Clients may send either label.
+public class CborMessageConverter extends AbstractMessageConverter {
+
+    public static final MimeType CBOR = new MimeType("application", "cbor");
+    public static final MimeType CBOR_FRAME = new MimeType("application", "octet-stream", Map.of("codec", "cbor"));
+
+    private final CBORMapper mapper;
+
+    public CborMessageConverter(CBORMapper mapper) {
+        super(List.of(CBOR_FRAME, CBOR));
+        this.mapper = mapper;
+        setStrictContentTypeMatch(true);
+    }
+
+    public static boolean isCbor(MimeType mimeType) {
+        if (mimeType == null) {
+            return false;
+        }
+        return CBOR.equalsTypeAndSubtype(mimeType)
+                || (CBOR_FRAME.equalsTypeAndSubtype(mimeType) && "cbor".equals(mimeType.getParameter("codec")));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return true;
+    }
+
+    @Override
+    protected boolean supportsMimeType(MessageHeaders headers) {
+        return isCbor(getMimeType(headers));
+    }
+
+    @Override
+    protected Object convertFromInternal(Message<?> message, Class<?> targetClass, Object conversionHint) {
+        return message.getPayload() instanceof byte[] bytes ? mapper.readValue(bytes, targetClass) : null;
+    }
+
+    @Override
+    protected Object convertToInternal(Object payload, MessageHeaders headers, Object conversionHint) {
+        return mapper.writeValueAsBytes(payload);
+    }
+}
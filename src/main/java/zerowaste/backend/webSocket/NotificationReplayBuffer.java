@@ -0,0 +1,82 @@
+package zerowaste.backend.webSocket;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+// Last frames sent to each active share code, so a reconnecting client can catch up from its last seq.
+// A new ring starts at a random point below 2^52 (still exact in JS), so a seq handed out by an evicted ring
+// or by another node practically never falls inside this ring's window and the client gets a reload.
+@Component
+public class NotificationReplayBuffer {
+
+    public record Replay(boolean complete, List<WsEnvelope> frames, long latest) {}
+
+    private final int capacity;
+    private final Cache<String, Ring> rings;
+
+    public NotificationReplayBuffer(@Value("${websocket.replay.buffer-size:256}") int capacity,
+                                    @Value("${websocket.replay.idle-minutes:30}") long idleMinutes) {
+        this.capacity = capacity;
+        this.rings = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .maximumSize(10_000)
+                .build();
+    }
+
+    // numbering, buffering and sending happen under one lock so subscribers see seqs in order
+    public void publish(String shareCode, WsEnvelope frame, Consumer<WsEnvelope> sender) {
+        Ring ring = rings.get(shareCode, code -> new Ring(capacity));
+        synchronized (ring) {
+            WsEnvelope numbered = frame.withSeq(++ring.latest);
+            ring.append(numbered);
+            sender.accept(numbered);
+        }
+    }
+
+    public Replay since(String shareCode, long lastSeq) {
+        Ring ring = rings.getIfPresent(shareCode);
+        if (ring == null) {
+            return new Replay(false, List.of(), 0);
+        }
+        synchronized (ring) {
+            return ring.since(lastSeq);
+        }
+    }
+
+    private static final class Ring {
+
+        private final WsEnvelope[] frames;
+        private long latest = ThreadLocalRandom.current().nextLong(1L << 52);
+        private int size;
+
+        Ring(int capacity) {
+            this.frames = new WsEnvelope[capacity];
+        }
+
+        void append(WsEnvelope frame) {
+            frames[(int) (frame.seq() % frames.length)] = frame;
+            size = Math.min(size + 1, frames.length);
+        }
+
+        Replay since(long lastSeq) {
+            long oldest = latest - size + 1;
+            if (lastSeq > latest || lastSeq < oldest - 1) {
+                return new Replay(false, List.of(), latest);
+            }
+
+            List<WsEnvelope> missed = new ArrayList<>((int) (latest - lastSeq));
+            for (long seq = lastSeq + 1; seq <= latest; seq++) {
+                missed.add(frames[(int) (seq % frames.length)]);
+            }
+            return new Replay(true, missed, latest);
+        }
+    }
+}
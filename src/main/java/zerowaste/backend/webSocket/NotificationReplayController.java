@@ -0,0 +1,29 @@
+package zerowaste.backend.webSocket;
+
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.stereotype.Controller;
+
+@Controller
+public class NotificationReplayController {
+
+    private final NotificationReplayBuffer replayBuffer;
+
+    public record ReplayRequest(long lastSeq) {}
+
+    public NotificationReplayController(NotificationReplayBuffer replayBuffer) {
+        this.replayBuffer = replayBuffer;
+    }
+
+    // client sends to /app/notifications/{shareCode}/replay and listens on /user/queue/notifications
+    @MessageMapping("/notifications/{shareCode}/replay")
+    @SendToUser(value = "/queue/notifications", broadcast = false)
+    public WsEnvelope replay(@DestinationVariable String shareCode, @Payload ReplayRequest request) {
+        NotificationReplayBuffer.Replay replay = replayBuffer.since(shareCode, request.lastSeq());
+        return replay.complete()
+                ? new WsEnvelope("replay", replay.frames(), replay.latest())
+                : new WsEnvelope("reload", null, replay.latest());
+    }
+}
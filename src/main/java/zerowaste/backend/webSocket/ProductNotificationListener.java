@@ -3,19 +3,24 @@ package zerowaste.backend.webSocket;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.event.TransactionPhase;
 import org.springframework.transaction.event.TransactionalEventListener;
+import zerowaste.backend.webSocket.relay.NotificationRelay;
+import zerowaste.backend.webSocket.relay.RelayMessage;
 
 @Component
 public class ProductNotificationListener {
 
     private final ProductWsNotifier notifier;
+    private final NotificationRelay relay;
 
-    public ProductNotificationListener(ProductWsNotifier notifier) {
+    public ProductNotificationListener(ProductWsNotifier notifier, NotificationRelay relay) {
         this.notifier = notifier;
+        this.relay = relay;
     }
 
     @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
     public void handleProductListWsEvents(ProductListWsEvent event) {
         notifier.notifyList(event.shareCode(), event.type(), event.payload());
+        relay.publish(RelayMessage.PRODUCT_LIST, event.shareCode(), event.type(), event.payload());
     }
 
 
@@ -1,26 +1,136 @@
 package zerowaste.backend.webSocket;
 
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.stereotype.Service;
+import zerowaste.backend.product.models.Product;
+import zerowaste.backend.product.models.ProductDto;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Buffers list events per share code for a short window and sends them as one frame.
+// A single event keeps the old envelope, several go out as {"type":"batch","payload":[...]}.
+// Payloads are ProductDto snapshots and each frame is encoded once as JSON; the simple broker hands the same byte[]
+// to every subscriber session and WsCodec transcodes it once for the sessions that asked for CBOR. Every frame carries the next seq of its share code.
 @Service
 public class ProductWsNotifier {
 
+    static final String BATCH = "batch";
+
     private final SimpMessagingTemplate template;
+    private final ThreadPoolTaskScheduler taskScheduler;
+    private final WsCodec codec;
+    private final NotificationReplayBuffer replayBuffer;
+
+    @Value("${websocket.notifications.flush-window-ms:50}")
+    private long flushWindowMs;
 
-    public ProductWsNotifier(SimpMessagingTemplate template) {
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+
+    public ProductWsNotifier(SimpMessagingTemplate template, ThreadPoolTaskScheduler taskScheduler,
+                             WsCodec codec, NotificationReplayBuffer replayBuffer) {
         this.template = template;
+        this.taskScheduler = taskScheduler;
+        this.codec = codec;
+        this.replayBuffer = replayBuffer;
     }
 
     public void notifyList(String shareCode, String type, Object payload) {
-        String dest = "/topic/notifications/" + shareCode;
+        WsEnvelope envelope = new WsEnvelope(type, snapshot(payload));
+        if (flushWindowMs <= 0) {
+            sendFrame(shareCode, List.of(envelope));
+            return;
+        }
+
+        pending.compute(shareCode, (code, buffer) -> {
+            if (buffer == null) {
+                buffer = new Pending();
+                taskScheduler.schedule(() -> flush(code), Instant.now().plus(Duration.ofMillis(flushWindowMs)));
+            }
+            buffer.add(envelope);
+            return buffer;
+        });
+    }
+
+    public void flush(String shareCode) {
+        Pending buffer = pending.remove(shareCode);
+        if (buffer != null && !buffer.events.isEmpty()) {
+            sendFrame(shareCode, new ArrayList<>(buffer.events.values()));
+        }
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        for (String shareCode : List.copyOf(pending.keySet())) {
+            flush(shareCode);
+        }
+    }
 
-        System.out.println("[WS] convertAndSend dest=" + dest);
-        System.out.println("[WS] type=" + type);
-        System.out.println("[WS] payloadClass=" + (payload == null ? "null" : payload.getClass().getName()));
-        System.out.println("[WS] payload=" + payload);
-        template.convertAndSend("/topic/notifications/" + shareCode,
-                new WsEnvelope(type, payload));
+    private void sendFrame(String shareCode, List<WsEnvelope> events) {
+        WsEnvelope frame = events.size() == 1 ? events.getFirst() : new WsEnvelope(BATCH, events);
+        replayBuffer.publish(shareCode, frame, numbered -> send(shareCode, numbered));
     }
 
+    private void send(String shareCode, WsEnvelope frame) {
+        String destination = "/topic/notifications/" + shareCode;
+        Message<byte[]> message;
+        try {
+            message = codec.toMessage(frame);
+        } catch (RuntimeException e) {
+            System.err.println("WS notification for " + shareCode + " could not be serialized: " + e.getMessage());
+            return;
+        }
+        template.send(destination, message);
+    }
+
+    // entities are mutable and may be touched again before the window closes
+    private static Object snapshot(Object payload) {
+        return payload instanceof Product product ? ProductDto.from(product) : payload;
+    }
+
+    // only touched inside pending.compute / after pending.remove, so no extra locking
+    private static final class Pending {
+
+        private final LinkedHashMap<Object, WsEnvelope> events = new LinkedHashMap<>();
+        private int unkeyed;
+
+        void add(WsEnvelope envelope) {
+            Object key = productKey(envelope.payload());
+            if (key == null) {
+                events.put("event-" + unkeyed++, envelope);
+                return;
+            }
+
+            WsEnvelope previous = events.remove(key);
+            if (previous != null && "add_product".equals(previous.type())) {
+                // the collaborators never saw the product: add+update is still an add, add+delete is nothing
+                if ("delete_product".equals(envelope.type())) {
+                    return;
+                }
+                if ("update_product".equals(envelope.type())) {
+                    envelope = new WsEnvelope(previous.type(), envelope.payload());
+                }
+            }
+            events.put(key, envelope);
+        }
+
+        private static Object productKey(Object payload) {
+            if (payload instanceof ProductDto product) {
+                return product.id();
+            }
+            if (payload instanceof Long id) {
+                return id;
+            }
+            return null;
+        }
+    }
 }
@@ -0,0 +1,10 @@
+package zerowaste.backend.webSocket;
+
+public enum SlowConsumerPolicy {
+    // skip new MESSAGE frames until the session catches up
+    DROP,
+    // skip them, then send one resync_required envelope per affected destination
+    RESYNC,
+    // close the session, the client reconnects and reloads
+    DISCONNECT
+}
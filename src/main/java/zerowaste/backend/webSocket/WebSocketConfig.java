@@ -1,36 +1,148 @@
 package zerowaste.backend.webSocket;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.util.List;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final WebSocketTokenInterceptor tokenInterceptor;
+    private final WsSessionRegistry sessionRegistry;
+    private final WsCodec codec;
+    private final ThreadPoolTaskScheduler wsHeartbeatScheduler;
+
+    @Value("${websocket.heartbeat.server-ms:10000}")
+    private long heartbeatServerMs;
+
+    @Value("${websocket.heartbeat.client-ms:10000}")
+    private long heartbeatClientMs;
+
+    @Value("${websocket.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    @Value("${websocket.preserve-order:true}")
+    private boolean preserveOrder;
+
+    @Value("${websocket.inbound.core-pool-size:8}")
+    private int inboundCorePoolSize;
+
+    @Value("${websocket.inbound.max-pool-size:16}")
+    private int inboundMaxPoolSize;
+
+    @Value("${websocket.inbound.queue-capacity:10000}")
+    private int inboundQueueCapacity;
+
+    @Value("${websocket.outbound.core-pool-size:8}")
+    private int outboundCorePoolSize;
+
+    @Value("${websocket.outbound.max-pool-size:32}")
+    private int outboundMaxPoolSize;
+
+    @Value("${websocket.outbound.queue-capacity:10000}")
+    private int outboundQueueCapacity;
+
+    @Value("${websocket.broker.core-pool-size:4}")
+    private int brokerCorePoolSize;
+
+    @Value("${websocket.broker.max-pool-size:8}")
+    private int brokerMaxPoolSize;
+
+    @Value("${websocket.broker.queue-capacity:10000}")
+    private int brokerQueueCapacity;
+
+    @Value("${websocket.transport.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
 
-    public WebSocketConfig(WebSocketTokenInterceptor tokenInterceptor) {
+    @Value("${websocket.transport.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${websocket.transport.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    public WebSocketConfig(WebSocketTokenInterceptor tokenInterceptor, WsSessionRegistry sessionRegistry,
+                           WsCodec codec, ThreadPoolTaskScheduler wsHeartbeatScheduler) {
         this.tokenInterceptor = tokenInterceptor;
+        this.sessionRegistry = sessionRegistry;
+        this.codec = codec;
+        this.wsHeartbeatScheduler = wsHeartbeatScheduler;
     }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        // the broker disconnects clients that negotiated heartbeats and went quiet; WsSessionRegistry closes sockets that never sent CONNECT
+        config.enableSimpleBroker("/topic", "/queue")
+                .setHeartbeatValue(new long[]{heartbeatServerMs, heartbeatClientMs})
+                .setTaskScheduler(wsHeartbeatScheduler);
         config.setApplicationDestinationPrefixes("/app");
+        config.setPreservePublishOrder(preserveOrder);
+        configure(config.configureBrokerChannel(), "ws-broker-",
+                brokerCorePoolSize, brokerMaxPoolSize, brokerQueueCapacity);
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
+        registry.setPreserveReceiveOrder(preserveOrder);
         registry.addEndpoint("/ws-endpoint")
                 .setAllowedOriginPatterns("*");
     }
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        registration.interceptors(tokenInterceptor);
+        // the codec sees CONNECT and SUBSCRIBE after authentication, a rejected frame negotiates nothing
+        registration.interceptors(tokenInterceptor, codec);
+        configure(registration, "ws-inbound-",
+                inboundCorePoolSize, inboundMaxPoolSize, inboundQueueCapacity);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // encoded first, so the registry counts the bytes that go on the wire
+        registration.interceptors(codec, sessionRegistry);
+        configure(registration, "ws-outbound-",
+                outboundCorePoolSize, outboundMaxPoolSize, outboundQueueCapacity);
+    }
+
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        // strict content-type match, so it only claims CBOR labelled messages
+        messageConverters.add(codec.cborConverter());
+        return true;
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setMessageSizeLimit(messageSizeLimit)
+                .addDecoratorFactory(sessionRegistry::decorate);
+    }
+
+    // pool sizes are ignored with virtual threads, each message gets its own thread
+    private void configure(ChannelRegistration registration, String threadPrefix,
+                           int corePoolSize, int maxPoolSize, int queueCapacity) {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadPrefix);
+            executor.setVirtualThreads(true);
+            registration.executor(executor);
+            return;
+        }
+
+        registration.taskExecutor()
+                .corePoolSize(corePoolSize)
+                .maxPoolSize(maxPoolSize)
+                .queueCapacity(queueCapacity)
+                .keepAliveSeconds(60);
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package zerowaste.backend.webSocket;
 
+import io.jsonwebtoken.Claims;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.simp.stomp.StompCommand;
@@ -9,16 +10,20 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.stereotype.Component;
 import zerowaste.backend.security.AppUserDetailsService;
 import zerowaste.backend.security.JwtService;
+import zerowaste.backend.security.PrincipalCache;
 
 @Component
 public class WebSocketTokenInterceptor implements ChannelInterceptor {
 
     private final JwtService jwtService;
     private final AppUserDetailsService userDetailsService;
+    private final PrincipalCache principalCache;
 
-    public WebSocketTokenInterceptor(JwtService jwtService, AppUserDetailsService userDetailsService) {
+    public WebSocketTokenInterceptor(JwtService jwtService, AppUserDetailsService userDetailsService,
+                                     PrincipalCache principalCache) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.principalCache = principalCache;
     }
 
     @Override
@@ -31,9 +36,9 @@ public class WebSocketTokenInterceptor implements ChannelInterceptor {
             if (authHeader != null && authHeader.startsWith("Bearer ")) {
                 String token = authHeader.substring(7);
                 try {
-                    String email = jwtService.extractSubject(token, false);
-                    if (email != null && jwtService.isTokenValid(token, email, false)) {
-                        var userDetails = userDetailsService.loadUserByUsername(email);
+                    Claims claims = jwtService.parseValidClaims(token, false);
+                    if (claims != null && claims.getSubject() != null) {
+                        var userDetails = principalCache.get(claims.getSubject(), userDetailsService::loadUserByUsername);
                         UsernamePasswordAuthenticationToken auth =
                                 new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                         accessor.setUser(auth);
@@ -0,0 +1,186 @@
+package zerowaste.backend.webSocket;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Picks the payload codec per subscription: JSON unless the client asked for CBOR with an accept (or content-type)
+// header, e.g. accept:application/cbor. On CONNECT it sets the session's default, on SUBSCRIBE it only applies to
+// that subscription. The broker always fans out JSON; frames for CBOR subscriptions are transcoded on the client
+// outbound channel. Clients and the AI module read the content-type of each MESSAGE frame to decode it.
+@Component
+public class WsCodec implements ChannelInterceptor {
+
+    private static final String ACCEPT = "accept";
+    private static final String CONTENT_TYPE = "content-type";
+    // the broker copies a published message's headers into every subscriber's copy, so the transcoding built by
+    // toMessage runs once per frame; frames sent with convertAndSend are transcoded per CBOR subscriber
+    private static final String TRANSCODING = "zerowaste.cbor";
+
+    private static final class SessionCodec {
+        private volatile boolean cbor;
+        private final Map<String, Boolean> subscriptions = new ConcurrentHashMap<>();
+    }
+
+    private final class Transcoding {
+        private final byte[] json;
+        private volatile byte[] cbor;
+
+        private Transcoding(byte[] json) {
+            this.json = json;
+        }
+
+        private byte[] cbor() {
+            byte[] encoded = cbor;
+            if (encoded == null) {
+                synchronized (this) {
+                    if (cbor == null) {
+                        cbor = transcode(json);
+                    }
+                    encoded = cbor;
+                }
+            }
+            return encoded;
+        }
+    }
+
+    private final JsonMapper jsonMapper;
+    private final CBORMapper cborMapper = new CBORMapper();
+    private final CborMessageConverter cborConverter = new CborMessageConverter(cborMapper);
+    private final Map<String, SessionCodec> sessions = new ConcurrentHashMap<>();
+
+    public WsCodec(JsonMapper jsonMapper) {
+        this.jsonMapper = jsonMapper;
+    }
+
+    public CborMessageConverter cborConverter() {
+        return cborConverter;
+    }
+
+    public boolean isCbor(String sessionId, String subscriptionId) {
+        SessionCodec codec = sessionId == null ? null : sessions.get(sessionId);
+        if (codec == null) {
+            return false;
+        }
+        Boolean subscription = subscriptionId == null ? null : codec.subscriptions.get(subscriptionId);
+        return subscription != null ? subscription : codec.cbor;
+    }
+
+    public Message<byte[]> toMessage(Object payload) {
+        byte[] json = jsonMapper.writeValueAsBytes(payload);
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setHeader(TRANSCODING, new Transcoding(json));
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(json, accessor.getMessageHeaders());
+    }
+
+    // client inbound channel: CONNECT and SUBSCRIBE negotiate; client outbound channel: MESSAGE frames are encoded
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        if (type == SimpMessageType.CONNECT || type == SimpMessageType.SUBSCRIBE) {
+            negotiate(message, type);
+            return message;
+        }
+        if (type == SimpMessageType.UNSUBSCRIBE) {
+            SessionCodec codec = sessionCodec(message);
+            String subscriptionId = SimpMessageHeaderAccessor.getSubscriptionId(message.getHeaders());
+            if (codec != null && subscriptionId != null) {
+                codec.subscriptions.remove(subscriptionId);
+            }
+            return message;
+        }
+        if (type == SimpMessageType.MESSAGE) {
+            return encode(message);
+        }
+        return message;
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        sessions.remove(event.getSessionId());
+    }
+
+    // a CONNECT without either header is JSON, a SUBSCRIBE without one follows the session; the first listed type wins
+    private void negotiate(Message<?> message, SimpMessageType type) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        String sessionId = accessor.getSessionId();
+        if (sessionId == null) {
+            return;
+        }
+        String header = accessor.getFirstNativeHeader(ACCEPT);
+        if (header == null) {
+            header = accessor.getFirstNativeHeader(CONTENT_TYPE);
+        }
+
+        SessionCodec codec = sessions.computeIfAbsent(sessionId, id -> new SessionCodec());
+        if (type == SimpMessageType.CONNECT) {
+            codec.cbor = header != null && isCbor(header);
+        } else if (header != null && accessor.getSubscriptionId() != null) {
+            codec.subscriptions.put(accessor.getSubscriptionId(), isCbor(header));
+        }
+    }
+
+    private static boolean isCbor(String header) {
+        try {
+            List<MimeType> types = MimeTypeUtils.parseMimeTypes(header);
+            return !types.isEmpty() && CborMessageConverter.isCbor(types.getFirst());
+        } catch (InvalidMimeTypeException e) {
+            return false;
+        }
+    }
+
+    private Message<?> encode(Message<?> message) {
+        MimeType contentType = contentType(message);
+        MessageHeaders headers = message.getHeaders();
+        if (!(message.getPayload() instanceof byte[] json) || contentType == null
+                || !MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(contentType)
+                || !isCbor(SimpMessageHeaderAccessor.getSessionId(headers), SimpMessageHeaderAccessor.getSubscriptionId(headers))) {
+            return message;
+        }
+
+        byte[] cbor = headers.get(TRANSCODING) instanceof Transcoding transcoding && transcoding.json == json
+                ? transcoding.cbor()
+                : transcode(json);
+        MessageHeaderAccessor accessor = MessageHeaderAccessor.getMutableAccessor(message);
+        accessor.setContentType(CborMessageConverter.CBOR_FRAME);
+        accessor.removeHeader(TRANSCODING);
+        return MessageBuilder.createMessage(cbor, accessor.getMessageHeaders());
+    }
+
+    private SessionCodec sessionCodec(Message<?> message) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        return sessionId == null ? null : sessions.get(sessionId);
+    }
+
+    private byte[] transcode(byte[] json) {
+        return cborMapper.writeValueAsBytes(jsonMapper.readTree(json));
+    }
+
+    static MimeType contentType(Message<?> message) {
+        Object header = message.getHeaders().get(MessageHeaders.CONTENT_TYPE);
+        if (header instanceof MimeType mimeType) {
+            return mimeType;
+        }
+        return header instanceof String value ? MimeTypeUtils.parseMimeType(value) : null;
+    }
+}
@@ -1,3 +1,14 @@
 package zerowaste.backend.webSocket;
 
-public record WsEnvelope(String type, Object payload) {}
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+public record WsEnvelope(String type, Object payload, @JsonInclude(JsonInclude.Include.NON_NULL) Long seq) {
+
+    public WsEnvelope(String type, Object payload) {
+        this(type, payload, null);
+    }
+
+    public WsEnvelope withSeq(long seq) {
+        return new WsEnvelope(type, payload, seq);
+    }
+}
@@ -0,0 +1,348 @@
+package zerowaste.backend.webSocket;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+import tools.jackson.dataformat.cbor.CBORMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Tracks every STOMP session: frames handed to the socket but not yet written, their age, and subscriptions.
+// Installed as outbound channel interceptor (to see frames leave the broker) and as a handler decorator
+// (to see them hit the socket). Sessions over the thresholds get the configured SlowConsumerPolicy.
+// Sessions whose CONNECT promised heartbeats and that sent nothing for three heartbeat intervals are closed, as are
+// sockets that never sent CONNECT within websocket.idle.timeout-ms; listen-only clients without heartbeats stay.
+@Component
+public class WsSessionRegistry implements ExecutorChannelInterceptor {
+
+    // missed heartbeats tolerated before a session counts as gone, as in the STOMP broker
+    private static final int HEARTBEAT_MULTIPLIER = 3;
+
+    static final byte[] RESYNC = "{\"type\":\"resync_required\",\"payload\":null}".getBytes(StandardCharsets.UTF_8);
+    static final byte[] RESYNC_CBOR = new CBORMapper().writeValueAsBytes(new WsEnvelope("resync_required", null));
+
+    public record SessionStats(String id, int queuedFrames, long queuedBytes,
+                               long oldestMs, long lastLatencyMs, long idleMs, int subscriptions, long dropped) {}
+
+    public record Stats(SlowConsumerPolicy policy, int sessions, long opened, long closed, long reaped,
+                        long queuedBytes, long dropped, long disconnected,
+                        Map<String, Integer> subscribersPerTopic, List<SessionStats> slowest) {}
+
+    @Value("${websocket.slow-consumer.policy:RESYNC}")
+    private SlowConsumerPolicy policy;
+
+    @Value("${websocket.slow-consumer.max-queued-bytes:262144}")
+    private long maxQueuedBytes;
+
+    @Value("${websocket.slow-consumer.max-latency-ms:5000}")
+    private long maxLatencyMs;
+
+    @Value("${websocket.idle.timeout-ms:60000}")
+    private long idleTimeoutMs;
+
+    // how often the server wants to hear from clients, the same value the broker advertises
+    @Value("${websocket.heartbeat.client-ms:10000}")
+    private long heartbeatClientMs;
+
+    private final Map<String, SessionState> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong disconnected = new AtomicLong();
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong closed = new AtomicLong();
+    private final AtomicLong reaped = new AtomicLong();
+
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                SessionState state = new SessionState(session);
+                sessions.put(session.getId(), state);
+                opened.incrementAndGet();
+                super.afterConnectionEstablished(new TrackingSession(session, state));
+            }
+
+            @Override
+            public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+                SessionState state = sessions.get(session.getId());
+                if (state != null) {
+                    state.lastInboundNanos = System.nanoTime();
+                }
+                super.handleMessage(session, message);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                closed.incrementAndGet();
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        SessionState state = stateOf(message);
+        if (state == null) {
+            return message;
+        }
+
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+            String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+            if (state.isSlow(maxQueuedBytes, maxLatencyMs)) {
+                state.dropped.incrementAndGet();
+                dropped.incrementAndGet();
+                switch (policy) {
+                    case RESYNC -> state.resync.add(destination);
+                    case DISCONNECT -> disconnect(state);
+                    case DROP -> { }
+                }
+                return null;
+            }
+
+            if (state.resync.remove(destination)) {
+                // the client reloads the list anyway, so this frame is replaced rather than queued behind the marker
+                byte[] marker = CborMessageConverter.isCbor(WsCodec.contentType(message)) ? RESYNC_CBOR : RESYNC;
+                message = MessageBuilder.createMessage(marker, message.getHeaders());
+            }
+        }
+
+        // counted before the handler runs, the socket write can happen on this very thread
+        state.accepted(message.getPayload() instanceof byte[] bytes ? bytes.length : 0);
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        SessionState state = stateOf(message);
+        if (state != null && ex != null) {
+            state.rejected();
+        }
+    }
+
+    // heart-beat cx,cy: the client can send every cx ms; zero, or a server that expects nothing, means no heartbeats
+    @EventListener
+    public void onConnect(SessionConnectEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        SessionState state = sessions.get(accessor.getSessionId());
+        if (state == null) {
+            return;
+        }
+        long[] heartbeat = accessor.getHeartbeat();
+        long interval = heartbeat[0] > 0 && heartbeatClientMs > 0 ? Math.max(heartbeat[0], heartbeatClientMs) : 0;
+        state.idleLimitNanos = interval * HEARTBEAT_MULTIPLIER * 1_000_000;
+        state.connected = true;
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        SessionState state = sessions.get(accessor.getSessionId());
+        if (state != null && accessor.getSubscriptionId() != null && accessor.getDestination() != null) {
+            state.subscriptions.put(accessor.getSubscriptionId(), accessor.getDestination());
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        SessionState state = sessions.get(accessor.getSessionId());
+        if (state != null && accessor.getSubscriptionId() != null) {
+            state.subscriptions.remove(accessor.getSubscriptionId());
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        sessions.remove(event.getSessionId());
+    }
+
+    // catches sockets that went quiet although they promised heartbeats, or never sent CONNECT at all
+    @Scheduled(fixedDelayString = "${websocket.idle.check-interval-ms:15000}")
+    public void reapIdle() {
+        long now = System.nanoTime();
+        int count = 0;
+        for (SessionState state : sessions.values()) {
+            long limit = state.connected ? state.idleLimitNanos : idleTimeoutMs * 1_000_000;
+            if (limit > 0 && now - state.lastInboundNanos > limit && sessions.remove(state.session.getId()) != null) {
+                count++;
+                close(state, CloseStatus.SESSION_NOT_RELIABLE.withReason("idle"));
+            }
+        }
+
+        if (count > 0) {
+            reaped.addAndGet(count);
+            System.out.println("Reaped " + count + " idle WS sessions, " + sessions.size() + " open");
+        }
+    }
+
+    public int subscribers(String destination) {
+        int count = 0;
+        for (SessionState state : sessions.values()) {
+            if (state.subscriptions.containsValue(destination)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public Stats stats(int top) {
+        Map<String, Integer> topics = new TreeMap<>();
+        long queuedBytes = 0;
+        for (SessionState state : sessions.values()) {
+            queuedBytes += state.queuedBytes();
+            Set<String> families = new HashSet<>();
+            for (String destination : state.subscriptions.values()) {
+                families.add(topicFamily(destination));
+            }
+            for (String family : families) {
+                topics.merge(family, 1, Integer::sum);
+            }
+        }
+
+        List<SessionStats> slowest = sessions.values().stream()
+                .map(SessionState::snapshot)
+                .sorted(Comparator.comparingLong(SessionStats::queuedBytes).reversed())
+                .limit(top)
+                .toList();
+
+        return new Stats(policy, sessions.size(), opened.get(), closed.get(), reaped.get(),
+                queuedBytes, dropped.get(), disconnected.get(), topics, slowest);
+    }
+
+    // the stats are served over HTTP: /topic/notifications/<share code or email> counts as /topic/notifications
+    private static String topicFamily(String destination) {
+        int slash = destination.indexOf('/', destination.indexOf('/', 1) + 1);
+        return slash < 0 ? destination : destination.substring(0, slash);
+    }
+
+    private SessionState stateOf(Message<?> message) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        return sessionId == null ? null : sessions.get(sessionId);
+    }
+
+    private void disconnect(SessionState state) {
+        if (sessions.remove(state.session.getId()) == null) {
+            return;
+        }
+        disconnected.incrementAndGet();
+        close(state, CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    private static void close(SessionState state, CloseStatus status) {
+        try {
+            state.session.close(status);
+        } catch (IOException e) {
+            System.err.println("Could not close WS session " + state.session.getId() + ": " + e.getMessage());
+        }
+    }
+
+    private static final class SessionState {
+
+        private record Frame(long acceptedNanos, int bytes) {}
+
+        private final WebSocketSession session;
+        private final ArrayDeque<Frame> queue = new ArrayDeque<>();
+        private final Map<String, String> subscriptions = new ConcurrentHashMap<>();
+        private final Set<String> resync = ConcurrentHashMap.newKeySet();
+        private final AtomicLong dropped = new AtomicLong();
+        private long queuedBytes;
+        private long lastLatencyNanos;
+        private volatile long lastInboundNanos = System.nanoTime();
+        private volatile boolean connected;
+        // 0 when the client sends no heartbeats, it is then never reaped for being quiet
+        private volatile long idleLimitNanos;
+
+        SessionState(WebSocketSession session) {
+            this.session = session;
+        }
+
+        synchronized void accepted(int bytes) {
+            queue.addLast(new Frame(System.nanoTime(), bytes));
+            queuedBytes += bytes;
+        }
+
+        synchronized void rejected() {
+            Frame frame = queue.pollLast();
+            if (frame != null) {
+                queuedBytes -= frame.bytes();
+            }
+        }
+
+        // frames are written in the order they were accepted; writes that were never
+        // accepted through the channel (transport errors) find an empty queue
+        synchronized void written() {
+            Frame frame = queue.pollFirst();
+            if (frame != null) {
+                queuedBytes -= frame.bytes();
+                lastLatencyNanos = System.nanoTime() - frame.acceptedNanos();
+            }
+        }
+
+        synchronized long queuedBytes() {
+            return queuedBytes;
+        }
+
+        synchronized boolean isSlow(long maxBytes, long maxLatencyMs) {
+            return queuedBytes > maxBytes || oldestNanos() > maxLatencyMs * 1_000_000;
+        }
+
+        synchronized SessionStats snapshot() {
+            return new SessionStats(session.getId(), queue.size(), queuedBytes,
+                    oldestNanos() / 1_000_000, lastLatencyNanos / 1_000_000,
+                    (System.nanoTime() - lastInboundNanos) / 1_000_000, subscriptions.size(), dropped.get());
+        }
+
+        private long oldestNanos() {
+            Frame oldest = queue.peekFirst();
+            return oldest == null ? 0 : System.nanoTime() - oldest.acceptedNanos();
+        }
+    }
+
+    private static final class TrackingSession extends WebSocketSessionDecorator {
+
+        private final SessionState state;
+
+        TrackingSession(WebSocketSession session, SessionState state) {
+            super(session);
+            this.state = state;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            try {
+                super.sendMessage(message);
+            } finally {
+                state.written();
+            }
+        }
+    }
+}
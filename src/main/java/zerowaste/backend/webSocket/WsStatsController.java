@@ -0,0 +1,36 @@
+package zerowaste.backend.webSocket;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.socket.config.WebSocketMessageBrokerStats;
+
+import java.util.Map;
+
+// Off by default. Topics are grouped without their share codes and sessions carry no user names.
+@RestController
+@RequestMapping("/ws/stats")
+@ConditionalOnProperty(name = "websocket.stats.enabled", havingValue = "true")
+public class WsStatsController {
+
+    private final WsSessionRegistry sessionRegistry;
+    private final WebSocketMessageBrokerStats brokerStats;
+
+    public WsStatsController(WsSessionRegistry sessionRegistry, WebSocketMessageBrokerStats brokerStats) {
+        this.sessionRegistry = sessionRegistry;
+        this.brokerStats = brokerStats;
+    }
+
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping
+    public ResponseEntity<?> stats(@RequestParam(defaultValue = "10") int top) {
+        return ResponseEntity.ok(Map.of(
+                "sessions", sessionRegistry.stats(top),
+                "broker", brokerStats.toString()
+        ));
+    }
+}
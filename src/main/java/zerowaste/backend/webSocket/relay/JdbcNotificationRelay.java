@@ -0,0 +1,182 @@
+package zerowaste.backend.webSocket.relay;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+import zerowaste.backend.product.models.ProductDto;
+import zerowaste.backend.recipe.RecipeService;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Relays through a shared table: publishes are written in batches, every node polls for newer rows.
+// Identity values can commit out of order, so the ids a poll skipped over are looked up again for gap-ms;
+// an idle poll reads nothing. RelayInbox drops repeats.
+@Component
+@ConditionalOnProperty(name = "notifications.relay.mode", havingValue = "jdbc")
+public class JdbcNotificationRelay implements NotificationRelay {
+
+    // bounds the ids looked up again, a gap that wide is a burst of rollbacks rather than slow commits
+    private static final int MAX_GAPS = 10_000;
+
+    private static final Map<String, Class<?>> PAYLOAD_TYPES = Map.of(
+            "ProductDto", ProductDto.class,
+            "Long", Long.class,
+            "PythonPayload", RecipeService.PythonPayload.class
+    );
+
+    private final RelayRecordRepository repository;
+    private final RelayInbox inbox;
+    private final JsonMapper jsonMapper;
+    private final ThreadPoolTaskScheduler taskScheduler;
+
+    private final String node = UUID.randomUUID().toString();
+    private final AtomicLong seq = new AtomicLong();
+    private final Queue<RelayRecord> outbox = new ConcurrentLinkedQueue<>();
+
+    @Value("${notifications.relay.poll-ms:200}")
+    private long pollMs;
+
+    @Value("${notifications.relay.batch-size:500}")
+    private int batchSize;
+
+    @Value("${notifications.relay.gap-ms:5000}")
+    private long gapMs;
+
+    @Value("${notifications.relay.retention-minutes:10}")
+    private long retentionMinutes;
+
+    private long lastSeen;
+    // ids below lastSeen not read yet, with the time they were first skipped
+    private final Map<Long, Long> gaps = new LinkedHashMap<>();
+    private long lastCleanup;
+    private ScheduledFuture<?> poller;
+
+    public JdbcNotificationRelay(RelayRecordRepository repository, RelayInbox inbox, JsonMapper jsonMapper,
+                                 ThreadPoolTaskScheduler taskScheduler) {
+        this.repository = repository;
+        this.inbox = inbox;
+        this.jsonMapper = jsonMapper;
+        this.taskScheduler = taskScheduler;
+    }
+
+    @PostConstruct
+    public void start() {
+        lastSeen = repository.findMaxId();
+        poller = taskScheduler.scheduleWithFixedDelay(this::tick, Duration.ofMillis(pollMs));
+        System.out.println("Notification relay " + node + " polling from id " + lastSeen);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (poller != null) {
+            poller.cancel(false);
+        }
+        flushOutbox();
+    }
+
+    @Override
+    public void publish(String kind, String key, String type, Object payload) {
+        RelayRecord record = new RelayRecord();
+        record.setNode(node);
+        record.setSeq(seq.incrementAndGet());
+        record.setKind(kind);
+        record.setKey(key);
+        record.setType(type);
+        record.setCreatedAt(Instant.now());
+        if (payload != null) {
+            String payloadType = payload.getClass().getSimpleName();
+            if (PAYLOAD_TYPES.containsKey(payloadType)) {
+                record.setPayloadType(payloadType);
+                record.setPayload(jsonMapper.writeValueAsString(payload));
+            } else {
+                System.err.println("Relay payload type not supported, sending without payload: " + payloadType);
+            }
+        }
+        outbox.add(record);
+    }
+
+    synchronized void tick() {
+        try {
+            flushOutbox();
+            poll();
+            cleanup();
+        } catch (RuntimeException e) {
+            System.err.println("Notification relay tick failed: " + e.getMessage());
+        }
+    }
+
+    private void flushOutbox() {
+        List<RelayRecord> batch = new ArrayList<>();
+        RelayRecord record;
+        while ((record = outbox.poll()) != null) {
+            batch.add(record);
+        }
+        if (!batch.isEmpty()) {
+            repository.saveAll(batch);
+        }
+    }
+
+    private void poll() {
+        long now = System.currentTimeMillis();
+        if (!gaps.isEmpty()) {
+            gaps.values().removeIf(skippedAt -> now - skippedAt > gapMs);
+            if (!gaps.isEmpty()) {
+                for (RelayRecord row : repository.findAllById(List.copyOf(gaps.keySet()))) {
+                    gaps.remove(row.getId());
+                    receive(row);
+                }
+            }
+        }
+
+        List<RelayRecord> rows;
+        do {
+            rows = repository.findByIdGreaterThanOrderByIdAsc(lastSeen, Limit.of(batchSize));
+            for (RelayRecord row : rows) {
+                for (long id = lastSeen + 1; id < row.getId() && gaps.size() < MAX_GAPS; id++) {
+                    gaps.put(id, now);
+                }
+                receive(row);
+                lastSeen = row.getId();
+            }
+        } while (rows.size() == batchSize);
+    }
+
+    // a row is only read again while it was a gap, repeats are still dropped before decoding
+    private void receive(RelayRecord row) {
+        if (!node.equals(row.getNode()) && inbox.markSeen(RelayMessage.id(row.getNode(), row.getSeq()))) {
+            inbox.deliver(toMessage(row));
+        }
+    }
+
+    private void cleanup() {
+        long now = System.currentTimeMillis();
+        if (now - lastCleanup > Duration.ofMinutes(1).toMillis()) {
+            lastCleanup = now;
+            repository.deleteCreatedBefore(Instant.now().minus(Duration.ofMinutes(retentionMinutes)));
+        }
+    }
+
+    private RelayMessage toMessage(RelayRecord row) {
+        Object payload = null;
+        Class<?> payloadType = row.getPayloadType() == null ? null : PAYLOAD_TYPES.get(row.getPayloadType());
+        if (payloadType != null && row.getPayload() != null) {
+            payload = jsonMapper.readValue(row.getPayload(), payloadType);
+        }
+        return new RelayMessage(row.getNode(), row.getSeq(), row.getKind(), row.getKey(), row.getType(), payload);
+    }
+}
@@ -0,0 +1,52 @@
+package zerowaste.backend.webSocket.relay;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Single JVM relay. With its own hub (the default) there are no other nodes and publish does nothing;
+// tests join several relays to one Hub to play a cluster in-process.
+@Component
+@ConditionalOnProperty(name = "notifications.relay.mode", havingValue = "loopback", matchIfMissing = true)
+public class LoopbackNotificationRelay implements NotificationRelay {
+
+    public static final class Hub {
+
+        private final List<LoopbackNotificationRelay> nodes = new CopyOnWriteArrayList<>();
+
+        void deliver(RelayMessage message) {
+            for (LoopbackNotificationRelay node : nodes) {
+                if (!node.node.equals(message.node())) {
+                    node.inbox.receive(message);
+                }
+            }
+        }
+    }
+
+    private final String node;
+    private final Hub hub;
+    private final RelayInbox inbox;
+    private final AtomicLong seq = new AtomicLong();
+
+    @Autowired
+    public LoopbackNotificationRelay(RelayInbox inbox) {
+        this(UUID.randomUUID().toString(), new Hub(), inbox);
+    }
+
+    public LoopbackNotificationRelay(String node, Hub hub, RelayInbox inbox) {
+        this.node = node;
+        this.hub = hub;
+        this.inbox = inbox;
+        hub.nodes.add(this);
+    }
+
+    @Override
+    public void publish(String kind, String key, String type, Object payload) {
+        hub.deliver(new RelayMessage(node, seq.incrementAndGet(), kind, key, type, payload));
+    }
+}
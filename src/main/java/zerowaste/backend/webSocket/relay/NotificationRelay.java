@@ -0,0 +1,8 @@
+package zerowaste.backend.webSocket.relay;
+
+// Forwards notifications to the other backend nodes. The publishing node has already
+// delivered to its own sockets, receivers hand the message to their RelayInbox.
+public interface NotificationRelay {
+
+    void publish(String kind, String key, String type, Object payload);
+}
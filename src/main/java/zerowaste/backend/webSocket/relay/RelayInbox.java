@@ -0,0 +1,85 @@
+package zerowaste.backend.webSocket.relay;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import zerowaste.backend.notification.DailyPlanifierService;
+import zerowaste.backend.product.service.ExpiringProductIndex;
+import zerowaste.backend.recipe.RecipeService;
+import zerowaste.backend.webSocket.ProductWsNotifier;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Delivers relayed notifications to the sockets of this node, each (node, seq) once. A recipes-ready message
+// carries the ranking, which goes into this node's cache first so the client's next page request is a hit.
+// A notification slot moves a user in this node's wheel, whichever node owns the user's partition.
+@Component
+public class RelayInbox {
+
+    private static final int REMEMBERED = 100_000;
+
+    private final ProductWsNotifier notifier;
+    private final SimpMessagingTemplate template;
+    private final ExpiringProductIndex expiringProducts;
+    private final CacheManager cacheManager;
+    // the planifier publishes through the relay, so it is looked up when a slot arrives
+    private final ObjectProvider<DailyPlanifierService> planifier;
+
+    private final Map<String, Boolean> seen = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > REMEMBERED;
+        }
+    };
+
+    public RelayInbox(ProductWsNotifier notifier, SimpMessagingTemplate template, ExpiringProductIndex expiringProducts,
+                      CacheManager cacheManager, ObjectProvider<DailyPlanifierService> planifier) {
+        this.notifier = notifier;
+        this.template = template;
+        this.expiringProducts = expiringProducts;
+        this.cacheManager = cacheManager;
+        this.planifier = planifier;
+    }
+
+    public boolean receive(RelayMessage message) {
+        if (!markSeen(message.id())) {
+            return false;
+        }
+        deliver(message);
+        return true;
+    }
+
+    // true the first time an id comes by, lets pollers skip repeats before decoding them
+    public boolean markSeen(String id) {
+        synchronized (seen) {
+            return seen.put(id, Boolean.TRUE) == null;
+        }
+    }
+
+    public void deliver(RelayMessage message) {
+        switch (message.kind()) {
+            case RelayMessage.PRODUCT_LIST -> {
+                expiringProducts.apply(message.key(), message.type(), message.payload());
+                notifier.notifyList(message.key(), message.type(), message.payload());
+            }
+            case RelayMessage.RECIPES_READY -> {
+                if (message.payload() instanceof RecipeService.PythonPayload ranking) {
+                    Cache cache = cacheManager.getCache("userRecipes");
+                    if (cache != null) {
+                        cache.put(ranking.email(), ranking.recipe_ids());
+                    }
+                }
+                template.convertAndSend("/topic/notifications/" + message.key(), new RecipeService.WsMessage(message.type()));
+            }
+            case RelayMessage.NOTIFICATION_SLOT -> {
+                long userId = Long.parseLong(message.key());
+                int minute = message.payload() instanceof Long m ? m.intValue() : -1;
+                planifier.ifAvailable(p -> p.applySlot(userId, minute));
+            }
+            default -> System.err.println("Unknown relayed notification kind: " + message.kind());
+        }
+    }
+}
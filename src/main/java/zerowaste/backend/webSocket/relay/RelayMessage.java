@@ -0,0 +1,17 @@
+package zerowaste.backend.webSocket.relay;
+
+// One notification as it travels between backend nodes; (node, seq) identifies it for de-duplication.
+public record RelayMessage(String node, long seq, String kind, String key, String type, Object payload) {
+
+    public static final String PRODUCT_LIST = "product_list";
+    public static final String RECIPES_READY = "recipes_ready";
+    public static final String NOTIFICATION_SLOT = "notification_slot";
+
+    public String id() {
+        return id(node, seq);
+    }
+
+    public static String id(String node, long seq) {
+        return node + ":" + seq;
+    }
+}
@@ -0,0 +1,99 @@
+package zerowaste.backend.webSocket.relay;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "notification_relay", indexes = @Index(columnList = "created_at"))
+public class RelayRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    private String node;
+
+    private long seq;
+
+    private String kind;
+
+    private String relay_key;
+
+    private String type;
+
+    private String payload_type;
+
+    @Column(columnDefinition = "text")
+    private String payload;
+
+    private Instant created_at;
+
+    public long getId() {
+        return id;
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    public void setNode(String node) {
+        this.node = node;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    public String getKey() {
+        return relay_key;
+    }
+
+    public void setKey(String key) {
+        this.relay_key = key;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getPayloadType() {
+        return payload_type;
+    }
+
+    public void setPayloadType(String payload_type) {
+        this.payload_type = payload_type;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public Instant getCreatedAt() {
+        return created_at;
+    }
+
+    public void setCreatedAt(Instant created_at) {
+        this.created_at = created_at;
+    }
+}
@@ -0,0 +1,23 @@
+package zerowaste.backend.webSocket.relay;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface RelayRecordRepository extends JpaRepository<RelayRecord, Long> {
+
+    List<RelayRecord> findByIdGreaterThanOrderByIdAsc(long id, Limit limit);
+
+    @Query("select coalesce(max(r.id), 0) from RelayRecord r")
+    long findMaxId();
+
+    @Modifying
+    @Transactional
+    @Query("delete from RelayRecord r where r.created_at < :before")
+    int deleteCreatedBefore(Instant before);
+}
@@ -0,0 +1,75 @@
+package zerowaste.backend.config;
+
+import org.junit.jupiter.api.Test;
+import zerowaste.backend.product.models.Product;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AppClockTest {
+
+    private static final ZoneId BUCHAREST = ZoneId.of("Europe/Bucharest");
+
+    // a clock the test moves by hand
+    private static class SteppedClock extends Clock {
+
+        private Instant now;
+
+        SteppedClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return BUCHAREST;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    @Test
+    void testTodayRollsOverAtLocalMidnight() {
+        // Arrange - 23:59 in Bucharest
+        SteppedClock time = new SteppedClock(Instant.parse("2026-10-19T20:59:00Z"));
+        AppClock clock = new AppClock(time);
+        assertEquals(LocalDate.of(2026, 10, 19), clock.todayDate());
+
+        // Act
+        time.advance(Duration.ofMinutes(1));
+
+        // Assert
+        assertEquals(LocalDate.of(2026, 10, 20).toEpochDay(), clock.today());
+        assertEquals(LocalDate.of(2026, 10, 20).atStartOfDay(), clock.now());
+    }
+
+    @Test
+    void testExpiresSoonOverEpochDays() {
+        int today = (int) LocalDate.of(2026, 10, 19).toEpochDay();
+
+        assertTrue(Product.expiresSoon(today, Product.NO_DATE, 0, today));
+        assertTrue(Product.expiresSoon(today + 3, Product.NO_DATE, 0, today));
+        assertFalse(Product.expiresSoon(today + 4, Product.NO_DATE, 0, today));
+        assertFalse(Product.expiresSoon(today - 1, Product.NO_DATE, 0, today));
+        // opened yesterday with two days to eat it wins over a far best before
+        assertTrue(Product.expiresSoon(today + 30, today - 1, 2, today));
+        assertFalse(Product.expiresSoon(Product.NO_DATE, today, 0, today));
+        assertFalse(Product.expiresSoon(Product.NO_DATE, Product.NO_DATE, 0, today));
+    }
+}
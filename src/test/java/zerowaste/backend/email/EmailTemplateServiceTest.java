@@ -0,0 +1,73 @@
+package zerowaste.backend.email;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+import zerowaste.backend.product.models.Product;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailTemplateServiceTest {
+
+    private EmailTemplateService service;
+
+    @BeforeEach
+    void setUp() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        service = new EmailTemplateService(engine);
+    }
+
+    @Test
+    void testRenderExpiringProducts_MatchesEngineOutput() {
+        // Arrange
+        List<Product> products = new ArrayList<>();
+        products.add(product("Milk", LocalDate.of(2026, 1, 8)));
+        products.add(product("Fish & <Chips>", LocalDate.of(2026, 1, 9)));
+        products.add(product("Bread", null));
+
+        for (int size = 0; size <= products.size(); size++) {
+            List<Product> subset = products.subList(0, size);
+
+            // Act
+            String fast = service.renderExpiringProducts(subset, 2, "http://localhost:8100/");
+            String engine = service.render(EmailTemplateService.EXPIRING_PRODUCTS,
+                    Map.of("products", subset, "days", 2, "frontendUrl", "http://localhost:8100/"));
+
+            // Assert
+            assertEquals(engine, fast);
+        }
+    }
+
+    @Test
+    void testRenderExpiringProducts_EscapesNames() {
+        // Act
+        String html = service.renderExpiringProducts(List.of(product("<script>", LocalDate.of(2026, 3, 1))),
+                1, "http://localhost:8100/");
+
+        // Assert
+        assertFalse(html.contains("<script>"));
+        assertTrue(html.contains("&lt;script&gt;"));
+        assertTrue(html.contains("01 Mar, 26"));
+    }
+
+    private static Product product(String name, LocalDate bestBefore) {
+        Product product = new Product();
+        product.setName(name);
+        product.setBestBefore(bestBefore);
+        return product;
+    }
+}
@@ -0,0 +1,183 @@
+package zerowaste.backend.email;
+
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MailDispatcherTest {
+
+    @Mock
+    private JavaMailSender mailSender;
+
+    @InjectMocks
+    private MailDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(dispatcher, "workers", 1);
+        ReflectionTestUtils.setField(dispatcher, "queueCapacity", 100);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 10);
+        ReflectionTestUtils.setField(dispatcher, "offerTimeoutMs", 0L);
+        ReflectionTestUtils.setField(dispatcher, "shutdownTimeoutMs", 5000L);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        dispatcher.stop();
+    }
+
+    @Test
+    void testQueuedMessagesShareOneSend() throws Exception {
+        // Arrange - the first send holds the worker until three more messages are queued
+        CountDownLatch release = new CountDownLatch(1);
+        List<MimeMessage[]> calls = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            calls.add(invocation.getArgument(0));
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(mailSender).send(any(MimeMessage[].class));
+        dispatcher.start();
+
+        // Act
+        dispatcher.submit(message("first@example.com"), false);
+        while (calls.isEmpty()) {
+            Thread.sleep(5);
+        }
+        for (int i = 0; i < 3; i++) {
+            assertTrue(dispatcher.submit(message("user" + i + "@example.com"), false));
+        }
+        release.countDown();
+        awaitSent(4);
+
+        // Assert
+        assertEquals(2, calls.size());
+        assertEquals(3, calls.get(1).length);
+        assertEquals(2, dispatcher.stats().batches());
+    }
+
+    @Test
+    void testSubmitRejectsWhenQueueIsFull() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(dispatcher, "queueCapacity", 1);
+        dispatcher.start();
+        dispatcher.stop();
+
+        // Act
+        boolean first = dispatcher.submit(message("a@example.com"), false);
+        boolean second = dispatcher.submit(message("b@example.com"), false);
+
+        // Assert
+        assertTrue(first);
+        assertFalse(second);
+        assertEquals(1, dispatcher.stats().rejected());
+        verifyNoInteractions(mailSender);
+    }
+
+    @Test
+    void testDomainsAreThrottled() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(dispatcher, "perDomainPerSecond", 2.0);
+        dispatcher.start();
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            dispatcher.submit(message("user" + i + "@slow.example"), false);
+        }
+        dispatcher.submit(message("someone@fast.example"), false);
+        awaitSent(4);
+
+        // Assert - two tokens for slow.example, the third message waited for a refill
+        ArgumentCaptor<MimeMessage[]> batches = ArgumentCaptor.forClass(MimeMessage[].class);
+        verify(mailSender, atLeast(2)).send(batches.capture());
+        assertTrue(dispatcher.stats().throttled() > 0);
+        assertEquals(4, batches.getAllValues().stream().mapToInt(batch -> batch.length).sum());
+    }
+
+    @Test
+    void testCallbacksReportPartialFailures() throws Exception {
+        // Arrange
+        MimeMessage ok = message("ok@example.com");
+        MimeMessage bounced = message("bounced@example.com");
+        doThrow(new MailSendException(Map.of(bounced, new MessagingException("mailbox unavailable"))))
+                .when(mailSender).send(any(MimeMessage[].class));
+        Map<String, String> outcomes = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(2);
+        dispatcher.start();
+
+        // Act
+        dispatcher.submit(ok, false, (sent, error) -> {
+            outcomes.put("ok", sent + ":" + error);
+            done.countDown();
+        });
+        dispatcher.submit(bounced, false, (sent, error) -> {
+            outcomes.put("bounced", sent + ":" + error);
+            done.countDown();
+        });
+
+        // Assert
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals("true:null", outcomes.get("ok"));
+        assertEquals("false:mailbox unavailable", outcomes.get("bounced"));
+        assertEquals(1, dispatcher.stats().failed());
+    }
+
+    @Test
+    void testIdleWorkerWakesUpForUrgentMail() throws Exception {
+        // Arrange - the worker has gone idle
+        CountDownLatch sent = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            sent.countDown();
+            return null;
+        }).when(mailSender).send(any(MimeMessage[].class));
+        dispatcher.start();
+        Thread.sleep(100);
+
+        // Act
+        long start = System.nanoTime();
+        assertTrue(dispatcher.submit(message("user@example.com"), true));
+
+        // Assert - well before the idle wait would have run out on its own
+        assertTrue(sent.await(500, TimeUnit.MILLISECONDS));
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 500);
+    }
+
+    private void awaitSent(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (dispatcher.stats().sent() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, dispatcher.stats().sent());
+    }
+
+    private static MimeMessage message(String to) throws Exception {
+        MimeMessage message = new MimeMessage(Session.getInstance(new Properties()));
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress(to));
+        message.setSubject("Expiring Products Alert");
+        return message;
+    }
+}
@@ -0,0 +1,100 @@
+package zerowaste.backend.email;
+
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MailServiceTest {
+
+    @Mock
+    private JavaMailSender mailSender;
+
+    @Mock
+    private MailDispatcher dispatcher;
+
+    @InjectMocks
+    private MailService mailService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(mailService, "from", "noreply@example.com");
+        ReflectionTestUtils.setField(mailService, "urgentTimeoutMs", 1000L);
+        when(mailSender.createMimeMessage()).thenReturn(new MimeMessage(Session.getInstance(new Properties())));
+    }
+
+    @Test
+    void testSendHtmlEmail_ReturnsOnceTheServerTookIt() {
+        // Arrange
+        answerUrgent(true, true, null);
+
+        // Act & Assert
+        assertDoesNotThrow(() -> mailService.sendHtmlEmail("user@example.com", "Verify account", "<p>hi</p>"));
+        verify(dispatcher).submit(any(MimeMessage.class), eq(true), any());
+    }
+
+    @Test
+    void testSendHtmlEmail_FullUrgentLaneThrows() {
+        // Arrange - the dispatcher reports the rejection through the callback and returns false
+        answerUrgent(false, false, "mail queue full");
+
+        // Act
+        MailSendException e = assertThrows(MailSendException.class,
+                () -> mailService.sendHtmlEmail("user@example.com", "Verify account", "<p>hi</p>"));
+
+        // Assert
+        assertTrue(e.getMessage().contains("mail queue full"), e.getMessage());
+    }
+
+    @Test
+    void testSendHtmlEmail_RefusedMessageThrows() {
+        // Arrange
+        answerUrgent(true, false, "550 mailbox unavailable");
+
+        // Act & Assert
+        assertThrows(MailSendException.class,
+                () -> mailService.sendHtmlEmail("user@example.com", "Reset your password", "<p>hi</p>"));
+    }
+
+    @Test
+    void testSendHtmlEmail_SlowServerDoesNotHoldTheCaller() {
+        // Arrange - queued, the SMTP answer comes after the caller stopped waiting
+        ReflectionTestUtils.setField(mailService, "urgentTimeoutMs", 50L);
+        MailDispatcher.Callback[] callback = new MailDispatcher.Callback[1];
+        doAnswer(invocation -> {
+            callback[0] = invocation.getArgument(2);
+            return true;
+        }).when(dispatcher).submit(any(MimeMessage.class), eq(true), any());
+
+        // Act
+        long start = System.nanoTime();
+        assertDoesNotThrow(() -> mailService.sendHtmlEmail("user@example.com", "Verify account", "<p>hi</p>"));
+        long waitedMs = (System.nanoTime() - start) / 1_000_000;
+
+        // Assert - a late refusal is only logged
+        assertTrue(waitedMs < 1000, "waited " + waitedMs + " ms");
+        assertDoesNotThrow(() -> callback[0].done(false, "421 try again later"));
+    }
+
+    private void answerUrgent(boolean queued, boolean sent, String error) {
+        doAnswer(invocation -> {
+            MailDispatcher.Callback callback = invocation.getArgument(2);
+            callback.done(sent, error);
+            return queued;
+        }).when(dispatcher).submit(any(MimeMessage.class), eq(true), any());
+    }
+}
@@ -0,0 +1,179 @@
+package zerowaste.backend.notification;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import zerowaste.backend.config.AppClock;
+import zerowaste.backend.email.EmailTemplateService;
+import zerowaste.backend.notification.outbox.NotificationOutbox;
+import zerowaste.backend.notification.partition.PartitionManager;
+import zerowaste.backend.product.models.Product;
+import zerowaste.backend.user.User;
+import zerowaste.backend.user.UserRepository;
+import zerowaste.backend.webSocket.relay.NotificationRelay;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// Two notification nodes on one in-memory database, driven tick by tick: a node leaves, the other one ticks
+// before its next heartbeat and only then takes the partitions over. Every user due in between must still be alerted.
+class NotificationHandoverContextsTest {
+
+    private static final int PARTITIONS = 8;
+    private static final int USERS = 200;
+    private static final LocalDate DAY = LocalDate.of(2026, 10, 19);
+    private static final Set<String> ALERTED = ConcurrentHashMap.newKeySet();
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @Import({PartitionManager.class, DailyPlanifierService.class, AppClock.class})
+    static class NotificationNodeApplication {
+
+        // runs chunks inline, a tick has queued its alerts when it returns
+        @Bean
+        ThreadPoolTaskScheduler taskScheduler() {
+            return new ThreadPoolTaskScheduler() {
+                @Override
+                public void execute(Runnable task) {
+                    task.run();
+                }
+            };
+        }
+
+        @Bean
+        UserRepository userRepository() {
+            UserRepository users = mock(UserRepository.class);
+            when(users.findExpiringProducts(any(), any(LocalDate.class))).thenAnswer(invocation -> {
+                Collection<Long> ids = invocation.getArgument(0);
+                return ids.stream().map(id -> new ExpiringProductRow(id, "user" + id + "@example.com", 1, new Product())).toList();
+            });
+            return users;
+        }
+
+        @Bean
+        NotificationRelay notificationRelay() {
+            return (kind, key, type, payload) -> { };
+        }
+
+        @Bean
+        EmailTemplateService emailTemplateService() {
+            return mock(EmailTemplateService.class);
+        }
+
+        @Bean
+        AlertSink alertSink() {
+            return alerts -> {
+                alerts.forEach(alert -> ALERTED.add(alert.getIdempotencyKey()));
+                return alerts.size();
+            };
+        }
+    }
+
+    private record Node(PartitionManager partitions, DailyPlanifierService planifier) {}
+
+    private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+    private String url;
+
+    @BeforeEach
+    void setUp() {
+        ALERTED.clear();
+        url = "jdbc:h2:mem:handover-" + UUID.randomUUID()
+                + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH";
+    }
+
+    @AfterEach
+    void tearDown() {
+        contexts.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void testMinuteMissedDuringALeaveIsDispatchedByTheNewOwner() {
+        // Arrange - every user is due at 10:00
+        Node first = startNode();
+        Node second = startNode();
+        settle(first, second);
+        first.planifier().tick(at(9, 59));
+        second.planifier().tick(at(9, 59));
+
+        // Act - the first node leaves, the second ticks 10:00 before it claims the released partitions
+        contexts.get(0).close();
+        second.planifier().tick(at(10, 0));
+        int beforeClaim = ALERTED.size();
+        settle(second);
+        second.planifier().tick(at(10, 1));
+
+        // Assert
+        assertTrue(beforeClaim > 0 && beforeClaim < USERS, "alerted before the claim: " + beforeClaim);
+        assertEquals(PARTITIONS, second.partitions().ownedPartitions().size());
+        for (long userId = 1; userId <= USERS; userId++) {
+            assertTrue(ALERTED.contains(NotificationOutbox.idempotencyKey("expiring", userId, DAY)), "user " + userId);
+        }
+        assertEquals(USERS, ALERTED.size());
+    }
+
+    private Node startNode() {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(NotificationNodeApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + url,
+                        "--spring.jpa.hibernate.ddl-auto=update",
+                        "--spring.jpa.show-sql=false",
+                        "--notifications.partitions.count=" + PARTITIONS);
+        contexts.add(context);
+
+        DailyPlanifierService planifier = context.getBean(DailyPlanifierService.class);
+        for (long userId = 1; userId <= USERS; userId++) {
+            User user = new User();
+            user.setId(userId);
+            user.setPreferred_notification_hour(LocalTime.of(10, 0));
+            planifier.updateUserNotification(user);
+        }
+        return new Node(context.getBean(PartitionManager.class), planifier);
+    }
+
+    // heartbeat rounds until the partitions are split evenly without overlap
+    private static void settle(Node... nodes) {
+        int share = (PARTITIONS + nodes.length - 1) / nodes.length;
+        for (int round = 0; round < 10; round++) {
+            for (Node node : nodes) {
+                node.partitions().rebalance();
+            }
+            Set<Integer> seen = new HashSet<>();
+            boolean split = true;
+            for (Node node : nodes) {
+                List<Integer> owned = node.partitions().ownedPartitions();
+                split &= owned.size() <= share;
+                for (int partition : owned) {
+                    split &= seen.add(partition);
+                }
+            }
+            if (split && seen.size() == PARTITIONS) {
+                return;
+            }
+        }
+        fail("partitions did not settle");
+    }
+
+    private static LocalDateTime at(int hour, int minute) {
+        return LocalDateTime.of(DAY, LocalTime.of(hour, minute));
+    }
+}
@@ -7,27 +7,35 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
-import org.springframework.scheduling.support.CronTrigger;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import zerowaste.backend.config.AppClock;
 import zerowaste.backend.email.EmailTemplateService;
-import zerowaste.backend.email.MailService;
+import zerowaste.backend.notification.outbox.OutboxEntry;
+import zerowaste.backend.notification.partition.PartitionManager;
 import zerowaste.backend.product.models.Product;
 import zerowaste.backend.product.models.UserProductList;
 import zerowaste.backend.user.User;
 import zerowaste.backend.user.UserRepository;
+import zerowaste.backend.webSocket.relay.NotificationRelay;
+import zerowaste.backend.webSocket.relay.RelayMessage;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.concurrent.ScheduledFuture;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -41,13 +49,19 @@ class NotificationServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private MailService mailService;
+    private AlertSink sink;
 
     @Mock
     private EmailTemplateService emailTemplateService;
 
     @Mock
-    private ScheduledFuture<?> scheduledFuture;
+    private PartitionManager partitions;
+
+    @Mock
+    private NotificationRelay relay;
+
+    @Spy
+    private AppClock clock = new AppClock();
 
     @InjectMocks
     private DailyPlanifierService dailyPlanifierService;
@@ -56,7 +70,7 @@ class NotificationServiceTest {
     private ArgumentCaptor<Runnable> runnableCaptor;
 
     @Captor
-    private ArgumentCaptor<CronTrigger> cronCaptor;
+    private ArgumentCaptor<List<OutboxEntry>> entriesCaptor;
 
     private User testUser;
     private Product testProduct;
@@ -64,6 +78,8 @@ class NotificationServiceTest {
     @BeforeEach
     void setUp() {
         ReflectionTestUtils.setField(dailyPlanifierService, "frontendUrl", "http://localhost:3000");
+        ReflectionTestUtils.setField(dailyPlanifierService, "queryChunkSize", 500);
+        lenient().when(partitions.owns(anyLong())).thenReturn(true);
 
         testUser = new User();
         testUser.setId(1L);
@@ -81,87 +97,308 @@ class NotificationServiceTest {
     }
 
     @Test
-    void testScheduledTasks_Init_SchedulesForValidUsers() {
+    void testOnApplicationReady_LoadsWheelOffTheStartupThread() {
+        // Act
+        dailyPlanifierService.onApplicationReady();
+
+        // Assert
+        verify(taskScheduler).execute(any(Runnable.class));
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void testLoadWheel_ReadsSlotsPageByPage() {
         // Arrange
-        User userNoTime = new User();
-        userNoTime.setId(2L);
-        userNoTime.setPreferred_notification_hour(null);
+        ReflectionTestUtils.setField(dailyPlanifierService, "bootstrapPageSize", 2);
+        when(userRepository.findNotificationSlots(eq(0L), any(Limit.class))).thenReturn(List.of(
+                new NotificationSlot(1L, LocalTime.of(10, 30)), new NotificationSlot(3L, LocalTime.of(7, 5))));
+        when(userRepository.findNotificationSlots(eq(3L), any(Limit.class))).thenReturn(List.of(
+                new NotificationSlot(8L, LocalTime.of(0, 0))));
 
-        when(userRepository.findAll()).thenReturn(List.of(testUser, userNoTime));
-        doReturn(scheduledFuture).when(taskScheduler).schedule(any(Runnable.class), any(CronTrigger.class));
+        // Act
+        dailyPlanifierService.loadWheel();
+
+        // Assert
+        NotificationWheel wheel = wheel();
+        assertEquals(3, wheel.size());
+        assertEquals(10 * 60 + 30, wheel.minuteOf(1L));
+        assertEquals(7 * 60 + 5, wheel.minuteOf(3L));
+        assertEquals(0, wheel.minuteOf(8L));
+        verify(userRepository, times(2)).findNotificationSlots(anyLong(), any(Limit.class));
+        verify(userRepository, never()).findAll();
+        verifyNoInteractions(taskScheduler);
+    }
+
+    @Test
+    void testLoadWheel_KeepsChangesMadeWhileLoading() {
+        // Arrange
+        ReflectionTestUtils.setField(dailyPlanifierService, "bootstrapPageSize", 500);
+        when(userRepository.findNotificationSlots(eq(0L), any(Limit.class))).thenAnswer(invocation -> {
+            // the user clears the notification time after the page was read
+            testUser.setPreferred_notification_hour(null);
+            dailyPlanifierService.updateUserNotification(testUser);
+            return List.of(new NotificationSlot(1L, LocalTime.of(10, 30)), new NotificationSlot(2L, LocalTime.of(9, 0)));
+        });
 
         // Act
-        dailyPlanifierService.scheduledTasks();
+        dailyPlanifierService.loadWheel();
 
         // Assert
-        verify(taskScheduler, times(1)).schedule(any(Runnable.class), cronCaptor.capture());
+        NotificationWheel wheel = wheel();
+        assertEquals(-1, wheel.minuteOf(1L));
+        assertEquals(9 * 60, wheel.minuteOf(2L));
+        assertNull(ReflectionTestUtils.getField(dailyPlanifierService, "changedDuringLoad"));
+    }
+
+    @Test
+    void testLoadWheel_UpdateBetweenCheckAndPutWins() throws Exception {
+        // Arrange - the update starts right after the page checked user 1 and before its put lands
+        ReflectionTestUtils.setField(dailyPlanifierService, "bootstrapPageSize", 500);
+        when(userRepository.findNotificationSlots(eq(0L), any(Limit.class)))
+                .thenReturn(List.of(new NotificationSlot(1L, LocalTime.of(10, 30))));
+        testUser.setPreferred_notification_hour(LocalTime.of(7, 5));
+        Thread loader = Thread.currentThread();
+        Thread[] updater = new Thread[1];
+        NotificationWheel wheel = new NotificationWheel() {
+            @Override
+            public synchronized void put(long userId, int minute) {
+                if (Thread.currentThread() == loader && updater[0] == null) {
+                    updater[0] = new Thread(() -> dailyPlanifierService.updateUserNotification(testUser));
+                    updater[0].start();
+                    try {
+                        // without a shared lock the update finishes here and is then overwritten
+                        updater[0].join(200);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.put(userId, minute);
+            }
+        };
+        ReflectionTestUtils.setField(dailyPlanifierService, "wheel", wheel);
 
-        // Verify Cron 0 30 10 * * * (10:30 AM)
-        CronTrigger trigger = cronCaptor.getValue();
-        assertEquals("0 30 10 * * *", trigger.getExpression());
+        // Act
+        dailyPlanifierService.loadWheel();
+        updater[0].join(5000);
+
+        // Assert
+        assertFalse(updater[0].isAlive());
+        assertEquals(7 * 60 + 5, wheel.minuteOf(1L));
     }
 
     @Test
-    void testUpdateUserNotification_CancelsOldAndSchedulesNew() {
-        // Arrange - existing task
-        Map<Long, ScheduledFuture<?>> internalMap =
-                (Map<Long, ScheduledFuture<?>>) ReflectionTestUtils.getField(dailyPlanifierService, "scheduledTasks");
-        internalMap.put(testUser.getId(), scheduledFuture);
+    void testUpdateUserNotification_MovesUserToNewMinute() {
+        // Arrange
+        dailyPlanifierService.updateUserNotification(testUser);
+        testUser.setPreferred_notification_hour(LocalTime.of(7, 5));
+
+        // Act
+        dailyPlanifierService.updateUserNotification(testUser);
+
+        // Assert
+        assertEquals(0, wheel().due(10 * 60 + 30).length);
+        assertArrayEquals(new long[]{1L}, wheel().due(7 * 60 + 5));
+        assertEquals(1, wheel().size());
+        verify(relay).publish(RelayMessage.NOTIFICATION_SLOT, "1", "put", 7 * 60 + 5L);
+    }
 
-        doReturn(scheduledFuture).when(taskScheduler).schedule(any(Runnable.class), any(CronTrigger.class));
+    @Test
+    void testUpdateUserNotification_RemovesUserWithoutHour() {
+        // Arrange
+        dailyPlanifierService.updateUserNotification(testUser);
+        testUser.setPreferred_notification_hour(null);
 
         // Act
         dailyPlanifierService.updateUserNotification(testUser);
 
         // Assert
-        verify(scheduledFuture).cancel(false); //Old task canceled
-        verify(taskScheduler).schedule(any(Runnable.class), any(CronTrigger.class)); //New task
+        assertEquals(0, wheel().size());
+        assertEquals(0, wheel().due(10 * 60 + 30).length);
+    }
+
+    @Test
+    void testUpdateUserNotification_WaitsForTheCommit() {
+        // Arrange
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Act
+            dailyPlanifierService.updateUserNotification(testUser);
+
+            // Assert
+            assertEquals(-1, wheel().minuteOf(1L));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertEquals(10 * 60 + 30, wheel().minuteOf(1L));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testTick_DispatchesOnlyTheCurrentBucket() {
+        // Arrange
+        User other = new User();
+        other.setId(2L);
+        other.setPreferred_notification_hour(LocalTime.of(10, 31));
+        dailyPlanifierService.updateUserNotification(testUser);
+        dailyPlanifierService.updateUserNotification(other);
+
+        // Act
+        dailyPlanifierService.tick(LocalTime.of(10, 30, 0, 500));
+
+        // Assert
+        verify(taskScheduler, times(1)).execute(any(Runnable.class));
     }
 
     @Test
-    void testVerifyAndSend_SendsEmailWhenProductExpires() {
+    void testTick_CatchesUpSkippedMinutes() {
         // Arrange
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(emailTemplateService.render(anyString(), anyMap())).thenReturn("<html>Body</html>");
+        User other = new User();
+        other.setId(2L);
+        other.setPreferred_notification_hour(LocalTime.of(10, 31));
+        dailyPlanifierService.updateUserNotification(testUser);
+        dailyPlanifierService.updateUserNotification(other);
+        dailyPlanifierService.tick(LocalTime.of(10, 29));
+        doNothing().when(taskScheduler).execute(runnableCaptor.capture());
+
+        // Act - the 10:30 tick never ran
+        dailyPlanifierService.tick(LocalTime.of(10, 31));
+        dailyPlanifierService.tick(LocalTime.of(10, 31, 30));
+        runnableCaptor.getValue().run();
+
+        // Assert - both minutes in one query
+        verify(taskScheduler, times(1)).execute(any(Runnable.class));
+        verify(userRepository).findExpiringProducts(eq(List.of(1L, 2L)), any(LocalDate.class));
+    }
+
+    @Test
+    void testTick_SkipsUsersOfPartitionsHeldByOtherNodes() {
+        // Arrange
+        User other = new User();
+        other.setId(2L);
+        other.setPreferred_notification_hour(LocalTime.of(10, 30));
+        dailyPlanifierService.updateUserNotification(testUser);
+        dailyPlanifierService.updateUserNotification(other);
+        when(partitions.owns(1L)).thenReturn(false);
+        doNothing().when(taskScheduler).execute(runnableCaptor.capture());
 
         // Act
-        dailyPlanifierService.verifyAndSend(1L);
+        dailyPlanifierService.tick(LocalTime.of(10, 30));
+        runnableCaptor.getValue().run();
 
         // Assert
-        verify(emailTemplateService).render(eq("mail/expiringProducts-email"), anyMap());
-        verify(mailService).sendHtmlEmail(eq("test@example.com"), contains("Expiring Products Alert"), eq("<html>Body</html>"));
+        verify(userRepository).findExpiringProducts(eq(List.of(2L)), any(LocalDate.class));
     }
 
     @Test
-    void testVerifyAndSend_NoEmailWhenNoProductExpires() {
+    void testTick_ReplaysMinutesAfterThePartitionMark() {
+        // Arrange - the previous owner of partition 0 dispatched up to 10:28
+        LocalDate day = LocalDate.of(2026, 10, 19);
+        User other = new User();
+        other.setId(2L);
+        other.setPreferred_notification_hour(LocalTime.of(10, 29));
+        dailyPlanifierService.updateUserNotification(testUser);
+        dailyPlanifierService.updateUserNotification(other);
+        when(partitions.dispatchMarks())
+                .thenReturn(Map.of(0, DailyPlanifierService.minuteOf(LocalDateTime.of(day, LocalTime.of(10, 28)))));
+        doNothing().when(taskScheduler).execute(runnableCaptor.capture());
+
+        // Act - this node's first tick after taking the partition over
+        dailyPlanifierService.tick(LocalDateTime.of(day, LocalTime.of(10, 30)));
+        runnableCaptor.getValue().run();
+
+        // Assert
+        verify(userRepository).findExpiringProducts(eq(List.of(2L, 1L)), eq(day));
+        verify(partitions).markDispatched(Set.of(0), DailyPlanifierService.minuteOf(LocalDateTime.of(day, LocalTime.of(10, 30))));
+    }
+
+    @Test
+    void testTick_SplitsLargeBucketsIntoChunks() {
         // Arrange
-        testProduct.setBestBefore(LocalDate.now().plusDays(5)); // Expires in 5 days (Mismatch)
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        ReflectionTestUtils.setField(dailyPlanifierService, "queryChunkSize", 2);
+        for (long id = 1; id <= 5; id++) {
+            User user = new User();
+            user.setId(id);
+            user.setPreferred_notification_hour(LocalTime.of(8, 0));
+            dailyPlanifierService.updateUserNotification(user);
+        }
 
         // Act
-        dailyPlanifierService.verifyAndSend(1L);
+        dailyPlanifierService.tick(LocalTime.of(8, 0));
 
         // Assert
-        verifyNoInteractions(mailService, emailTemplateService);
+        verify(taskScheduler, times(3)).execute(any(Runnable.class));
+    }
+
+    @Test
+    void testEnqueueExpiring_QueuesOneEmailPerUser() {
+        // Arrange
+        Product eggs = new Product();
+        eggs.setName("Eggs");
+        eggs.setBestBefore(LocalDate.now().plusDays(2));
+        Product bread = new Product();
+        bread.setName("Bread");
+        bread.setBestBefore(LocalDate.now().plusDays(1));
+        LocalDate today = LocalDate.now();
+
+        when(userRepository.findExpiringProducts(List.of(1L, 2L), today)).thenReturn(List.of(
+                new ExpiringProductRow(1L, "test@example.com", 2, testProduct),
+                new ExpiringProductRow(1L, "test@example.com", 2, eggs),
+                new ExpiringProductRow(2L, "other@example.com", 1, bread)
+        ));
+        when(emailTemplateService.renderExpiringProducts(anyList(), anyInt(), anyString())).thenReturn("<html>Body</html>");
+
+        // Act
+        dailyPlanifierService.enqueueExpiring(List.of(1L, 2L), today);
+
+        // Assert - one sink call for the chunk, keyed per user and day
+        verify(emailTemplateService).renderExpiringProducts(List.of(testProduct, eggs), 2, "http://localhost:3000");
+        verify(sink).enqueue(entriesCaptor.capture());
+        List<OutboxEntry> entries = entriesCaptor.getValue();
+        assertEquals(2, entries.size());
+        assertEquals("test@example.com", entries.get(0).getEmail());
+        assertEquals("expiring:1:" + today, entries.get(0).getIdempotencyKey());
+        assertEquals("other@example.com", entries.get(1).getEmail());
+        assertEquals("expiring:2:" + today, entries.get(1).getIdempotencyKey());
+        assertTrue(entries.get(1).getSubject().contains("Expiring Products Alert"));
+        assertEquals("<html>Body</html>", entries.get(1).getBody());
+        DailyPlanifierService.Timings timings = dailyPlanifierService.timings();
+        assertEquals(2, timings.alerts());
     }
 
     @Test
-    void testScheduleUserTask_RunnableExecution() {
+    void testEnqueueExpiring_NoEmailWhenNoProductExpires() {
         // Arrange
-        doReturn(scheduledFuture).when(taskScheduler).schedule(runnableCaptor.capture(), any(CronTrigger.class));
+        when(userRepository.findExpiringProducts(anyList(), any(LocalDate.class))).thenReturn(List.of());
 
+        // Act
+        dailyPlanifierService.enqueueExpiring(List.of(1L), LocalDate.now());
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(emailTemplateService.render(anyString(), anyMap())).thenReturn("html");
+        // Assert
+        verifyNoInteractions(sink, emailTemplateService);
+    }
+
+    @Test
+    void testTick_RunnableExecution() {
+        // Arrange
+        doNothing().when(taskScheduler).execute(runnableCaptor.capture());
+
+        when(userRepository.findExpiringProducts(eq(List.of(1L)), any(LocalDate.class)))
+                .thenReturn(List.of(new ExpiringProductRow(1L, "test@example.com", 2, testProduct)));
+        when(emailTemplateService.renderExpiringProducts(anyList(), anyInt(), anyString())).thenReturn("html");
 
         // Act
         dailyPlanifierService.updateUserNotification(testUser);
+        dailyPlanifierService.tick(LocalTime.of(10, 30));
         Runnable scheduledTask = runnableCaptor.getValue();
         scheduledTask.run();
 
         // Assert
-        // If 'verifyAndSend(1L)' then trigger the repository and mail service
-        verify(userRepository).findById(1L);
-        verify(mailService).sendHtmlEmail(anyString(), anyString(), anyString());
+        // If the bucket is sent then trigger the repository and the sink
+        verify(userRepository).findExpiringProducts(eq(List.of(1L)), any(LocalDate.class));
+        verify(sink).enqueue(anyList());
+    }
+
+    private NotificationWheel wheel() {
+        return (NotificationWheel) ReflectionTestUtils.getField(dailyPlanifierService, "wheel");
     }
 }
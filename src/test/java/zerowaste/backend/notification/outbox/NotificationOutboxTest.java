@@ -0,0 +1,240 @@
+package zerowaste.backend.notification.outbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import zerowaste.backend.email.MailDispatcher;
+import zerowaste.backend.email.MailService;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationOutboxTest {
+
+    @Mock
+    private OutboxEntryRepository repository;
+
+    @Mock
+    private MailService mailService;
+
+    @InjectMocks
+    private NotificationOutbox outbox;
+
+    @Captor
+    private ArgumentCaptor<MailDispatcher.Callback> callbackCaptor;
+
+    @Captor
+    private ArgumentCaptor<Collection<Long>> idsCaptor;
+
+    @Captor
+    private ArgumentCaptor<List<OutboxEntry>> entriesCaptor;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(outbox, "batchSize", 200);
+        ReflectionTestUtils.setField(outbox, "maxAttempts", 3);
+        ReflectionTestUtils.setField(outbox, "backoffBaseMs", 60_000L);
+        ReflectionTestUtils.setField(outbox, "backoffMaxMs", 3_600_000L);
+        ReflectionTestUtils.setField(outbox, "leaseMs", 600_000L);
+        ReflectionTestUtils.setField(outbox, "retentionDays", 7L);
+    }
+
+    @Test
+    void testEnqueue_SkipsKeysAlreadyInTheOutbox() {
+        // Arrange
+        when(repository.findExistingKeys(anyList())).thenReturn(List.of("expiring:1:2026-10-19"));
+
+        // Act
+        int added = outbox.enqueue(List.of(entry(0, "expiring:1:2026-10-19"), entry(0, "expiring:2:2026-10-19"),
+                entry(0, "expiring:2:2026-10-19")));
+
+        // Assert
+        assertEquals(1, added);
+        verify(repository).saveAll(entriesCaptor.capture());
+        List<OutboxEntry> saved = entriesCaptor.getValue();
+        assertEquals(1, saved.size());
+        assertEquals("expiring:2:2026-10-19", saved.get(0).getIdempotencyKey());
+        assertEquals(OutboxEntry.Status.PENDING, saved.get(0).getStatus());
+        assertNotNull(saved.get(0).getNextAttemptAt());
+    }
+
+    @Test
+    void testEnqueue_FallsBackToSingleInsertsOnRace() {
+        // Arrange
+        OutboxEntry raced = entry(0, "expiring:1:2026-10-19");
+        OutboxEntry fresh = entry(0, "expiring:2:2026-10-19");
+        when(repository.findExistingKeys(anyList())).thenReturn(List.of());
+        when(repository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(repository.save(argThat((OutboxEntry entry) -> entry.getIdempotencyKey().equals("expiring:1:2026-10-19"))))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        // Act
+        int added = outbox.enqueue(List.of(raced, fresh));
+
+        // Assert
+        assertEquals(1, added);
+        verify(repository).save(argThat((OutboxEntry entry) -> entry.getIdempotencyKey().equals("expiring:2:2026-10-19")
+                && entry.getEmail().equals(fresh.getEmail())));
+    }
+
+    @Test
+    void testDrain_ClaimsDueEntriesAndWritesBackInBulk() {
+        // Arrange
+        List<OutboxEntry> due = List.of(entry(1, "expiring:1:2026-10-19"), entry(2, "expiring:2:2026-10-19"));
+        when(repository.findDue(anyList(), any(Instant.class), any(Limit.class))).thenReturn(due).thenReturn(List.of());
+        stubClaim(due);
+
+        // Act
+        outbox.drain();
+        verify(mailService, times(2)).queueHtmlEmail(anyString(), anyString(), anyString(), callbackCaptor.capture());
+        callbackCaptor.getAllValues().forEach(callback -> callback.done(true, null));
+        outbox.drain();
+
+        // Assert
+        verify(repository).claim(eq(List.of(1L, 2L)), anyList(), eq(OutboxEntry.Status.SENDING), anyString(),
+                any(Instant.class), any(Instant.class));
+        verify(repository).markSent(idsCaptor.capture(), eq(OutboxEntry.Status.SENT), any(Instant.class));
+        assertEquals(List.of(1L, 2L), List.copyOf(idsCaptor.getValue()));
+        verify(repository, never()).findAllById(any());
+    }
+
+    @Test
+    void testDrain_SendsOnlyRowsItWonTheClaimFor() {
+        // Arrange - another node claimed entry 2 between the lookup and the update
+        OutboxEntry won = entry(1, "expiring:1:2026-10-19");
+        when(repository.findDue(anyList(), any(Instant.class), any(Limit.class)))
+                .thenReturn(List.of(won, entry(2, "expiring:2:2026-10-19")));
+        stubClaim(List.of(won));
+
+        // Act
+        outbox.drain();
+
+        // Assert
+        verify(mailService).queueHtmlEmail(eq("user1@example.com"), anyString(), anyString(), any());
+        verifyNoMoreInteractions(mailService);
+    }
+
+    @Test
+    void testDrain_NothingSentWhenEveryClaimIsLost() {
+        // Arrange
+        when(repository.findDue(anyList(), any(Instant.class), any(Limit.class)))
+                .thenReturn(List.of(entry(1, "expiring:1:2026-10-19")));
+        when(repository.claim(anyList(), anyList(), any(), anyString(), any(Instant.class), any(Instant.class))).thenReturn(0);
+
+        // Act
+        outbox.drain();
+
+        // Assert
+        verify(repository, never()).findClaimed(anyString(), any(), any());
+        verifyNoInteractions(mailService);
+    }
+
+    @Test
+    void testDrain_DoesNotClaimEntriesStillInFlight() {
+        // Arrange - the lease ran out while the message was still queued for SMTP
+        OutboxEntry entry = entry(1, "expiring:1:2026-10-19");
+        when(repository.findDue(anyList(), any(Instant.class), any(Limit.class))).thenReturn(List.of(entry));
+        stubClaim(List.of(entry));
+
+        // Act
+        outbox.drain();
+        outbox.drain();
+
+        // Assert
+        verify(mailService, times(1)).queueHtmlEmail(anyString(), anyString(), anyString(), any());
+        verify(repository, times(1)).claim(anyList(), anyList(), any(), anyString(), any(), any());
+    }
+
+    @Test
+    void testDrain_FailedEntriesBackOffThenGiveUp() {
+        // Arrange
+        OutboxEntry retried = entry(1, "expiring:1:2026-10-19");
+        OutboxEntry exhausted = entry(2, "expiring:2:2026-10-19");
+        exhausted.setAttempts(2);
+        when(repository.findDue(anyList(), any(Instant.class), any(Limit.class)))
+                .thenReturn(List.of(retried, exhausted))
+                .thenReturn(List.of());
+        stubClaim(List.of(retried, exhausted));
+        when(repository.findAllById(any())).thenReturn(List.of(retried, exhausted));
+
+        // Act
+        outbox.drain();
+        verify(mailService, times(2)).queueHtmlEmail(anyString(), anyString(), anyString(), callbackCaptor.capture());
+        callbackCaptor.getAllValues().forEach(callback -> callback.done(false, "421 try again later"));
+        Instant before = Instant.now();
+        outbox.drain();
+
+        // Assert
+        assertEquals(OutboxEntry.Status.PENDING, retried.getStatus());
+        assertEquals(1, retried.getAttempts());
+        assertEquals("421 try again later", retried.getLastError());
+        assertFalse(retried.getNextAttemptAt().isBefore(before.plusSeconds(60)));
+        assertEquals(OutboxEntry.Status.FAILED, exhausted.getStatus());
+        assertEquals(3, exhausted.getAttempts());
+        verify(repository).saveAll(List.of(retried, exhausted));
+        verify(repository, never()).markSent(any(), any(), any());
+    }
+
+    @Test
+    void testDrain_SubmitErrorsCountAsFailedAttempts() {
+        // Arrange
+        OutboxEntry entry = entry(1, "expiring:1:2026-10-19");
+        when(repository.findDue(anyList(), any(Instant.class), any(Limit.class)))
+                .thenReturn(List.of(entry))
+                .thenReturn(List.of());
+        stubClaim(List.of(entry));
+        doThrow(new RuntimeException("Could not send HTML email"))
+                .when(mailService).queueHtmlEmail(anyString(), anyString(), anyString(), any());
+        when(repository.findAllById(any())).thenReturn(List.of(entry));
+
+        // Act
+        outbox.drain();
+        outbox.drain();
+
+        // Assert
+        assertEquals(OutboxEntry.Status.PENDING, entry.getStatus());
+        assertEquals(1, entry.getAttempts());
+    }
+
+    @Test
+    void testBackoff_DoublesUpToTheCap() {
+        assertEquals(Duration.ofMinutes(1), NotificationOutbox.backoff(1, 60_000, 3_600_000));
+        assertEquals(Duration.ofMinutes(2), NotificationOutbox.backoff(2, 60_000, 3_600_000));
+        assertEquals(Duration.ofMinutes(32), NotificationOutbox.backoff(6, 60_000, 3_600_000));
+        assertEquals(Duration.ofHours(1), NotificationOutbox.backoff(7, 60_000, 3_600_000));
+        assertEquals(Duration.ofHours(1), NotificationOutbox.backoff(100, 60_000, 3_600_000));
+    }
+
+    private void stubClaim(List<OutboxEntry> claimed) {
+        when(repository.claim(anyList(), anyList(), any(), anyString(), any(Instant.class), any(Instant.class)))
+                .thenReturn(claimed.size());
+        when(repository.findClaimed(anyString(), eq(OutboxEntry.Status.SENDING), any(Instant.class))).thenReturn(claimed);
+    }
+
+    private static OutboxEntry entry(long id, String key) {
+        OutboxEntry entry = new OutboxEntry();
+        ReflectionTestUtils.setField(entry, "id", id);
+        entry.setIdempotencyKey(key);
+        entry.setEmail("user" + id + "@example.com");
+        entry.setSubject("Expiring Products Alert");
+        entry.setBody("<html>Body</html>");
+        return entry;
+    }
+}
@@ -0,0 +1,324 @@
+package zerowaste.backend.notification.partition;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import zerowaste.backend.config.AppClock;
+import zerowaste.backend.email.EmailTemplateService;
+import zerowaste.backend.notification.AlertSink;
+import zerowaste.backend.notification.DailyPlanifierService;
+import zerowaste.backend.notification.ExpiringProductRow;
+import zerowaste.backend.notification.NotificationWheel;
+import zerowaste.backend.notification.outbox.NotificationOutbox;
+import zerowaste.backend.product.models.Product;
+import zerowaste.backend.product.service.ExpiringProductIndex;
+import zerowaste.backend.user.User;
+import zerowaste.backend.user.UserRepository;
+import zerowaste.backend.webSocket.ProductWsNotifier;
+import zerowaste.backend.webSocket.relay.LoopbackNotificationRelay;
+import zerowaste.backend.webSocket.relay.NotificationRelay;
+import zerowaste.backend.webSocket.relay.RelayInbox;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// Several application contexts, each one a node, sharing one in-memory database. Scheduling is off in these
+// contexts, the test drives every heartbeat itself and a node that is not driven looks like a crashed one.
+class PartitionManagerContextsTest {
+
+    private static final int PARTITIONS = 16;
+    private static final long LEASE_MS = 3000;
+    private static final int USERS = 2000;
+    private static final LocalDate DAY = LocalDate.of(2026, 10, 19);
+    private static final TestClock CLOCK = new TestClock();
+    private static final Set<String> ALERTED = ConcurrentHashMap.newKeySet();
+    private static LoopbackNotificationRelay.Hub hub;
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @Import(PartitionManager.class)
+    static class PartitionNodeApplication {
+    }
+
+    // a partition node that also schedules notifications, wheel changes travel over one in-process relay hub
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @Import({PartitionManager.class, DailyPlanifierService.class, RelayInbox.class})
+    static class PlanifierNodeApplication {
+
+        @Bean
+        AppClock appClock() {
+            return new AppClock(CLOCK);
+        }
+
+        // runs chunks inline, a tick has queued its alerts when it returns
+        @Bean
+        ThreadPoolTaskScheduler taskScheduler() {
+            return new ThreadPoolTaskScheduler() {
+                @Override
+                public void execute(Runnable task) {
+                    task.run();
+                }
+            };
+        }
+
+        @Bean
+        NotificationRelay notificationRelay(RelayInbox inbox) {
+            return new LoopbackNotificationRelay(UUID.randomUUID().toString(), hub, inbox);
+        }
+
+        @Bean
+        UserRepository userRepository() {
+            UserRepository users = mock(UserRepository.class);
+            when(users.findExpiringProducts(any(), any(LocalDate.class))).thenAnswer(invocation -> {
+                Collection<Long> ids = invocation.getArgument(0);
+                return ids.stream().map(id -> new ExpiringProductRow(id, "user" + id + "@example.com", 1, new Product())).toList();
+            });
+            return users;
+        }
+
+        @Bean
+        AlertSink alertSink() {
+            return alerts -> {
+                alerts.forEach(alert -> ALERTED.add(alert.getIdempotencyKey()));
+                return alerts.size();
+            };
+        }
+
+        @Bean
+        EmailTemplateService emailTemplateService() {
+            return mock(EmailTemplateService.class);
+        }
+
+        @Bean
+        ProductWsNotifier productWsNotifier() {
+            return mock(ProductWsNotifier.class);
+        }
+
+        @Bean
+        SimpMessagingTemplate simpMessagingTemplate() {
+            return mock(SimpMessagingTemplate.class);
+        }
+
+        @Bean
+        ExpiringProductIndex expiringProductIndex() {
+            return mock(ExpiringProductIndex.class);
+        }
+
+        @Bean
+        CacheManager cacheManager() {
+            return mock(CacheManager.class);
+        }
+    }
+
+    // moved by the test between ticks
+    private static final class TestClock extends Clock {
+
+        private volatile Instant now;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        void set(LocalDateTime time) {
+            now = time.toInstant(ZoneOffset.UTC);
+        }
+    }
+
+    private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+    private String url;
+
+    @BeforeEach
+    void setUp() {
+        ALERTED.clear();
+        hub = new LoopbackNotificationRelay.Hub();
+        CLOCK.set(LocalDateTime.of(DAY, LocalTime.of(9, 0)));
+        url = "jdbc:h2:mem:partitions-" + UUID.randomUUID()
+                + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH";
+    }
+
+    @AfterEach
+    void tearDown() {
+        contexts.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void testPartitionsAreSplitAndRebalancedWhenNodesJoinAndLeave() {
+        // Arrange
+        PartitionManager first = startNode();
+        assertEquals(PARTITIONS, first.ownedPartitions().size());
+
+        // Act - two nodes join
+        PartitionManager second = startNode();
+        PartitionManager third = startNode();
+        settle(first, second, third);
+
+        // Assert
+        assertEachUserHasOneOwner(first, second, third);
+        for (PartitionManager node : List.of(first, second, third)) {
+            assertTrue(node.ownedPartitions().size() <= 6, node.ownedPartitions().toString());
+        }
+
+        // Act - the second node shuts down and gives its partitions back
+        contexts.get(1).close();
+        settle(first, third);
+
+        // Assert
+        assertEachUserHasOneOwner(first, third);
+        assertEquals(PARTITIONS / 2, first.ownedPartitions().size());
+        assertEquals(PARTITIONS / 2, third.ownedPartitions().size());
+    }
+
+    @Test
+    void testSilentNodeLosesItsPartitionsAfterTheLease() throws Exception {
+        // Arrange
+        PartitionManager first = startNode();
+        PartitionManager second = startNode();
+        settle(first, second);
+        assertFalse(second.ownedPartitions().isEmpty());
+
+        // Act - the second node stops heartbeating without releasing anything
+        Thread.sleep(LEASE_MS + 500);
+        first.rebalance();
+
+        // Assert
+        assertEquals(PARTITIONS, first.ownedPartitions().size());
+        for (long userId = 1; userId <= USERS; userId++) {
+            assertTrue(first.owns(userId));
+            assertFalse(second.owns(userId));
+        }
+    }
+
+    @Test
+    void testHourMovedOnTheNonOwnerIsDispatchedByTheOwner() {
+        // Arrange - both nodes loaded the user at 10:00, the first one owns the user's partition
+        ConfigurableApplicationContext firstContext = startContext(PlanifierNodeApplication.class);
+        ConfigurableApplicationContext secondContext = startContext(PlanifierNodeApplication.class);
+        PartitionManager first = firstContext.getBean(PartitionManager.class);
+        PartitionManager second = secondContext.getBean(PartitionManager.class);
+        settle(first, second);
+        long userId = 1;
+        while (!first.owns(userId)) {
+            userId++;
+        }
+        DailyPlanifierService owner = firstContext.getBean(DailyPlanifierService.class);
+        DailyPlanifierService other = secondContext.getBean(DailyPlanifierService.class);
+        int ten = NotificationWheel.minuteOf(LocalTime.of(10, 0));
+        owner.applySlot(userId, ten);
+        other.applySlot(userId, ten);
+        String key = NotificationOutbox.idempotencyKey("expiring", userId, DAY);
+
+        // Act - the request that changes the hour lands on the node that does not own the user
+        User user = new User();
+        user.setId(userId);
+        user.setPreferred_notification_hour(LocalTime.of(11, 0));
+        other.updateUserNotification(user);
+        CLOCK.set(LocalDateTime.of(DAY, LocalTime.of(10, 0)));
+        owner.tick();
+        other.tick();
+        boolean alertedAtTen = ALERTED.contains(key);
+        CLOCK.set(LocalDateTime.of(DAY, LocalTime.of(11, 0)));
+        owner.tick();
+        other.tick();
+
+        // Assert
+        assertFalse(alertedAtTen, "alerted at the old hour");
+        assertTrue(ALERTED.contains(key), "not alerted at the new hour");
+        assertEquals(Set.of(key), ALERTED);
+    }
+
+    private PartitionManager startNode() {
+        return startContext(PartitionNodeApplication.class).getBean(PartitionManager.class);
+    }
+
+    private ConfigurableApplicationContext startContext(Class<?> application) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(application)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + url,
+                        "--spring.jpa.hibernate.ddl-auto=update",
+                        "--spring.jpa.show-sql=false",
+                        "--notifications.partitions.count=" + PARTITIONS,
+                        "--notifications.partitions.lease-ms=" + LEASE_MS);
+        contexts.add(context);
+        return context;
+    }
+
+    // heartbeat rounds until the partitions are split without overlap, a partition changes hands in two rounds
+    private static void settle(PartitionManager... nodes) {
+        for (int round = 0; round < 10; round++) {
+            for (PartitionManager node : nodes) {
+                node.rebalance();
+            }
+            if (splitWithoutOverlap(nodes)) {
+                return;
+            }
+        }
+        fail("partitions did not settle");
+    }
+
+    private static boolean splitWithoutOverlap(PartitionManager... nodes) {
+        Set<Integer> seen = new HashSet<>();
+        int share = (PARTITIONS + nodes.length - 1) / nodes.length;
+        for (PartitionManager node : nodes) {
+            List<Integer> owned = node.ownedPartitions();
+            if (owned.size() > share) {
+                return false;
+            }
+            for (int partition : owned) {
+                if (!seen.add(partition)) {
+                    return false;
+                }
+            }
+        }
+        return seen.size() == PARTITIONS;
+    }
+
+    private static void assertEachUserHasOneOwner(PartitionManager... nodes) {
+        for (long userId = 1; userId <= USERS; userId++) {
+            int owners = 0;
+            for (PartitionManager node : nodes) {
+                if (node.owns(userId)) {
+                    owners++;
+                }
+            }
+            assertEquals(1, owners, "owners of user " + userId);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package zerowaste.backend.product;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import zerowaste.backend.product.controller.ProductsController;
+import zerowaste.backend.product.controller.requests.AddProductRequest;
+import zerowaste.backend.product.controller.requests.UpdateProductRequest;
+import zerowaste.backend.product.models.Product;
+import zerowaste.backend.product.service.ProductService;
+import zerowaste.backend.security.AppUserDetails;
+import zerowaste.backend.user.User;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductsControllerJsonTest {
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+    @Mock
+    private ProductService service;
+
+    @InjectMocks
+    private ProductsController controller;
+
+    private final AppUserDetails me = new AppUserDetails(new User());
+
+    @Test
+    void testAddResponseCarriesExpiringSoon() {
+        // Arrange
+        when(service.addProduct(any(), any())).thenReturn(product(1, LocalDate.now().plusDays(1)));
+
+        // Act
+        ResponseEntity<Product> response = controller.add(
+                new AddProductRequest("Milk", LocalDate.now().plusDays(1), 0, null), me);
+
+        // Assert
+        JsonNode json = jsonMapper.valueToTree(response.getBody());
+        assertTrue(json.has("expiringSoon"), json.toString());
+        assertTrue(json.get("expiringSoon").asBoolean());
+    }
+
+    @Test
+    void testUpdateResponseCarriesExpiringSoon() {
+        // Arrange
+        when(service.updateProduct(any(), any())).thenReturn(product(1, LocalDate.now().plusDays(30)));
+
+        // Act
+        ResponseEntity<Product> response = controller.update(
+                new UpdateProductRequest(1L, "Rice", LocalDate.now().plusDays(30), null, 0), me);
+
+        // Assert
+        JsonNode json = jsonMapper.valueToTree(response.getBody());
+        assertTrue(json.has("expiringSoon"), json.toString());
+        assertFalse(json.get("expiringSoon").asBoolean());
+    }
+
+    private static Product product(long id, LocalDate bestBefore) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Milk");
+        product.setBestBefore(bestBefore);
+        product.setConsumptionDays(0);
+        return product;
+    }
+}
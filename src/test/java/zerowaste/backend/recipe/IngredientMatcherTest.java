@@ -0,0 +1,71 @@
+package zerowaste.backend.recipe;
+
+import org.junit.jupiter.api.Test;
+import zerowaste.backend.recipe.matching.IngredientMatcher;
+import zerowaste.backend.recipe.matching.RecipeIngredientIndex;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngredientMatcherTest {
+
+    @Test
+    void testMatchCountsProductsAndKeepsFirstPriority() {
+        // Arrange
+        IngredientMatcher matcher = IngredientMatcher.of(List.of("Milk", "Eggs", "Tomato"));
+
+        // Act
+        IngredientMatcher.Match match = matcher.match(IngredientMatcher.normalize("2 Eggs, 200ml milk, salt"));
+        IngredientMatcher.Match none = matcher.match("flour, water");
+
+        // Assert
+        assertEquals(new IngredientMatcher.Match(2, 0), match);
+        assertEquals(new IngredientMatcher.Match(0, 3), none);
+    }
+
+    @Test
+    void testMatchExcludesMiniVariant() {
+        // Arrange
+        IngredientMatcher matcher = IngredientMatcher.of(List.of("mozzarella", "basil"));
+
+        // Act
+        IngredientMatcher.Match match = matcher.match("125g mini mozzarella balls, fresh basil, mozzarella");
+
+        // Assert
+        assertEquals(new IngredientMatcher.Match(1, 1), match);
+    }
+
+    @Test
+    void testRankByExpiringSortsByCountThenPriority() {
+        // Arrange
+        RecipeIngredientIndex index = new RecipeIngredientIndex(100);
+        index.replace(Map.of(
+                1L, "flour, water",
+                2L, "eggs, tomato",
+                3L, "milk",
+                4L, "milk, eggs"));
+
+        // Act
+        List<Long> ranked = index.rankByExpiring(List.of(1L, 2L, 3L, 4L, 5L), List.of("Milk", "Eggs", "Tomato"));
+
+        // Assert
+        assertEquals(List.of(4L, 2L, 3L, 1L, 5L), ranked);
+    }
+
+    @Test
+    void testIndexReusesTheMatcherForTheSameProducts() {
+        // Arrange
+        RecipeIngredientIndex index = new RecipeIngredientIndex(100);
+
+        // Act
+        IngredientMatcher first = index.matcher(List.of("Milk", "Eggs"));
+        IngredientMatcher second = index.matcher(List.of("milk", "EGGS"));
+        IngredientMatcher other = index.matcher(List.of("Eggs", "Milk"));
+
+        // Assert
+        assertSame(first, second);
+        assertNotSame(first, other);
+    }
+}
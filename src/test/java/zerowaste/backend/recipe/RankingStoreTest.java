@@ -0,0 +1,105 @@
+package zerowaste.backend.recipe;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import zerowaste.backend.config.AppClock;
+import zerowaste.backend.recipe.ranking.DurableRankingCache;
+import zerowaste.backend.recipe.ranking.RankingStore;
+import zerowaste.backend.recipe.ranking.RecipeRanking;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankingStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testPutSurvivesReopen() throws Exception {
+        try (RankingStore store = RankingStore.open(dir)) {
+            store.put("test@example.com", List.of(3L, 1L, 2L));
+            store.put("test@example.com", List.of(2L, 3L));
+            store.put("other@example.com", List.of(7L));
+        }
+
+        try (RankingStore store = RankingStore.open(dir)) {
+            assertEquals(List.of(2L, 3L), store.get("test@example.com"));
+            assertEquals(List.of(7L), store.get("other@example.com"));
+            assertEquals(2, store.version("test@example.com"));
+        }
+    }
+
+    @Test
+    void testRemoveSurvivesReopen() throws Exception {
+        try (RankingStore store = RankingStore.open(dir)) {
+            store.put("test@example.com", List.of(1L));
+            store.remove("test@example.com");
+            assertNull(store.get("test@example.com"));
+        }
+
+        try (RankingStore store = RankingStore.open(dir)) {
+            assertNull(store.get("test@example.com"));
+            assertEquals(0, store.size());
+        }
+    }
+
+    @Test
+    void testCompactionKeepsLatestVersionOnly() throws Exception {
+        try (RankingStore store = RankingStore.open(dir)) {
+            for (long i = 0; i < 100; i++) {
+                store.put("test@example.com", List.of(i, i + 1));
+            }
+            store.put("gone@example.com", List.of(5L));
+            store.remove("gone@example.com");
+
+            store.compact();
+
+            assertEquals(List.of(99L, 100L), store.get("test@example.com"));
+            assertNull(store.get("gone@example.com"));
+        }
+
+        try (RankingStore store = RankingStore.open(dir); Stream<Path> files = Files.list(dir)) {
+            assertEquals(List.of(99L, 100L), store.get("test@example.com"));
+            assertEquals(1, store.size());
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void testRankingsOlderThanTheTtlAreMisses() throws Exception {
+        Instant written = Instant.parse("2026-10-19T10:00:00Z");
+        Duration ttl = Duration.ofMinutes(30);
+        try (RankingStore store = RankingStore.open(dir)) {
+            new DurableRankingCache(new ConcurrentMapCache("userRecipes"), store, ttl, clockAt(written))
+                    .put("test@example.com", RecipeRanking.fromIds(List.of(3L, 1L)));
+        }
+
+        try (RankingStore store = RankingStore.open(dir)) {
+            // after a restart, loaded into an empty L1 with its original write time
+            ConcurrentMapCache l1 = new ConcurrentMapCache("userRecipes");
+            DurableRankingCache fresh = new DurableRankingCache(l1, store, ttl, clockAt(written.plus(Duration.ofMinutes(29))));
+            DurableRankingCache stale = new DurableRankingCache(l1, store, ttl, clockAt(written.plus(Duration.ofMinutes(31))));
+
+            assertEquals(List.of(3L, 1L), fresh.get("test@example.com", RecipeRanking.class).ids());
+            assertNotNull(l1.get("test@example.com"));
+            assertNull(stale.get("test@example.com"));
+            assertNull(l1.get("test@example.com"));
+            assertNull(new DurableRankingCache(new ConcurrentMapCache("userRecipes"), store, ttl,
+                    clockAt(written.plus(Duration.ofMinutes(31)))).get("test@example.com"));
+        }
+    }
+
+    private static AppClock clockAt(Instant instant) {
+        return new AppClock(Clock.fixed(instant, ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,195 @@
+package zerowaste.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.MailSendException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import zerowaste.backend.config.AppClock;
+import zerowaste.backend.email.EmailTemplateService;
+import zerowaste.backend.email.MailService;
+import zerowaste.backend.notification.DailyPlanifierService;
+import zerowaste.backend.notification.NotificationWheel;
+import zerowaste.backend.product.models.UserProductList;
+import zerowaste.backend.product.repos.UserProductListRepository;
+import zerowaste.backend.security.AppUserDetails;
+import zerowaste.backend.security.PrincipalCache;
+import zerowaste.backend.user.User;
+import zerowaste.backend.user.UserRepository;
+import zerowaste.backend.user.auth.AuthService;
+import zerowaste.backend.user.auth.tokens.EmailVerificationToken;
+import zerowaste.backend.user.auth.tokens.EmailVerificationTokenRepository;
+import zerowaste.backend.user.auth.tokens.PasswordResetToken;
+import zerowaste.backend.user.auth.tokens.PasswordResetTokenRepository;
+import zerowaste.backend.user.dtos.RegisterUserDto;
+
+import java.time.LocalTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuthServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PasswordEncoder encoder;
+
+    @Mock
+    private EmailVerificationTokenRepository tokenRepository;
+
+    @Mock
+    private MailService mailService;
+
+    @Mock
+    private EmailTemplateService emailTemplateService;
+
+    @Mock
+    private PasswordResetTokenRepository passwordTokenRepository;
+
+    @Mock
+    private UserProductListRepository userProductListRepository;
+
+    @Mock
+    private PrincipalCache principalCache;
+
+    @Spy
+    private AppClock clock = new AppClock();
+
+    @Spy
+    private DailyPlanifierService dailyPlanifierService = new DailyPlanifierService(null, null, null, null, null,
+            new AppClock(), (kind, key, type, payload) -> { });
+
+    @InjectMocks
+    private AuthService authService;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(authService, "frontendUrl", "http://localhost:8100/");
+        testUser = new User();
+        testUser.setId(1L);
+        testUser.setEmail("test@example.com");
+    }
+
+    @Test
+    void testRegisterNewUser_MailFailureReachesTheCaller() {
+        // Arrange
+        RegisterUserDto dto = new RegisterUserDto();
+        dto.setEmail("test@example.com");
+        dto.setPassword("Secret123!");
+        when(userRepository.existsByEmail("test@example.com")).thenReturn(false);
+        when(emailTemplateService.render(anyString(), any())).thenReturn("<p>confirm</p>");
+        doThrow(new MailSendException("Could not send email to test@example.com: mail queue full"))
+                .when(mailService).sendHtmlEmail(anyString(), anyString(), anyString());
+
+        // Act & Assert - thrown out of the transaction, so the registration is rolled back
+        assertThrows(MailSendException.class, () -> authService.registerNewUser(dto));
+        verify(mailService).sendHtmlEmail(eq("test@example.com"), eq("Verify account"), anyString());
+    }
+
+    @Test
+    void testCreateResetToken_MailFailureReachesTheCaller() {
+        // Arrange
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
+        when(emailTemplateService.render(anyString(), any())).thenReturn("<p>reset</p>");
+        doThrow(new MailSendException("Could not send email to test@example.com: 550 mailbox unavailable"))
+                .when(mailService).sendHtmlEmail(anyString(), anyString(), anyString());
+
+        // Act & Assert
+        assertThrows(MailSendException.class, () -> authService.createResetToken("test@example.com"));
+    }
+
+    @Test
+    void testChangePassword_EvictsTheCachedPrincipal() {
+        // Act
+        authService.changePassword(testUser, "NewSecret1", "NewSecret1");
+
+        // Assert
+        verify(userRepository).save(testUser);
+        verify(principalCache).evict("test@example.com");
+    }
+
+    @Test
+    void testResetPassword_EvictsTheCachedPrincipal() {
+        // Arrange
+        PasswordResetToken token = new PasswordResetToken();
+        token.setToken("reset-token");
+        token.setUser(testUser);
+        token.setExpiresAt(clock.now().plusHours(1));
+        when(passwordTokenRepository.findByToken("reset-token")).thenReturn(Optional.of(token));
+
+        // Act
+        authService.resetPassword("reset-token", "NewSecret1", "NewSecret1");
+
+        // Assert
+        verify(principalCache).evict("test@example.com");
+    }
+
+    @Test
+    void testDeleteAccount_EvictsTheCachedPrincipal() {
+        // Arrange
+        UserProductList list = new UserProductList();
+        list.getCollaborators().add(testUser);
+        testUser.setUserProductList(list);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        // Act
+        authService.deleteAccount(new AppUserDetails(testUser));
+
+        // Assert
+        verify(userRepository).delete(testUser);
+        verify(principalCache).evict("test@example.com");
+    }
+
+    @Test
+    void testConfirmEmail_SchedulesTheUserAtNoon() {
+        // Arrange
+        EmailVerificationToken token = new EmailVerificationToken("confirm-token", testUser, clock.now().plusDays(1));
+        when(tokenRepository.findByToken("confirm-token")).thenReturn(Optional.of(token));
+
+        // Act
+        authService.confirmEmail("confirm-token");
+
+        // Assert
+        assertTrue(testUser.isVerified());
+        assertEquals(12 * 60, wheel().minuteOf(1L));
+    }
+
+    @Test
+    void testDeleteAccount_TakesTheUserOffTheWheel() {
+        // Arrange
+        testUser.setPreferred_notification_hour(LocalTime.of(8, 0));
+        dailyPlanifierService.updateUserNotification(testUser);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        // Act
+        authService.deleteAccount(new AppUserDetails(testUser));
+
+        // Assert
+        assertEquals(-1, wheel().minuteOf(1L));
+        assertEquals(0, wheel().size());
+    }
+
+    @Test
+    void testChangePassword_MismatchKeepsTheCachedPrincipal() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> authService.changePassword(testUser, "NewSecret1", "Other1"));
+        verifyNoInteractions(principalCache);
+    }
+
+    private NotificationWheel wheel() {
+        return (NotificationWheel) ReflectionTestUtils.getField(dailyPlanifierService, "wheel");
+    }
+}
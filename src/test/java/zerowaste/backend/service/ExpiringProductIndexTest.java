@@ -0,0 +1,160 @@
+package zerowaste.backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import zerowaste.backend.config.AppClock;
+import zerowaste.backend.product.models.ExpiringCandidate;
+import zerowaste.backend.product.models.Product;
+import zerowaste.backend.product.models.ProductDto;
+import zerowaste.backend.product.models.UserProductList;
+import zerowaste.backend.product.repos.UserProductListRepository;
+import zerowaste.backend.product.service.ExpiringProductIndex;
+import zerowaste.backend.webSocket.ProductListWsEvent;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExpiringProductIndexTest {
+
+    @Mock
+    private UserProductListRepository listRepository;
+
+    @Spy
+    private AppClock clock = new AppClock(Clock.fixed(Instant.parse("2026-10-19T10:00:00Z"), ZoneOffset.UTC));
+
+    @InjectMocks
+    private ExpiringProductIndex index;
+
+    private final LocalDate today = LocalDate.of(2026, 10, 19);
+
+    @Test
+    void testRebuild_KeepsOnlyProductsExpiringSoon() {
+        // Arrange
+        when(listRepository.findExpiringCandidates(today, today.plusDays(3))).thenReturn(List.of(
+                new ExpiringCandidate("ABC123", 1, today.plusDays(2), null, 0),
+                new ExpiringCandidate("ABC123", 2, today.plusDays(20), today.minusDays(1), 2),
+                new ExpiringCandidate("ABC123", 3, today.plusDays(20), today.minusDays(10), 2),
+                new ExpiringCandidate("XYZ789", 4, null, today, null)));
+
+        // Act
+        index.rebuild();
+
+        // Assert
+        assertEquals(Set.of(1L, 2L), index.expiringIds("ABC123"));
+        assertEquals(Set.of(), index.expiringIds("XYZ789"));
+        assertEquals(Set.of(), index.expiringIds("NOLIST"));
+    }
+
+    @Test
+    void testExpiringIds_NullUntilBuilt() {
+        assertNull(index.expiringIds("ABC123"));
+    }
+
+    @Test
+    void testExpiringIds_NullAgainAfterMidnightUntilRebuilt() {
+        // Arrange
+        when(listRepository.findExpiringCandidates(any(), any()))
+                .thenReturn(List.of(new ExpiringCandidate("ABC123", 1, today, null, 0)));
+        index.rebuild();
+
+        // Act
+        doReturn((int) today.plusDays(1).toEpochDay()).when(clock).today();
+
+        // Assert
+        assertNull(index.expiringIds("ABC123"));
+    }
+
+    @Test
+    void testExpiringNames_FallsBackToProductsBeforeTheFirstBuild() {
+        // Arrange
+        UserProductList list = list("ABC123", product(1, "Milk", today.plusDays(1)), product(2, "Rice", today.plusDays(40)));
+
+        // Act
+        List<String> names = index.expiringNames(list);
+
+        // Assert
+        assertEquals(List.of("Milk"), names);
+    }
+
+    @Test
+    void testProductWritesPatchTheIndex() {
+        // Arrange
+        when(listRepository.findExpiringCandidates(any(), any())).thenReturn(List.of(
+                new ExpiringCandidate("ABC123", 1, today, null, 0)));
+        index.rebuild();
+
+        // Act
+        index.onProductListChanged(new ProductListWsEvent("ABC123", "add_product",
+                new ProductDto(2, "Milk", today.plusDays(3), null, 0, true)));
+        index.onProductListChanged(new ProductListWsEvent("ABC123", "update_product",
+                new ProductDto(1, "Eggs", today.plusDays(30), null, 0, false)));
+        index.apply("XYZ789", "add_product", new ProductDto(3, "Ham", today.plusDays(1), null, 0, true));
+        index.apply("XYZ789", "delete_product", 3L);
+
+        // Assert
+        assertEquals(Set.of(2L), index.expiringIds("ABC123"));
+        assertEquals(Set.of(), index.expiringIds("XYZ789"));
+        UserProductList list = list("ABC123", product(1, "Eggs", today.plusDays(30)), product(2, "Milk", today.plusDays(3)));
+        assertEquals(List.of("Milk"), index.expiringNames(list));
+    }
+
+    @Test
+    void testRebuild_ReplaysWritesMadeWhileItQueried() {
+        // Arrange - a product is added while the candidate query runs
+        when(listRepository.findExpiringCandidates(any(), any())).thenAnswer(invocation -> {
+            index.apply("ABC123", "add_product", new ProductDto(9, "Milk", today, null, 0, true));
+            return List.of(new ExpiringCandidate("ABC123", 1, today, null, 0));
+        });
+
+        // Act
+        index.rebuild();
+
+        // Assert
+        assertEquals(Set.of(1L, 9L), index.expiringIds("ABC123"));
+    }
+
+    @Test
+    void testRebuild_FailureKeepsThePreviousSnapshot() {
+        // Arrange
+        when(listRepository.findExpiringCandidates(any(), any()))
+                .thenReturn(List.of(new ExpiringCandidate("ABC123", 1, today, null, 0)))
+                .thenThrow(new RuntimeException("connection refused"));
+        index.rebuild();
+
+        // Act
+        index.rebuild();
+
+        // Assert
+        assertEquals(Set.of(1L), index.expiringIds("ABC123"));
+    }
+
+    private static UserProductList list(String shareCode, Product... products) {
+        UserProductList list = new UserProductList();
+        list.setShare_code(shareCode);
+        list.setProducts(new ArrayList<>(List.of(products)));
+        return list;
+    }
+
+    private static Product product(long id, String name, LocalDate bestBefore) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setBestBefore(bestBefore);
+        product.setConsumptionDays(0);
+        return product;
+    }
+}
@@ -8,8 +8,10 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.ApplicationEventPublisher;
+import zerowaste.backend.config.AppClock;
 import zerowaste.backend.exception.classes.ConstraintException;
 import zerowaste.backend.product.controller.requests.AddProductRequest;
 import zerowaste.backend.product.controller.requests.UpdateProductRequest;
@@ -47,6 +49,9 @@ class ProductServiceTest {
     @Mock
     private ApplicationEventPublisher applicationEventPublisher;
 
+    @Spy
+    private AppClock clock = new AppClock();
+
     @InjectMocks
     private ProductService productService;
 
@@ -5,25 +5,34 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.domain.Limit;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import zerowaste.backend.product.models.UserProductList;
+import zerowaste.backend.product.service.ExpiringProductIndex;
 import zerowaste.backend.recipe.RecipeService;
 import zerowaste.backend.recipe.models.Recipe;
 import zerowaste.backend.recipe.models.RecipeDto;
 import zerowaste.backend.recipe.models.UserRecipe;
+import zerowaste.backend.recipe.ranking.RecipeRanking;
 import zerowaste.backend.recipe.repos.RecipeRepository;
 import zerowaste.backend.recipe.repos.UserRecipeRepository;
+import zerowaste.backend.recipe.traits.RecipeTraits;
+import zerowaste.backend.recipe.traits.RecipeTraitsIndex;
 import zerowaste.backend.security.AppUserDetails;
 import zerowaste.backend.user.User;
 import zerowaste.backend.user.UserRepository;
+import zerowaste.backend.webSocket.relay.NotificationRelay;
+import zerowaste.backend.webSocket.relay.RelayMessage;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -51,6 +60,15 @@ class RecipeServiceTest {
     @Mock
     private Cache cache;
 
+    @Spy
+    private RecipeTraitsIndex recipeTraits = new RecipeTraitsIndex();
+
+    @Mock
+    private NotificationRelay notificationRelay;
+
+    @Mock
+    private ExpiringProductIndex expiringProducts;
+
     @InjectMocks
     private RecipeService recipeService;
 
@@ -168,6 +186,82 @@ class RecipeServiceTest {
     }
 
 
+    @Test
+    void testRateRecipeDislikeRemovesFromCachedRanking() {
+        // Arrange
+        RecipeRanking ranking = RecipeRanking.fromIds(List.of(1L, 2L, 3L));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(recipeRepository.findById(1L)).thenReturn(Optional.of(testRecipe));
+        when(userRecipeRepository.findByUserAndRecipe(testUser, testRecipe)).thenReturn(Optional.empty());
+        when(cacheManager.getCache("userRecipes")).thenReturn(cache);
+        when(cache.get(testUser.getEmail())).thenReturn(new SimpleValueWrapper(ranking));
+
+        // Act
+        recipeService.rateRecipe(appUserDetails, 1L, false);
+
+        // Assert
+        assertEquals(List.of(2L, 3L), ranking.ids());
+        verify(cache).put(testUser.getEmail(), ranking);
+        verify(recipeRepository, never()).findAllById(anyList());
+    }
+
+    @Test
+    void testRateRecipeLikeMovesSimilarRecipesUp() {
+        // Arrange
+        Recipe unrelated = new Recipe();
+        unrelated.setId(2L);
+        unrelated.setRecipeType("Soup");
+        unrelated.setDifficulty(3);
+        unrelated.setTime(120);
+
+        Recipe similar = new Recipe();
+        similar.setId(3L);
+        similar.setRecipeType("Dessert");
+        similar.setDifficulty(2);
+        similar.setTime(30);
+
+        List<Long> cachedIds = List.of(1L, 2L, 3L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(recipeRepository.findById(1L)).thenReturn(Optional.of(testRecipe));
+        when(userRecipeRepository.findByUserAndRecipe(testUser, testRecipe)).thenReturn(Optional.empty());
+        when(cacheManager.getCache("userRecipes")).thenReturn(cache);
+        when(cache.get(testUser.getEmail())).thenReturn(new SimpleValueWrapper(cachedIds));
+        when(recipeRepository.findMostSimilarIds(eq(cachedIds), eq(1L), any(), anyInt(), anyInt(), eq(Limit.of(20))))
+                .thenReturn(List.of(1L, 3L, 2L));
+        when(recipeRepository.findAllById(List.of(1L, 3L, 2L))).thenReturn(List.of(testRecipe, similar, unrelated));
+
+        // Act
+        recipeService.rateRecipe(appUserDetails, 1L, true);
+
+        // Assert
+        verify(cache).put(eq(testUser.getEmail()), argThat(value ->
+                value instanceof RecipeRanking r && r.ids().equals(List.of(1L, 3L, 2L))));
+    }
+
+    @Test
+    void testRateRecipeLikeLoadsOnlyTheNeighbourCandidates() {
+        // Arrange
+        List<Long> cachedIds = LongStream.rangeClosed(1, 500).boxed().toList();
+        List<Long> candidates = cachedIds.subList(0, 20);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(recipeRepository.findById(1L)).thenReturn(Optional.of(testRecipe));
+        when(userRecipeRepository.findByUserAndRecipe(testUser, testRecipe)).thenReturn(Optional.empty());
+        when(cacheManager.getCache("userRecipes")).thenReturn(cache);
+        when(cache.get(testUser.getEmail())).thenReturn(new SimpleValueWrapper(cachedIds));
+        when(recipeRepository.findMostSimilarIds(eq(cachedIds), eq(1L), any(), anyInt(), anyInt(), eq(Limit.of(20))))
+                .thenReturn(candidates);
+        when(recipeRepository.findAllById(candidates)).thenReturn(List.of(testRecipe));
+
+        // Act
+        recipeService.rateRecipe(appUserDetails, 1L, true);
+
+        // Assert
+        verify(recipeRepository).findAllById(candidates);
+        verify(recipeRepository, never()).findAllById(cachedIds);
+        verify(cache).put(eq(testUser.getEmail()), argThat(value ->
+                value instanceof RecipeRanking r && r.ids().getFirst() == 1L && r.size() == 500));
+    }
+
     @Test
     void testSearchRecipesWithValidQuery() {
         // Arrange
@@ -225,6 +319,30 @@ class RecipeServiceTest {
     }
 
 
+    @Test
+    void testFilterRecipesFavouritesExcludesAllergens() {
+        // Arrange
+        int milk = RecipeTraits.allergenMask(List.of("Milk"));
+        recipeTraits.replace(RecipeTraitsIndex.builder().put(1L, milk, 0));
+        testUser.setAllergy_mask(milk);
+
+        UserRecipe userRecipe = new UserRecipe();
+        userRecipe.setRecipe(testRecipe);
+        userRecipe.setRating(true);
+
+        RecipeService.RecipeFilter filter = new RecipeService.RecipeFilter(null, null, null, true);
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(userRecipeRepository.findByUserAndRating(testUser, true)).thenReturn(List.of(userRecipe));
+
+        // Act
+        RecipeService.PageResponse<RecipeDto> result = recipeService.filterRecipes(appUserDetails, 10, 0, filter);
+
+        // Assert
+        assertEquals(0, result.count());
+        assertTrue(result.results().isEmpty());
+    }
+
     @Test
     void testFilterRecipesByTimeAndDifficulty() {
         // Arrange
@@ -269,6 +387,7 @@ class RecipeServiceTest {
         // Assert
         verify(cache).put("test@example.com", recipeIds);
         verify(template).convertAndSend(eq("/topic/notifications/testexamplecom"), any(RecipeService.WsMessage.class));
+        verify(notificationRelay).publish(RelayMessage.RECIPES_READY, "testexamplecom", "recipe", payload);
     }
 
 
@@ -0,0 +1,218 @@
+package zerowaste.backend.websocket;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.json.JsonMapper;
+import zerowaste.backend.notification.DailyPlanifierService;
+import zerowaste.backend.product.service.ExpiringProductIndex;
+import zerowaste.backend.recipe.RecipeService;
+import zerowaste.backend.webSocket.ProductWsNotifier;
+import zerowaste.backend.webSocket.relay.JdbcNotificationRelay;
+import zerowaste.backend.webSocket.relay.LoopbackNotificationRelay;
+import zerowaste.backend.webSocket.relay.RelayInbox;
+import zerowaste.backend.webSocket.relay.RelayMessage;
+import zerowaste.backend.webSocket.relay.RelayRecord;
+import zerowaste.backend.webSocket.relay.RelayRecordRepository;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationRelayTest {
+
+    @Mock
+    private ProductWsNotifier notifierA;
+
+    @Mock
+    private ProductWsNotifier notifierB;
+
+    @Mock
+    private SimpMessagingTemplate templateA;
+
+    @Mock
+    private SimpMessagingTemplate templateB;
+
+    @Mock
+    private ExpiringProductIndex indexA;
+
+    @Mock
+    private ExpiringProductIndex indexB;
+
+    @Mock
+    private CacheManager cacheManagerA;
+
+    @Mock
+    private CacheManager cacheManagerB;
+
+    @Mock
+    private Cache recipesB;
+
+    @Mock
+    private ObjectProvider<DailyPlanifierService> planifierA;
+
+    @Mock
+    private ObjectProvider<DailyPlanifierService> planifierB;
+
+    @Mock
+    private RelayRecordRepository relayRepository;
+
+    @Mock
+    private ThreadPoolTaskScheduler taskScheduler;
+
+    @Test
+    void testPublishReachesOtherNodesOnly() {
+        // Arrange
+        when(cacheManagerB.getCache("userRecipes")).thenReturn(recipesB);
+        RecipeService.PythonPayload ranking = new RecipeService.PythonPayload(List.of(3L, 1L, 2L), "test@example.com");
+        LoopbackNotificationRelay.Hub hub = new LoopbackNotificationRelay.Hub();
+        LoopbackNotificationRelay nodeA = new LoopbackNotificationRelay("a", hub, new RelayInbox(notifierA, templateA, indexA, cacheManagerA, planifierA));
+        new LoopbackNotificationRelay("b", hub, new RelayInbox(notifierB, templateB, indexB, cacheManagerB, planifierB));
+
+        // Act
+        nodeA.publish(RelayMessage.PRODUCT_LIST, "ABC", "delete_product", 5L);
+        nodeA.publish(RelayMessage.RECIPES_READY, "testexamplecom", "recipe", ranking);
+
+        // Assert
+        verify(notifierB).notifyList("ABC", "delete_product", 5L);
+        verify(indexB).apply("ABC", "delete_product", 5L);
+        // the ranking is cached on the other node before its client is told to fetch it
+        InOrder recipesReady = inOrder(recipesB, templateB);
+        recipesReady.verify(recipesB).put("test@example.com", List.of(3L, 1L, 2L));
+        recipesReady.verify(templateB).convertAndSend("/topic/notifications/testexamplecom", new RecipeService.WsMessage("recipe"));
+        verifyNoInteractions(notifierA, templateA, indexA, cacheManagerA, planifierA);
+    }
+
+    @Test
+    void testInboxDeliversEachSequenceOnce() {
+        // Arrange
+        RelayInbox inbox = new RelayInbox(notifierA, templateA, indexA, cacheManagerA, planifierA);
+        RelayMessage message = new RelayMessage("b", 7, RelayMessage.PRODUCT_LIST, "ABC", "delete_product", 5L);
+
+        // Act
+        boolean first = inbox.receive(message);
+        boolean again = inbox.receive(message);
+
+        // Assert
+        assertTrue(first);
+        assertFalse(again);
+        verify(notifierA, times(1)).notifyList("ABC", "delete_product", 5L);
+    }
+
+    @Test
+    void testNotificationSlotMovesTheUserInTheOtherWheels() {
+        // Arrange
+        DailyPlanifierService planifier = mock(DailyPlanifierService.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<DailyPlanifierService>>getArgument(0).accept(planifier);
+            return null;
+        }).when(planifierB).ifAvailable(any());
+        LoopbackNotificationRelay.Hub hub = new LoopbackNotificationRelay.Hub();
+        LoopbackNotificationRelay nodeA = new LoopbackNotificationRelay("a", hub, new RelayInbox(notifierA, templateA, indexA, cacheManagerA, planifierA));
+        new LoopbackNotificationRelay("b", hub, new RelayInbox(notifierB, templateB, indexB, cacheManagerB, planifierB));
+
+        // Act
+        nodeA.publish(RelayMessage.NOTIFICATION_SLOT, "7", "put", 600L);
+        nodeA.publish(RelayMessage.NOTIFICATION_SLOT, "8", "remove", null);
+
+        // Assert
+        verify(planifier).applySlot(7L, 600);
+        verify(planifier).applySlot(8L, -1);
+        verifyNoInteractions(planifierA);
+    }
+
+    @Test
+    void testJdbcPollSkipsSeenRowsBeforeDecodingThem() {
+        // Arrange - row 1 was delivered by an earlier poll and its payload would not even decode
+        RelayInbox inbox = mock(RelayInbox.class);
+        JdbcNotificationRelay relay = new JdbcNotificationRelay(relayRepository, inbox, JsonMapper.builder().build(), taskScheduler);
+        ReflectionTestUtils.setField(relay, "batchSize", 500);
+        ReflectionTestUtils.setField(relay, "gapMs", 5000L);
+        when(inbox.markSeen("b:1")).thenReturn(false);
+        when(inbox.markSeen("b:2")).thenReturn(true);
+        when(relayRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Limit.class)))
+                .thenReturn(List.of(row(1, "b", 1, "not json"), row(2, "b", 2, "5")));
+
+        // Act
+        ReflectionTestUtils.invokeMethod(relay, "tick");
+
+        // Assert
+        verify(inbox, times(1)).deliver(any());
+        verify(inbox).deliver(new RelayMessage("b", 2, RelayMessage.PRODUCT_LIST, "ABC", "delete_product", 5L));
+    }
+
+    @Test
+    void testJdbcIdlePollReadsNothing() {
+        // Arrange
+        RelayInbox inbox = mock(RelayInbox.class);
+        JdbcNotificationRelay relay = jdbcRelay(inbox);
+        when(inbox.markSeen("b:1")).thenReturn(true);
+        when(relayRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class))).thenReturn(List.of(row(1, "b", 1, "5")));
+        ReflectionTestUtils.invokeMethod(relay, "tick");
+
+        // Act
+        ReflectionTestUtils.invokeMethod(relay, "tick");
+        ReflectionTestUtils.invokeMethod(relay, "tick");
+
+        // Assert - only rows after the last one read are asked for, and none come back
+        verify(relayRepository, times(2)).findByIdGreaterThanOrderByIdAsc(eq(1L), any(Limit.class));
+        verify(relayRepository, never()).findAllById(any());
+        verify(inbox, times(1)).deliver(any());
+    }
+
+    @Test
+    void testJdbcPollLooksUpSkippedIdsUntilTheyCommit() {
+        // Arrange - row 3 commits first, rows 1 and 2 are still in flight
+        RelayInbox inbox = mock(RelayInbox.class);
+        JdbcNotificationRelay relay = jdbcRelay(inbox);
+        when(inbox.markSeen(any())).thenReturn(true);
+        when(relayRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class))).thenReturn(List.of(row(3, "b", 3, "5")));
+        when(relayRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(row(1, "b", 1, "5")));
+        ReflectionTestUtils.invokeMethod(relay, "tick");
+
+        // Act
+        ReflectionTestUtils.invokeMethod(relay, "tick");
+        ReflectionTestUtils.invokeMethod(relay, "tick");
+
+        // Assert
+        verify(inbox).deliver(new RelayMessage("b", 1, RelayMessage.PRODUCT_LIST, "ABC", "delete_product", 5L));
+        verify(inbox).deliver(new RelayMessage("b", 3, RelayMessage.PRODUCT_LIST, "ABC", "delete_product", 5L));
+        verify(relayRepository).findAllById(List.of(2L));
+        verify(relayRepository, never()).findByIdGreaterThanOrderByIdAsc(eq(1L), any(Limit.class));
+    }
+
+    private JdbcNotificationRelay jdbcRelay(RelayInbox inbox) {
+        JdbcNotificationRelay relay = new JdbcNotificationRelay(relayRepository, inbox, JsonMapper.builder().build(), taskScheduler);
+        ReflectionTestUtils.setField(relay, "batchSize", 500);
+        ReflectionTestUtils.setField(relay, "gapMs", 5000L);
+        return relay;
+    }
+
+    private static RelayRecord row(long id, String node, long seq, String payload) {
+        RelayRecord row = new RelayRecord();
+        ReflectionTestUtils.setField(row, "id", id);
+        row.setNode(node);
+        row.setSeq(seq);
+        row.setKind(RelayMessage.PRODUCT_LIST);
+        row.setKey("ABC");
+        row.setType("delete_product");
+        row.setPayloadType("Long");
+        row.setPayload(payload);
+        return row;
+    }
+}
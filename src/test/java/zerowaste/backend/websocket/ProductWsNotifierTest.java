@@ -0,0 +1,185 @@
+package zerowaste.backend.websocket;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+import zerowaste.backend.product.models.Product;
+import zerowaste.backend.product.models.ProductDto;
+import zerowaste.backend.webSocket.NotificationReplayBuffer;
+import zerowaste.backend.webSocket.ProductWsNotifier;
+import zerowaste.backend.webSocket.WsCodec;
+import zerowaste.backend.webSocket.WsEnvelope;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductWsNotifierTest {
+
+    @Mock
+    private SimpMessagingTemplate template;
+
+    @Mock
+    private ThreadPoolTaskScheduler taskScheduler;
+
+    @Spy
+    private WsCodec codec = new WsCodec(JsonMapper.builder().build());
+
+    @Spy
+    private NotificationReplayBuffer replayBuffer = new NotificationReplayBuffer(16, 30);
+
+    @InjectMocks
+    private ProductWsNotifier notifier;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(notifier, "flushWindowMs", 50L);
+    }
+
+    @Test
+    void testSingleEventIsSentUnbatchedWhenWindowCloses() {
+        // Arrange
+        ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+        Product product = product(1L);
+
+        // Act
+        notifier.notifyList("ABC", "add_product", product);
+        verify(taskScheduler).schedule(flush.capture(), any(Instant.class));
+        verifyNoInteractions(template);
+        flush.getValue().run();
+
+        // Assert
+        WsEnvelope frame = sentFrame();
+        assertEquals("add_product", frame.type());
+        assertEquals(ProductDto.from(product), frame.payload());
+        assertNotNull(frame.seq());
+    }
+
+    @Test
+    void testFrameIsSentAsJsonBytes() {
+        // Arrange
+        ReflectionTestUtils.setField(notifier, "flushWindowMs", 0L);
+        ArgumentCaptor<Message> message = ArgumentCaptor.forClass(Message.class);
+
+        // Act
+        notifier.notifyList("ABC", "delete_product", 7L);
+
+        // Assert
+        verify(template).send(eq("/topic/notifications/ABC"), message.capture());
+        String json = new String((byte[]) message.getValue().getPayload());
+        assertTrue(json.matches("\\{\"type\":\"delete_product\",\"payload\":7,\"seq\":\\d+}"), json);
+        verifyNoInteractions(taskScheduler);
+    }
+
+    @Test
+    void testProductFramesCarryExpiringSoon() {
+        // Arrange
+        ReflectionTestUtils.setField(notifier, "flushWindowMs", 0L);
+        ArgumentCaptor<Message> message = ArgumentCaptor.forClass(Message.class);
+        Product product = product(1L);
+        product.setBestBefore(LocalDate.now().plusDays(1));
+
+        // Act
+        notifier.notifyList("ABC", "add_product", ProductDto.from(product));
+
+        // Assert
+        verify(template).send(eq("/topic/notifications/ABC"), message.capture());
+        String json = new String((byte[]) message.getValue().getPayload());
+        assertTrue(json.contains("\"expiringSoon\":true"), json);
+    }
+
+    @Test
+    void testBurstIsCoalescedIntoOneBatch() {
+        // Arrange
+        ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+        Product added = product(1L);
+        Product updated = product(1L);
+        updated.setName("Renamed");
+        Product other = product(2L);
+
+        // Act
+        notifier.notifyList("ABC", "add_product", added);
+        notifier.notifyList("ABC", "update_product", updated);
+        notifier.notifyList("ABC", "update_product", other);
+        notifier.notifyList("ABC", "update_product", product(3L));
+        notifier.notifyList("ABC", "delete_product", 3L);
+        verify(taskScheduler, times(1)).schedule(flush.capture(), any(Instant.class));
+        flush.getValue().run();
+
+        // Assert
+        WsEnvelope batch = sentFrame();
+        assertEquals("batch", batch.type());
+        assertEquals(List.of(
+                new WsEnvelope("add_product", ProductDto.from(updated)),
+                new WsEnvelope("update_product", ProductDto.from(other)),
+                new WsEnvelope("delete_product", 3L)), batch.payload());
+    }
+
+    @Test
+    void testAddThenDeleteSendsNothing() {
+        // Arrange
+        ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+
+        // Act
+        notifier.notifyList("ABC", "add_product", product(1L));
+        notifier.notifyList("ABC", "delete_product", 1L);
+        verify(taskScheduler).schedule(flush.capture(), any(Instant.class));
+        flush.getValue().run();
+
+        // Assert
+        verifyNoInteractions(template);
+    }
+
+    @Test
+    void testFramesAreNumberedAndReplayable() {
+        // Arrange
+        ReflectionTestUtils.setField(notifier, "flushWindowMs", 0L);
+        ArgumentCaptor<Object> frames = ArgumentCaptor.forClass(Object.class);
+
+        // Act
+        notifier.notifyList("ABC", "delete_product", 1L);
+        notifier.notifyList("ABC", "delete_product", 2L);
+
+        // Assert
+        verify(codec, times(2)).toMessage(frames.capture());
+        WsEnvelope first = (WsEnvelope) frames.getAllValues().get(0);
+        WsEnvelope second = (WsEnvelope) frames.getAllValues().get(1);
+        assertEquals(first.seq() + 1, second.seq());
+
+        NotificationReplayBuffer.Replay replay = replayBuffer.since("ABC", first.seq());
+        assertTrue(replay.complete());
+        assertEquals(List.of(second), replay.frames());
+        assertFalse(replayBuffer.since("ABC", first.seq() - 5).complete());
+    }
+
+    private WsEnvelope sentFrame() {
+        ArgumentCaptor<Object> frame = ArgumentCaptor.forClass(Object.class);
+        verify(codec).toMessage(frame.capture());
+        verify(template).send(eq("/topic/notifications/ABC"), any(Message.class));
+        return (WsEnvelope) frame.getValue();
+    }
+
+    private static Product product(long id) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Product " + id);
+        product.setConsumptionDays(0);
+        return product;
+    }
+}
@@ -1,9 +1,11 @@
 package zerowaste.backend.websocket;
 
+import io.jsonwebtoken.Claims;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
@@ -14,6 +16,7 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.userdetails.UserDetails;
 import zerowaste.backend.security.AppUserDetailsService;
 import zerowaste.backend.security.JwtService;
+import zerowaste.backend.security.PrincipalCache;
 import zerowaste.backend.webSocket.WebSocketTokenInterceptor;
 
 import java.util.Collections;
@@ -33,6 +36,15 @@ class WebSocketTokenInterceptorTest {
     @Mock
     private MessageChannel messageChannel;
 
+    @Mock
+    private Claims claims;
+
+    @Mock
+    private UserDetails userDetails;
+
+    @Spy
+    private PrincipalCache principalCache = new PrincipalCache(60);
+
     @InjectMocks
     private WebSocketTokenInterceptor interceptor;
 
@@ -41,15 +53,13 @@ class WebSocketTokenInterceptorTest {
         // Arrange
         String invalidToken = "invalid.token";
         String authHeader = "Bearer " + invalidToken;
-        String userEmail = "test@example.com";
 
         StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
         accessor.addNativeHeader("Authorization", authHeader);
         Message<?> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
 
         // Mock invalid token behavior
-        when(jwtService.extractSubject(invalidToken, false)).thenReturn(userEmail);
-        when(jwtService.isTokenValid(invalidToken, userEmail, false)).thenReturn(false); // Invalid!
+        when(jwtService.parseValidClaims(invalidToken, false)).thenReturn(null); // Invalid!
 
         // Act
         Message<?> result = interceptor.preSend(message, messageChannel);
@@ -61,6 +71,39 @@ class WebSocketTokenInterceptorTest {
         verify(userDetailsService, never()).loadUserByUsername(anyString());
     }
 
+    @Test
+    void testPreSend_ConnectCommand_ValidToken_LoadsUserOnceForRepeatedConnects() {
+        // Arrange
+        String token = "valid.token";
+        String userEmail = "test@example.com";
+
+        when(jwtService.parseValidClaims(token, false)).thenReturn(claims);
+        when(claims.getSubject()).thenReturn(userEmail);
+        when(userDetailsService.loadUserByUsername(userEmail)).thenReturn(userDetails);
+        when(userDetails.getUsername()).thenReturn(userEmail);
+        when(userDetails.isEnabled()).thenReturn(true);
+        doReturn(Collections.emptyList()).when(userDetails).getAuthorities();
+
+        // Act
+        Message<?> first = interceptor.preSend(connect(token), messageChannel);
+        Message<?> second = interceptor.preSend(connect(token), messageChannel);
+
+        // Assert - both sessions get the cached copy, not the loaded details
+        Object principal = null;
+        for (Message<?> result : new Message<?>[]{first, second}) {
+            StompHeaderAccessor resultAccessor = StompHeaderAccessor.getAccessor(result, StompHeaderAccessor.class);
+            assertNotNull(resultAccessor);
+            UsernamePasswordAuthenticationToken user = (UsernamePasswordAuthenticationToken) resultAccessor.getUser();
+            assertNotNull(user);
+            assertNotSame(userDetails, user.getPrincipal());
+            assertEquals(userEmail, user.getName());
+            assertTrue(principal == null || principal == user.getPrincipal());
+            principal = user.getPrincipal();
+        }
+        verify(jwtService, times(2)).parseValidClaims(token, false);
+        verify(userDetailsService, times(1)).loadUserByUsername(userEmail);
+    }
+
     @Test
     void testPreSend_ConnectCommand_NoAuthHeader_DoesNotSetUser() {
         // Arrange
@@ -113,4 +156,10 @@ class WebSocketTokenInterceptorTest {
         verifyNoInteractions(jwtService);
     }
 
+    private static Message<?> connect(String token) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.addNativeHeader("Authorization", "Bearer " + token);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
 }
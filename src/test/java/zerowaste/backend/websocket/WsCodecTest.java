@@ -0,0 +1,161 @@
+package zerowaste.backend.websocket;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import zerowaste.backend.webSocket.CborMessageConverter;
+import zerowaste.backend.webSocket.WsCodec;
+import zerowaste.backend.webSocket.WsEnvelope;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WsCodecTest {
+
+    private static final String DESTINATION = "/topic/python-requests";
+
+    private final WsCodec codec = new WsCodec(JsonMapper.builder().build());
+
+    @Test
+    void testToMessageIsJson() {
+        // Act
+        Message<byte[]> message = codec.toMessage(new WsEnvelope("product_deleted", 7L));
+
+        // Assert
+        assertEquals(MimeTypeUtils.APPLICATION_JSON, message.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+        assertEquals("{\"type\":\"product_deleted\",\"payload\":7}", new String(message.getPayload()));
+    }
+
+    @Test
+    void testSessionsGetTheCodecTheyAskedFor() {
+        // Arrange - s1 asks for CBOR on CONNECT, s2 on SUBSCRIBE, s3 says nothing
+        codec.preSend(frame(StompCommand.CONNECT, "s1", "accept", "application/cbor, application/json"), null);
+        codec.preSend(frame(StompCommand.CONNECT, "s2", null, null), null);
+        codec.preSend(frame(StompCommand.SUBSCRIBE, "s2", "content-type", "application/cbor"), null);
+        codec.preSend(frame(StompCommand.CONNECT, "s3", null, null), null);
+        Message<byte[]> published = codec.toMessage(new WsEnvelope("recipes", List.of(1, 2, 3)));
+
+        // Act
+        Message<?> first = codec.preSend(outbound(published, "s1", "sub-0"), null);
+        Message<?> second = codec.preSend(outbound(published, "s2", "sub-0"), null);
+        Message<?> third = codec.preSend(outbound(published, "s3", "sub-0"), null);
+
+        // Assert
+        assertEquals(CborMessageConverter.CBOR_FRAME, first.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+        JsonNode decoded = new CBORMapper().readTree((byte[]) first.getPayload());
+        assertEquals(3, decoded.get("payload").size());
+        // transcoded once for both CBOR sessions
+        assertSame(first.getPayload(), second.getPayload());
+        assertSame(published.getPayload(), third.getPayload());
+        assertEquals(MimeTypeUtils.APPLICATION_JSON, third.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+    }
+
+    @Test
+    void testSubscribeHeaderOnlyAppliesToItsSubscription() {
+        // Arrange
+        codec.preSend(frame(StompCommand.CONNECT, "s1", null, null), null);
+        codec.preSend(subscribe("s1", "sub-ai", "accept", "application/cbor"), null);
+        codec.preSend(subscribe("s1", "sub-list", null, null), null);
+        Message<byte[]> published = codec.toMessage(new WsEnvelope("recipes", List.of(1, 2, 3)));
+
+        // Act
+        Message<?> ai = codec.preSend(outbound(published, "s1", "sub-ai"), null);
+        Message<?> list = codec.preSend(outbound(published, "s1", "sub-list"), null);
+        codec.preSend(frame(StompCommand.UNSUBSCRIBE, "s1", null, null, "sub-ai"), null);
+
+        // Assert
+        assertEquals(CborMessageConverter.CBOR_FRAME, ai.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+        assertSame(published.getPayload(), list.getPayload());
+        assertFalse(codec.isCbor("s1", "sub-ai"));
+    }
+
+    @Test
+    void testConvertAndSendFramesAreTranscodedToo() {
+        // Arrange - no transcoding attached, as for template.convertAndSend
+        codec.preSend(frame(StompCommand.CONNECT, "s1", "accept", "application/cbor"), null);
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        Message<byte[]> published = MessageBuilder.createMessage("{\"type\":\"recipe\"}".getBytes(), accessor.getMessageHeaders());
+
+        // Act
+        Message<?> sent = codec.preSend(outbound(published, "s1", "sub-0"), null);
+
+        // Assert
+        assertEquals("recipe", new CBORMapper().readTree((byte[]) sent.getPayload()).get("type").asString());
+    }
+
+    @Test
+    void testUnknownOrJsonFirstHeadersStayJson() {
+        // Arrange
+        codec.preSend(frame(StompCommand.CONNECT, "s1", "accept", "application/json, application/cbor"), null);
+        codec.preSend(frame(StompCommand.CONNECT, "s2", "accept", "not a mime type"), null);
+        codec.preSend(frame(StompCommand.CONNECT, "s3", "accept", "application/cbor"), null);
+        codec.preSend(frame(StompCommand.SUBSCRIBE, "s3", "accept", "application/json"), null);
+
+        // Assert
+        assertFalse(codec.isCbor("s1", null));
+        assertFalse(codec.isCbor("s2", null));
+        assertFalse(codec.isCbor("s3", "sub-0"));
+        assertTrue(codec.isCbor("s3", "sub-other"));
+    }
+
+    @Test
+    void testDisconnectForgetsTheSession() {
+        // Arrange
+        codec.preSend(frame(StompCommand.CONNECT, "s1", "accept", "application/cbor"), null);
+        assertTrue(codec.isCbor("s1", null));
+
+        // Act
+        Message<byte[]> disconnect = frame(StompCommand.DISCONNECT, "s1", null, null);
+        codec.onDisconnect(new SessionDisconnectEvent(this, disconnect, "s1", CloseStatus.NORMAL));
+
+        // Assert
+        assertFalse(codec.isCbor("s1", null));
+    }
+
+    private static Message<byte[]> subscribe(String sessionId, String subscriptionId, String header, String value) {
+        return frame(StompCommand.SUBSCRIBE, sessionId, header, value, subscriptionId);
+    }
+
+    private static Message<byte[]> frame(StompCommand command, String sessionId, String header, String value) {
+        return frame(command, sessionId, header, value, "sub-0");
+    }
+
+    private static Message<byte[]> frame(StompCommand command, String sessionId, String header, String value,
+                                         String subscriptionId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setSessionId(sessionId);
+        if (command == StompCommand.SUBSCRIBE || command == StompCommand.UNSUBSCRIBE) {
+            accessor.setSubscriptionId(subscriptionId);
+        }
+        if (command == StompCommand.SUBSCRIBE) {
+            accessor.setDestination(DESTINATION);
+        }
+        if (header != null) {
+            accessor.setNativeHeader(header, value);
+        }
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    // what the simple broker sends to one subscriber: the published payload and headers with that subscription's ids
+    private static Message<byte[]> outbound(Message<byte[]> published, String sessionId, String subscriptionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(DESTINATION);
+        accessor.copyHeadersIfAbsent(published.getHeaders());
+        return MessageBuilder.createMessage(published.getPayload(), accessor.getMessageHeaders());
+    }
+}
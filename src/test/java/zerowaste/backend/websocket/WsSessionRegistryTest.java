@@ -0,0 +1,206 @@
+package zerowaste.backend.websocket;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import zerowaste.backend.webSocket.SlowConsumerPolicy;
+import zerowaste.backend.webSocket.WsSessionRegistry;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WsSessionRegistryTest {
+
+    private static final String DESTINATION = "/topic/notifications/ABC";
+
+    @Mock
+    private WebSocketHandler delegate;
+
+    @Mock
+    private WebSocketSession session;
+
+    @Mock
+    private MessageChannel channel;
+
+    @Mock
+    private MessageHandler handler;
+
+    private WsSessionRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new WsSessionRegistry();
+        ReflectionTestUtils.setField(registry, "maxQueuedBytes", 150L);
+        ReflectionTestUtils.setField(registry, "maxLatencyMs", 60_000L);
+        when(session.getId()).thenReturn("s1");
+    }
+
+    @Test
+    void testResyncPolicyDropsThenSendsMarker() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(registry, "policy", SlowConsumerPolicy.RESYNC);
+        WebSocketSession tracked = connect();
+
+        // Act
+        Message<?> first = registry.beforeHandle(frame(100), channel, handler);
+        Message<?> second = registry.beforeHandle(frame(100), channel, handler);
+        Message<?> droppedFrame = registry.beforeHandle(frame(100), channel, handler);
+        tracked.sendMessage(new TextMessage("first"));
+        tracked.sendMessage(new TextMessage("second"));
+        Message<?> afterCatchUp = registry.beforeHandle(frame(100), channel, handler);
+
+        // Assert
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(droppedFrame);
+        assertEquals("{\"type\":\"resync_required\",\"payload\":null}",
+                new String((byte[]) afterCatchUp.getPayload(), StandardCharsets.UTF_8));
+        assertEquals(1, registry.stats(10).dropped());
+    }
+
+    @Test
+    void testDisconnectPolicyClosesSlowSession() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(registry, "policy", SlowConsumerPolicy.DISCONNECT);
+        connect();
+
+        // Act
+        registry.beforeHandle(frame(200), channel, handler);
+        Message<?> result = registry.beforeHandle(frame(10), channel, handler);
+
+        // Assert
+        assertNull(result);
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(0, registry.stats(10).sessions());
+    }
+
+    @Test
+    void testSubscribersAreCountedPerTopic() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(registry, "policy", SlowConsumerPolicy.DROP);
+        connect();
+        StompHeaderAccessor subscribe = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        subscribe.setSessionId("s1");
+        subscribe.setSubscriptionId("sub-0");
+        subscribe.setDestination(DESTINATION);
+        Message<byte[]> message = MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders());
+
+        // Act
+        registry.onSubscribe(new SessionSubscribeEvent(this, message));
+
+        // Assert
+        assertEquals(1, registry.subscribers(DESTINATION));
+        // grouped without the share code
+        assertEquals(Map.of("/topic/notifications", 1), registry.stats(10).subscribersPerTopic());
+    }
+
+    @Test
+    void testIdleSessionsAreReaped() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(registry, "idleTimeoutMs", 200L);
+        WebSocketHandler decorated = registry.decorate(delegate);
+        decorated.afterConnectionEstablished(session);
+        Thread.sleep(250);
+        decorated.handleMessage(session, new TextMessage("\n"));
+
+        // Act
+        registry.reapIdle();
+        verify(session, never()).close(any(CloseStatus.class));
+        Thread.sleep(250);
+        registry.reapIdle();
+
+        // Assert
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE.withReason("idle"));
+        assertEquals(0, registry.stats(10).sessions());
+        assertEquals(1, registry.stats(10).opened());
+        assertEquals(1, registry.stats(10).reaped());
+    }
+
+    @Test
+    void testListenOnlySessionWithoutHeartbeatsIsNotReaped() throws Exception {
+        // Arrange - CONNECT with heart-beat 0,0 and one SUBSCRIBE, then only frames going out
+        ReflectionTestUtils.setField(registry, "idleTimeoutMs", 100L);
+        ReflectionTestUtils.setField(registry, "heartbeatClientMs", 50L);
+        ReflectionTestUtils.setField(registry, "policy", SlowConsumerPolicy.DROP);
+        connect();
+        registry.onConnect(new SessionConnectEvent(this, stompConnect(0, 0)));
+        StompHeaderAccessor subscribe = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        subscribe.setSessionId("s1");
+        subscribe.setSubscriptionId("sub-0");
+        subscribe.setDestination(DESTINATION);
+        registry.onSubscribe(new SessionSubscribeEvent(this, MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders())));
+        Thread.sleep(250);
+
+        // Act
+        registry.reapIdle();
+
+        // Assert
+        verify(session, never()).close(any(CloseStatus.class));
+        assertEquals(1, registry.stats(10).sessions());
+        assertEquals(0, registry.stats(10).reaped());
+    }
+
+    @Test
+    void testQuietSessionIsReapedAfterThreeHeartbeatIntervals() throws Exception {
+        // Arrange - the client offers 20 ms, the server expects 50 ms, so 150 ms of silence
+        ReflectionTestUtils.setField(registry, "heartbeatClientMs", 50L);
+        WebSocketHandler decorated = registry.decorate(delegate);
+        decorated.afterConnectionEstablished(session);
+        registry.onConnect(new SessionConnectEvent(this, stompConnect(20, 0)));
+        Thread.sleep(100);
+
+        // Act
+        registry.reapIdle();
+        verify(session, never()).close(any(CloseStatus.class));
+        Thread.sleep(100);
+        registry.reapIdle();
+
+        // Assert
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE.withReason("idle"));
+        assertEquals(1, registry.stats(10).reaped());
+    }
+
+    private WebSocketSession connect() throws Exception {
+        ArgumentCaptor<WebSocketSession> tracked = ArgumentCaptor.forClass(WebSocketSession.class);
+        registry.decorate(delegate).afterConnectionEstablished(session);
+        verify(delegate).afterConnectionEstablished(tracked.capture());
+        return tracked.getValue();
+    }
+
+    private static Message<byte[]> stompConnect(long clientSendsMs, long clientExpectsMs) {
+        StompHeaderAccessor connect = StompHeaderAccessor.create(StompCommand.CONNECT);
+        connect.setSessionId("s1");
+        connect.setHeartbeat(clientSendsMs, clientExpectsMs);
+        return MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders());
+    }
+
+    private static Message<byte[]> frame(int size) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId("s1");
+        accessor.setDestination(DESTINATION);
+        return MessageBuilder.createMessage(new byte[size], accessor.getMessageHeaders());
+    }
+}